@@ -7,6 +7,7 @@ plugins {
 	`jacoco-report-aggregation`
 	id("org.springframework.boot") version "3.4.2"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 checkstyle {
@@ -43,14 +44,15 @@ repositories {
 
 idea {
 	module {
-		testSources.from(file("src/integrationTest/java"), file("src/test/java"))
-		testResources.from(file("src/integrationTest/resources"), file("src/test/resources"))
+		testSources.from(file("src/integrationTest/java"), file("src/loadTest/java"), file("src/test/java"), file("src/jmh/java"))
+		testResources.from(file("src/integrationTest/resources"), file("src/loadTest/resources"), file("src/test/resources"))
 	}
 }
 
 dependencies {
 	runtimeOnly("org.postgresql:postgresql")
 	runtimeOnly("org.postgresql:r2dbc-postgresql")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 	developmentOnly("org.springframework.boot:spring-boot-devtools")
 
 	implementation("pl.codehouse.commons:burger-commons:$burgerCommonsVersion")
@@ -60,6 +62,7 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-webflux")
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
 	implementation("org.springframework.kafka:spring-kafka")
+	implementation("io.projectreactor.kafka:reactor-kafka")
 
 	implementation("org.flywaydb:flyway-core")
 	implementation("org.flywaydb:flyway-database-postgresql")
@@ -67,8 +70,10 @@ dependencies {
 	implementation("com.fasterxml.jackson.core:jackson-databind")
 	implementation("com.fasterxml.jackson.core:jackson-core")
 	implementation("com.fasterxml.jackson.core:jackson-annotations")
+	implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
 
 	implementation("org.apache.commons:commons-lang3:3.17.0")
+	implementation("com.github.ben-manes.caffeine:caffeine")
 
 	annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
 }
@@ -138,6 +143,32 @@ testing {
                 implementation("io.rest-assured:spring-web-test-client:5.5.0")
             }
         }
+
+        // runs on in-memory stand-ins of Postgres and Kafka, e.g. ./gradlew loadTest -Pload.concurrency=64 -Pload.duration=PT1M
+        val loadTest by registering(JvmTestSuite::class) {
+            testType.set("load-test")
+            sources {
+                java {
+                    setSrcDirs(listOf("src/loadTest/java"))
+                }
+                resources {
+                    setSrcDirs(listOf("src/loadTest/resources"))
+                }
+            }
+            dependencies {
+                implementation(project())
+                implementation(sourceSets.test.get().output)
+                implementation(sourceSets.test.get().runtimeClasspath)
+            }
+            targets {
+                all {
+                    testTask.configure {
+                        systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+                        outputs.upToDateWhen { false }
+                    }
+                }
+            }
+        }
     }
 }
 
@@ -157,6 +188,20 @@ tasks.named<Test>("integrationTest") {
 	finalizedBy(tasks.jacocoTestReport)
 }
 
+jmh {
+	jmhVersion = "1.37"
+	fork = 1
+	warmupIterations = 3
+	iterations = 5
+	benchmarkMode = listOf("thrpt", "avgt")
+	timeUnit = "us"
+	// machine-readable results, to compare a change against the results of a baseline run
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+	// e.g. ./gradlew jmh -Pjmh.includes=ShelfCacheBenchmark
+	includes = listOfNotNull(project.findProperty("jmh.includes") as String?)
+}
+
 tasks.jacocoTestReport {
 	reports {
 		xml.required = true
@@ -42,8 +42,7 @@ import reactor.test.StepVerifier;
 
 @ActiveProfiles("test")
 @SpringBootTest(
-    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
-    properties = {"spring.cache.type=NONE"}
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
 )
 @AutoConfigureWebTestClient(timeout = "500000000000")
 @ExtendWith(SpringExtension.class)
@@ -65,8 +64,9 @@ class ShelfResourceIntegrationTest {
     private final static Clock clock = Clock.fixed(Instant.parse("2025-01-22T10:15:30.00Z"), ZoneOffset.UTC);
 
     @BeforeEach
-    void setUp(@Autowired Flyway flyway) {
+    void setUp(@Autowired Flyway flyway, @Autowired ShelfCache shelfCache) {
         webTestClient(webTestClient);
+        shelfCache.invalidateAll();
 
         flyway.clean();
         flyway.migrate();
@@ -74,7 +74,7 @@ class ShelfResourceIntegrationTest {
         // Insert test data
         r2dbcEntityTemplate.delete(ShelfEntity.class).from("shelf").all().block();
 
-        ShelfEntity testShelfEntity = new ShelfEntity(SHELF_ID, MENU_ITEM_NAME, MENU_ITEM_ID, MENU_ITEM_QUANTITY, MENU_ITEM_START_VERSION, LocalDateTime.now(clock));
+        ShelfEntity testShelfEntity = new ShelfEntity(SHELF_ID, MENU_ITEM_NAME, MENU_ITEM_ID, MENU_ITEM_QUANTITY, 0, MENU_ITEM_START_VERSION, LocalDateTime.now(clock));
         r2dbcEntityTemplate.insert(ShelfEntity.class)
                 .using(testShelfEntity)
                 .doOnNext(shelf -> System.out.println("Added new shelf item " + shelf.toString()))
@@ -0,0 +1,76 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfCache} under concurrent access: reads of cached items only, and reads competing with the writes of commands,
+ * which also drop the cached list of available items.
+ */
+@State(Scope.Benchmark)
+public class ShelfCacheBenchmark {
+
+    @Param({"1000"})
+    private int menuItems;
+
+    private ShelfCache shelfCache;
+    private List<ShelfDto> availableItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        shelfCache = new ShelfCache(new ShelfCacheProperties(10_000, Duration.ofMinutes(5)), new SimpleMeterRegistry());
+        availableItems = IntStream.range(0, menuItems)
+                .mapToObj(ShelfCacheBenchmark::shelfItem)
+                .toList();
+        availableItems.forEach(shelfCache::put);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ShelfDto readItems() {
+        return readRandomItem();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public ShelfDto readItemsWhileWriting() {
+        return readRandomItem();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public List<ShelfDto> readAvailableItemsWhileWriting() {
+        return shelfCache.getAvailableItems(() -> Mono.just(availableItems)).block();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writeItems() {
+        shelfCache.put(shelfItem(ThreadLocalRandom.current().nextInt(menuItems)));
+    }
+
+    private ShelfDto readRandomItem() {
+        int menuItemId = ThreadLocalRandom.current().nextInt(menuItems);
+        return shelfCache.getByMenuItemId(menuItemId, id -> Mono.just(shelfItem(id))).block();
+    }
+
+    private static ShelfDto shelfItem(int menuItemId) {
+        return new ShelfDto("Menu Item " + menuItemId, menuItemId, 5, 1);
+    }
+}
@@ -0,0 +1,88 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost of dispatching an action through {@link ShelfServiceImpl}: resolving its command, the interceptor pipeline
+ * and, for single item actions, the hop to the lane of the menu item. Commands complete immediately.
+ */
+@State(Scope.Benchmark)
+public class ShelfCommandDispatchBenchmark {
+    private static final ShelfDto SHELF_ITEM = new ShelfDto("Menu Item One", 1000, 5, 1);
+
+    @Param({"false", "true"})
+    private boolean instrumented;
+
+    private ShelfCommandLanes commandLanes;
+    private ShelfServiceImpl shelfService;
+    private UpdateItemOnShelfAction updateAction;
+    private UpdateItemsOnShelfAction batchAction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var beanFactory = new DefaultListableBeanFactory();
+        if (instrumented) {
+            beanFactory.registerSingleton("metricsInterceptor", new ShelfCommandMetricsInterceptor(new SimpleMeterRegistry()));
+        }
+        commandLanes = new ShelfCommandLanes(new ShelfLaneProperties(16), new SimpleMeterRegistry());
+        shelfService = new ShelfServiceImpl(
+                List.of(new CompletedCommand<>(CreateNewItemOnShelfAction.class, SHELF_ITEM),
+                        new CompletedCommand<>(ReserveItemOnShelfAction.class, SHELF_ITEM),
+                        new CompletedCommand<>(UpdateItemOnShelfAction.class, SHELF_ITEM)),
+                List.of(new CompletedCommand<>(UpdateItemsOnShelfAction.class, List.of(SHELF_ITEM))),
+                null,
+                commandLanes,
+                new ShelfChangeStream(new ShelfStreamProperties(256)),
+                new ShelfCache(new ShelfCacheProperties(10_000, Duration.ofMinutes(5)), new SimpleMeterRegistry()),
+                beanFactory.getBeanProvider(ShelfCommandInterceptor.class),
+                beanFactory.getBeanProvider(ShelfWriteCoalescer.class));
+        updateAction = new UpdateItemOnShelfAction(SHELF_ITEM.menuItemId(), UpdateType.TAKE, 1);
+        batchAction = new UpdateItemsOnShelfAction(List.of(updateAction));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        commandLanes.destroy();
+    }
+
+    @Benchmark
+    public ShelfDto updateThroughLane() {
+        return shelfService.action(updateAction).block();
+    }
+
+    @Benchmark
+    public List<ShelfDto> batchUpdate() {
+        return shelfService.batchAction(batchAction).block();
+    }
+
+    /**
+     * Command completing with a prepared result. Marked as an in-memory command, so no transaction is opened around it.
+     */
+    private record CompletedCommand<R>(Class<? extends ActionEvent> actionType, R result)
+            implements ApplicableCommand<ActionEvent, R>, InMemoryShelfCommand {
+
+        @Override
+        public boolean isApplicable(ActionEvent action) {
+            return actionType.isInstance(action);
+        }
+
+        @Override
+        public Mono<ExecutionResult<R>> execute(ActionEvent action) {
+            return Mono.just(ExecutionResult.success(result));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Mapping of stored entities to {@link ShelfDto} and the Jackson (de)serialization of the payloads
+ * exchanged over REST and Kafka, compared with the binary payload of {@link ShelfEventBinarySerde}.
+ */
+@State(Scope.Benchmark)
+public class ShelfSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final ShelfEventBinarySerde shelfEventSerde = new ShelfEventBinarySerde();
+
+    private ShelfEntity entity;
+    private ShelfDto shelfItem;
+    private ShelfEventDto shelfEvent;
+    private byte[] shelfItemJson;
+    private byte[] updateRequestJson;
+    private byte[] shelfEventJson;
+    private byte[] shelfEventBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        entity = new ShelfEntity(100, "Menu Item One", 1000, 5, 0, 3, LocalDateTime.parse("2025-01-03T10:15:30"));
+        shelfItem = ShelfDto.from(entity);
+        shelfEvent = new ShelfEventDto(EventType.TAKE, 1000, 2);
+        shelfItemJson = objectMapper.writeValueAsBytes(shelfItem);
+        updateRequestJson = """
+                {"updateType":"TAKE","quantity":2}""".getBytes(StandardCharsets.UTF_8);
+        shelfEventJson = objectMapper.writeValueAsBytes(shelfEvent);
+        shelfEventBinary = shelfEventSerde.serialize("shelf-events", shelfEvent);
+    }
+
+    @Benchmark
+    public ShelfDto mapEntityToDto() {
+        return ShelfDto.from(entity);
+    }
+
+    @Benchmark
+    public byte[] writeShelfDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(shelfItem);
+    }
+
+    @Benchmark
+    public ShelfDto readShelfDto() throws Exception {
+        return objectMapper.readValue(shelfItemJson, ShelfDto.class);
+    }
+
+    @Benchmark
+    public UpdateMenuItemOnShelfRequest readUpdateRequest() throws Exception {
+        return objectMapper.readValue(updateRequestJson, UpdateMenuItemOnShelfRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeShelfEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(shelfEvent);
+    }
+
+    @Benchmark
+    public ShelfEventDto readShelfEvent() throws Exception {
+        return objectMapper.readValue(shelfEventJson, ShelfEventDto.class);
+    }
+
+    @Benchmark
+    public byte[] writeShelfEventBinary() {
+        return shelfEventSerde.serialize("shelf-events", shelfEvent);
+    }
+
+    @Benchmark
+    public ShelfEventDto readShelfEventBinary() {
+        return shelfEventSerde.deserialize("shelf-events", shelfEventBinary);
+    }
+}
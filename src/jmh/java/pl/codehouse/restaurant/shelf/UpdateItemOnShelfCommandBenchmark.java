@@ -0,0 +1,64 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * CPU cost of {@link UpdateItemOnShelfCommand} around the database: applicability check, quantity delta, outbox event,
+ * mapping and cache write. The repositories answer immediately, so no I/O is measured.
+ */
+@State(Scope.Benchmark)
+public class UpdateItemOnShelfCommandBenchmark {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-03T10:15:30Z"), ZoneOffset.UTC);
+    private static final ShelfEntity UPDATED_ENTITY = new ShelfEntity(100, "Menu Item One", 1000, 4, 0, 2, LocalDateTime.now(CLOCK));
+
+    private UpdateItemOnShelfCommand command;
+    private ActionEvent updateAction;
+    private ActionEvent createAction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ShelfRepository repository = respondingWith(ShelfRepository.class, "updateQuantityIfAvailable", args -> Mono.just(UPDATED_ENTITY));
+        ShelfOutboxRepository outboxRepository = respondingWith(ShelfOutboxRepository.class, "save", args -> Mono.just(args[0]));
+        ShelfShardRepository shardRepository = respondingWith(ShelfShardRepository.class, "findShardCounts", args -> Flux.empty());
+        command = new UpdateItemOnShelfCommand(CLOCK,
+                                               new ShelfEventOutbox(CLOCK, outboxRepository),
+                                               new ShelfShardRouter(CLOCK, repository, shardRepository, null, new ShelfShardProperties(false, 8, 500, Duration.ofSeconds(1))));
+        updateAction = new UpdateItemOnShelfAction(UPDATED_ENTITY.menuItemId(), UpdateType.TAKE, 1);
+        createAction = new CreateNewItemOnShelfAction(UPDATED_ENTITY.menuItemId(), UPDATED_ENTITY.menuItemName(), 5);
+    }
+
+    @Benchmark
+    public boolean isApplicable() {
+        return command.isApplicable(updateAction) & !command.isApplicable(createAction);
+    }
+
+    @Benchmark
+    public ExecutionResult<ShelfDto> execute() {
+        return command.execute(updateAction).block();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T respondingWith(Class<T> type, String methodName, Function<Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().equals(methodName)) {
+                return answer.apply(args);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.Map;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.internals.ProducerFactory;
+
+/**
+ * Runs the shelf service without Postgres and Kafka, for load tests on a developer machine.
+ * The repositories keep their rows in memory, transactions are no-ops and shelf events are sent to a {@link MockProducer},
+ * which serializes and acknowledges them immediately. The database and Kafka auto-configurations are excluded
+ * and the Kafka listeners are not started by {@code application-in-memory.properties}.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile(InMemoryShelfConfiguration.IN_MEMORY_PROFILE)
+class InMemoryShelfConfiguration {
+    static final String IN_MEMORY_PROFILE = "in-memory";
+
+    @Bean
+    InMemoryShelfRepository shelfRepository() {
+        return new InMemoryShelfRepository();
+    }
+
+    @Bean
+    InMemoryShelfOutboxRepository shelfOutboxRepository() {
+        return new InMemoryShelfOutboxRepository();
+    }
+
+    @Bean
+    InMemoryShelfReservationRepository shelfReservationRepository() {
+        return new InMemoryShelfReservationRepository();
+    }
+
+    @Bean
+    InMemoryShelfIdempotencyRepository shelfIdempotencyRepository() {
+        return new InMemoryShelfIdempotencyRepository();
+    }
+
+    @Bean
+    InMemoryShelfShardRepository shelfShardRepository(InMemoryShelfRepository shelfRepository) {
+        return new InMemoryShelfShardRepository(shelfRepository);
+    }
+
+    @Bean
+    ReactiveTransactionManager transactionManager() {
+        return new NoOpTransactionManager();
+    }
+
+    @Bean
+    MockProducer<String, ShelfEventDto> shelfEventsProducer() {
+        return new MockProducer<>(true, new StringSerializer(), new JsonSerializer<>());
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    KafkaSender<String, ShelfEventDto> inMemoryShelfEventsSender(MockProducer<String, ShelfEventDto> shelfEventsProducer) {
+        var producerFactory = new ProducerFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Producer<K, V> createProducer(SenderOptions<K, V> senderOptions) {
+                return (Producer<K, V>) shelfEventsProducer;
+            }
+        };
+        return KafkaSender.create(producerFactory, SenderOptions.<String, ShelfEventDto>create(
+                        Map.of(ProducerConfig.CLIENT_ID_CONFIG, "shelf__in-memory"))
+                .stopOnError(false));
+    }
+
+    /**
+     * Transaction manager without a resource, every transaction begins and completes immediately.
+     */
+    private static final class NoOpTransactionManager extends AbstractReactiveTransactionManager {
+
+        @Override
+        protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+            return new Object();
+        }
+
+        @Override
+        protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction, TransactionDefinition definition) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfIdempotencyRepository} keeping the claimed keys and their responses in memory.
+ */
+class InMemoryShelfIdempotencyRepository extends UnsupportedCrudRepository<ShelfIdempotencyEntity, String> implements ShelfIdempotencyRepository {
+
+    private final Map<String, ShelfIdempotencyEntity> responsesByKey = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<ShelfIdempotencyEntity> findById(String idempotencyKey) {
+        return Mono.fromSupplier(() -> responsesByKey.get(idempotencyKey));
+    }
+
+    @Override
+    public Mono<Void> deleteById(String idempotencyKey) {
+        return Mono.fromRunnable(() -> responsesByKey.remove(idempotencyKey));
+    }
+
+    @Override
+    public Mono<ShelfIdempotencyEntity> claim(String idempotencyKey, String requestFingerprint, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        return Mono.fromSupplier(() -> {
+            var claim = new ShelfIdempotencyEntity(idempotencyKey, requestFingerprint, null, null, null, null, createdAt, expiresAt);
+            var stored = responsesByKey.compute(idempotencyKey,
+                    (key, existing) -> existing == null || existing.expiresAt().isBefore(createdAt) ? claim : existing);
+            return stored == claim ? claim : null;
+        });
+    }
+
+    @Override
+    public Mono<Integer> complete(String idempotencyKey, String menuItemName, Integer menuItemId, Integer quantity, Long version) {
+        return Mono.fromSupplier(() -> responsesByKey.computeIfPresent(idempotencyKey, (key, claim) -> new ShelfIdempotencyEntity(
+                        key, claim.requestFingerprint(), menuItemName, menuItemId, quantity, version, claim.createdAt(), claim.expiresAt())) == null ? 0 : 1);
+    }
+
+    @Override
+    public Mono<Integer> deleteExpired(LocalDateTime now) {
+        return Mono.fromSupplier(() -> {
+            int sizeBefore = responsesByKey.size();
+            responsesByKey.values().removeIf(response -> response.expiresAt().isBefore(now));
+            return sizeBefore - responsesByKey.size();
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfOutboxRepository} keeping the outbox in memory, ordered by the id assigned on save.
+ * The relay of a single instance is the only reader, so the relay lock is always granted.
+ */
+class InMemoryShelfOutboxRepository extends UnsupportedCrudRepository<ShelfOutboxEntity, Long> implements ShelfOutboxRepository {
+
+    private final ConcurrentNavigableMap<Long, ShelfOutboxEntity> eventsById = new ConcurrentSkipListMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends ShelfOutboxEntity> Mono<S> save(S entity) {
+        return Mono.fromSupplier(() -> {
+            var stored = new ShelfOutboxEntity(ids.incrementAndGet(), entity.eventType(), entity.menuItemId(), entity.quantity(),
+                                               entity.createdAt(), entity.publishedAt());
+            eventsById.put(stored.id(), stored);
+            return (S) stored;
+        });
+    }
+
+    @Override
+    public <S extends ShelfOutboxEntity> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public Flux<ShelfOutboxEntity> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(eventsById.values()));
+    }
+
+    @Override
+    public Mono<Boolean> tryLockRelay(long key) {
+        return Mono.just(true);
+    }
+
+    @Override
+    public Flux<ShelfOutboxEntity> findUnpublished(int limit) {
+        return findAll()
+                .filter(event -> event.publishedAt() == null)
+                .take(limit);
+    }
+
+    @Override
+    public Mono<Integer> markPublished(Collection<Long> ids, LocalDateTime publishedAt) {
+        return Mono.fromSupplier(() -> (int) ids.stream()
+                .map(id -> eventsById.computeIfPresent(id, (key, event) -> new ShelfOutboxEntity(
+                        event.id(), event.eventType(), event.menuItemId(), event.quantity(), event.createdAt(), publishedAt)))
+                .filter(Objects::nonNull)
+                .count());
+    }
+
+    @Override
+    public Mono<Integer> deletePublishedBefore(LocalDateTime publishedBefore) {
+        return Mono.fromSupplier(() -> {
+            int sizeBefore = eventsById.size();
+            eventsById.values().removeIf(event -> event.publishedAt() != null && event.publishedAt().isBefore(publishedBefore));
+            return sizeBefore - eventsById.size();
+        });
+    }
+}
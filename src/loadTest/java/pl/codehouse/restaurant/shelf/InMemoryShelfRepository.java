@@ -0,0 +1,242 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfRepository} keeping the shelf table in memory, with the semantics of the SQL statements it replaces:
+ * single row updates are atomic and conditional on the available quantity, every write bumps the version and
+ * stamps the next change sequence. Statements on several rows hold a lock excluding all other writes.
+ * There is no rollback, so a multi-row update is applied either completely or not at all.
+ */
+class InMemoryShelfRepository extends UnsupportedCrudRepository<ShelfEntity, Integer> implements ShelfRepository {
+    private static final Comparator<ShelfEntity> BY_MENU_ITEM_ID = Comparator.comparingInt(ShelfEntity::menuItemId);
+
+    private final Map<Integer, StoredItem> itemsByMenuItemId = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final ReadWriteLock statementLock = new ReentrantReadWriteLock();
+
+    @Override
+    public Flux<ShelfEntity> findAll() {
+        return Flux.defer(() -> Flux.fromStream(itemsByMenuItemId.values().stream().map(StoredItem::entity)));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) itemsByMenuItemId.size());
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(itemsByMenuItemId::clear);
+    }
+
+    @Override
+    public Mono<ShelfEntity> findByMenuItemId(Integer menuItemId) {
+        return Mono.fromSupplier(() -> entityOf(itemsByMenuItemId.get(menuItemId)));
+    }
+
+    @Override
+    public Mono<Boolean> existsByMenuItemId(Integer menuItemId) {
+        return Mono.fromSupplier(() -> itemsByMenuItemId.containsKey(menuItemId));
+    }
+
+    @Override
+    public Flux<ShelfEntity> findByQuantityAbove(Integer quantity) {
+        return findAll().filter(entity -> entity.quantity() >= quantity);
+    }
+
+    @Override
+    public Flux<ShelfEntity> findAvailableAfter(Integer after, Integer limit) {
+        return Flux.defer(() -> Flux.fromStream(itemsByMenuItemId.values().stream()
+                .map(StoredItem::entity)
+                .filter(entity -> entity.quantity() > 0 && entity.menuItemId() > after)
+                .sorted(BY_MENU_ITEM_ID)
+                .limit(limit)));
+    }
+
+    @Override
+    public Flux<ShelfEntity> findAfter(Integer after, Integer limit) {
+        return Flux.defer(() -> Flux.fromStream(itemsByMenuItemId.values().stream()
+                .map(StoredItem::entity)
+                .filter(entity -> entity.menuItemId() > after)
+                .sorted(BY_MENU_ITEM_ID)
+                .limit(limit)));
+    }
+
+    @Override
+    public Flux<ShelfChangeEntity> findChangedAfter(Long changeSeq, Integer limit) {
+        return Flux.defer(() -> Flux.fromStream(itemsByMenuItemId.values().stream()
+                .filter(item -> item.changeSeq() > changeSeq)
+                .sorted(Comparator.comparingLong(StoredItem::changeSeq))
+                .limit(limit)
+                .map(StoredItem::toChange)));
+    }
+
+    @Override
+    public Mono<ShelfEntity> insertIfAbsent(String menuItemName, Integer menuItemId, Integer quantity, LocalDateTime updatedAt) {
+        return Mono.fromSupplier(() -> readLocked(() -> {
+            var inserted = new StoredItem(new ShelfEntity(ids.incrementAndGet(), menuItemName, menuItemId, quantity, 0, 1, updatedAt),
+                                          changeSequence.incrementAndGet());
+            return itemsByMenuItemId.putIfAbsent(menuItemId, inserted) == null ? inserted.entity() : null;
+        }));
+    }
+
+    @Override
+    public Mono<ShelfEntity> updateQuantityIfAvailable(Integer menuItemId, Integer delta, LocalDateTime updatedAt) {
+        return update(menuItemId, item -> item.available() + delta >= 0
+                ? item.withQuantities(item.entity().quantity() + delta, item.reserved(), updatedAt)
+                : item);
+    }
+
+    @Override
+    public Mono<ShelfEntity> updateNetQuantityIfAvailable(Integer menuItemId, Integer delta, Integer lowestDelta, Integer updates, LocalDateTime updatedAt) {
+        return update(menuItemId, item -> item.available() + lowestDelta >= 0
+                ? item.withPersisted(item.entity().quantity() + delta, item.entity().version() + updates, updatedAt, item.changeSeq())
+                : item);
+    }
+
+    @Override
+    public Mono<Integer> lockAvailableQuantity(Integer menuItemId) {
+        // rows are not locked in memory, the command lanes already keep a single writer per menu item
+        return Mono.fromSupplier(() -> {
+            StoredItem item = itemsByMenuItemId.get(menuItemId);
+            return item == null ? null : item.available();
+        });
+    }
+
+    @Override
+    public Flux<Integer> lockMenuItems(Integer[] menuItemIds) {
+        // rows are not locked in memory, the batch statement is applied under the write lock of the repository
+        return Flux.fromArray(menuItemIds)
+                .filter(itemsByMenuItemId::containsKey)
+                .sort();
+    }
+
+    @Override
+    public Mono<ShelfEntity> reserveIfAvailable(Integer menuItemId, Integer quantity, LocalDateTime updatedAt) {
+        return update(menuItemId, item -> item.available() >= quantity
+                ? item.withQuantities(item.entity().quantity(), item.reserved() + quantity, updatedAt)
+                : item);
+    }
+
+    @Override
+    public Mono<ShelfEntity> settleReservation(Integer menuItemId, Integer reserved, Integer taken, LocalDateTime updatedAt) {
+        return update(menuItemId, item -> item.withQuantities(item.entity().quantity() - taken, item.reserved() - reserved, updatedAt));
+    }
+
+    @Override
+    public Flux<ShelfEntity> updateQuantitiesIfAvailable(Integer[] menuItemIds, Integer[] deltas, Integer[] lowestDeltas, LocalDateTime updatedAt) {
+        return Flux.defer(() -> Flux.fromIterable(writeLocked(() -> {
+            for (int i = 0; i < menuItemIds.length; i++) {
+                StoredItem item = itemsByMenuItemId.get(menuItemIds[i]);
+                if (item == null || item.available() + lowestDeltas[i] < 0) {
+                    return List.<ShelfEntity>of();
+                }
+            }
+            List<ShelfEntity> updated = new ArrayList<>(menuItemIds.length);
+            for (int i = 0; i < menuItemIds.length; i++) {
+                int delta = deltas[i];
+                StoredItem item = itemsByMenuItemId.computeIfPresent(menuItemIds[i],
+                        (id, stored) -> stored.withQuantities(stored.entity().quantity() + delta, stored.reserved(), updatedAt));
+                updated.add(item.entity());
+            }
+            return updated;
+        })));
+    }
+
+    @Override
+    public Mono<Integer> persistQuantities(Integer[] menuItemIds, Integer[] quantities, Long[] versions, LocalDateTime updatedAt) {
+        return Mono.fromSupplier(() -> writeLocked(() -> {
+            int persisted = 0;
+            for (int i = 0; i < menuItemIds.length; i++) {
+                StoredItem item = itemsByMenuItemId.get(menuItemIds[i]);
+                if (item != null && item.entity().version() < versions[i]) {
+                    itemsByMenuItemId.put(menuItemIds[i], item.withPersisted(quantities[i], versions[i], updatedAt, changeSequence.incrementAndGet()));
+                    persisted++;
+                }
+            }
+            return persisted;
+        }));
+    }
+
+    private Mono<ShelfEntity> update(Integer menuItemId, UnaryOperator<StoredItem> change) {
+        return Mono.fromSupplier(() -> readLocked(() -> {
+            var updated = new StoredItem[1];
+            itemsByMenuItemId.computeIfPresent(menuItemId, (id, item) -> {
+                StoredItem next = change.apply(item);
+                if (next != item) {
+                    next = next.stampedWith(changeSequence.incrementAndGet());
+                    updated[0] = next;
+                }
+                return next;
+            });
+            return entityOf(updated[0]);
+        }));
+    }
+
+    // single row statements share the lock, as the row itself is updated atomically by the map
+    private <R> R readLocked(Supplier<R> statement) {
+        statementLock.readLock().lock();
+        try {
+            return statement.get();
+        } finally {
+            statementLock.readLock().unlock();
+        }
+    }
+
+    private <R> R writeLocked(Supplier<R> statement) {
+        statementLock.writeLock().lock();
+        try {
+            return statement.get();
+        } finally {
+            statementLock.writeLock().unlock();
+        }
+    }
+
+    private static ShelfEntity entityOf(StoredItem item) {
+        return item == null ? null : item.entity();
+    }
+
+    private record StoredItem(ShelfEntity entity, long changeSeq) {
+
+        int reserved() {
+            return entity.reserved();
+        }
+
+        int available() {
+            return entity.quantity() - entity.reserved();
+        }
+
+        StoredItem withQuantities(int quantity, int reserved, LocalDateTime updatedAt) {
+            return new StoredItem(new ShelfEntity(entity.id(), entity.menuItemName(), entity.menuItemId(), quantity, reserved,
+                                                  entity.version() + 1, updatedAt), changeSeq);
+        }
+
+        StoredItem withPersisted(int quantity, long version, LocalDateTime updatedAt, long changeSeq) {
+            return new StoredItem(new ShelfEntity(entity.id(), entity.menuItemName(), entity.menuItemId(), quantity, entity.reserved(),
+                                                  version, updatedAt), changeSeq);
+        }
+
+        StoredItem stampedWith(long changeSeq) {
+            return new StoredItem(entity, changeSeq);
+        }
+
+        ShelfChangeEntity toChange() {
+            return new ShelfChangeEntity(entity.menuItemName(), entity.menuItemId(), entity.quantity(), entity.version(), changeSeq);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfReservationRepository} keeping the open reservations in memory.
+ */
+class InMemoryShelfReservationRepository extends UnsupportedCrudRepository<ShelfReservationEntity, UUID> implements ShelfReservationRepository {
+
+    private final Map<UUID, ShelfReservationEntity> reservationsById = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<ShelfReservationEntity> findById(UUID id) {
+        return Mono.fromSupplier(() -> reservationsById.get(id));
+    }
+
+    @Override
+    public Flux<ShelfReservationEntity> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(reservationsById.values()));
+    }
+
+    @Override
+    public Mono<ShelfReservationEntity> insertIfAbsent(UUID id, Integer menuItemId, Integer quantity, LocalDateTime expiresAt, LocalDateTime createdAt) {
+        return Mono.fromSupplier(() -> {
+            var reservation = new ShelfReservationEntity(id, menuItemId, quantity, expiresAt, createdAt);
+            return reservationsById.putIfAbsent(id, reservation) == null ? reservation : null;
+        });
+    }
+
+    @Override
+    public Mono<ShelfReservationEntity> deleteReturning(UUID id) {
+        return Mono.fromSupplier(() -> reservationsById.remove(id));
+    }
+
+    @Override
+    public Flux<UUID> findExpiredIds(LocalDateTime now, int limit) {
+        return Flux.defer(() -> Flux.fromStream(reservationsById.values().stream()
+                .filter(reservation -> !reservation.expiresAt().isAfter(now))
+                .sorted(Comparator.comparing(ShelfReservationEntity::expiresAt))
+                .limit(limit)
+                .map(ShelfReservationEntity::id)));
+    }
+}
@@ -0,0 +1,90 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ShelfShardRepository} of a shelf without sharded menu items. The in-memory shelf rows take no row locks,
+ * so there is no contention for shards to relieve and splitting a menu item fails loudly. The totals of a menu item
+ * are the state of its shelf row.
+ */
+class InMemoryShelfShardRepository extends UnsupportedCrudRepository<ShelfShardEntity, Long> implements ShelfShardRepository {
+    private final InMemoryShelfRepository shelfRepository;
+
+    InMemoryShelfShardRepository(InMemoryShelfRepository shelfRepository) {
+        this.shelfRepository = shelfRepository;
+    }
+
+    @Override
+    public Flux<ShelfShardCount> findShardCounts() {
+        return Flux.empty();
+    }
+
+    @Override
+    public Mono<ShelfShardCount> findShardCount(Integer menuItemId) {
+        return Mono.just(new ShelfShardCount(menuItemId, 1));
+    }
+
+    @Override
+    public Mono<ShelfEntity> findTotalByMenuItemId(Integer menuItemId) {
+        return shelfRepository.findByMenuItemId(menuItemId);
+    }
+
+    @Override
+    public Flux<ShelfEntity> findTotalsByQuantityAbove(Integer quantity) {
+        return shelfRepository.findByQuantityAbove(quantity);
+    }
+
+    @Override
+    public Flux<ShelfEntity> findAvailableTotalsAfter(Integer after, Integer limit) {
+        return shelfRepository.findAvailableAfter(after, limit);
+    }
+
+    @Override
+    public Flux<ShelfChangeEntity> findTotalsChangedAfter(Long changeXid, Integer limit) {
+        return shelfRepository.findChangedAfter(changeXid, limit);
+    }
+
+    @Override
+    public Mono<ShelfEntity> updateTotalQuantityIfAvailable(Integer menuItemId, Integer delta, LocalDateTime updatedAt) {
+        return shelfRepository.updateQuantityIfAvailable(menuItemId, delta, updatedAt);
+    }
+
+    @Override
+    public Mono<ShelfEntity> updateTotalNetQuantityIfAvailable(Integer menuItemId, Integer delta, Integer lowestDelta, Integer updates,
+                                                               LocalDateTime updatedAt) {
+        return shelfRepository.updateNetQuantityIfAvailable(menuItemId, delta, lowestDelta, updates, updatedAt);
+    }
+
+    @Override
+    public Mono<ShelfEntity> reserveTotalIfAvailable(Integer menuItemId, Integer quantity, LocalDateTime updatedAt) {
+        return shelfRepository.reserveIfAvailable(menuItemId, quantity, updatedAt);
+    }
+
+    @Override
+    public Mono<ShelfEntity> settleTotalReservation(Integer menuItemId, Integer reserved, Integer taken, LocalDateTime updatedAt) {
+        return shelfRepository.settleReservation(menuItemId, reserved, taken, updatedAt);
+    }
+
+    @Override
+    public Flux<ShelfEntity> updateTotalQuantitiesIfAvailable(Integer[] menuItemIds, Integer[] deltas, Integer[] lowestDeltas,
+                                                              LocalDateTime updatedAt) {
+        return shelfRepository.updateQuantitiesIfAvailable(menuItemIds, deltas, lowestDeltas, updatedAt);
+    }
+
+    @Override
+    public Mono<Integer> updateShardIfAvailable(Integer menuItemId, Integer shard, Integer delta, LocalDateTime updatedAt) {
+        return Mono.error(new UnsupportedOperationException("updateShardIfAvailable"));
+    }
+
+    @Override
+    public Mono<Integer> createShards(Integer menuItemId, Integer shards, LocalDateTime updatedAt) {
+        return Mono.error(new UnsupportedOperationException("createShards"));
+    }
+
+    @Override
+    public Mono<Integer> drainShards(Integer menuItemId, LocalDateTime updatedAt) {
+        return Mono.just(0);
+    }
+}
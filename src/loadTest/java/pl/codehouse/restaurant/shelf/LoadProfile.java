@@ -0,0 +1,61 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parameters of a load test run, read from {@code load.*} system properties:
+ * <ul>
+ *     <li>{@code load.concurrency} - number of clients sending requests one after another, 32 by default</li>
+ *     <li>{@code load.warmup} and {@code load.duration} - ISO-8601 durations of the unmeasured and the measured phase</li>
+ *     <li>{@code load.menu-items} - number of menu items put on the shelf before the run</li>
+ *     <li>{@code load.mix} - weights of the operations, e.g. {@code ADD=20,TAKE=40,GET=40}</li>
+ *     <li>{@code load.min-throughput} - requests per second the measured phase has to reach, 0 to only report it</li>
+ * </ul>
+ */
+record LoadProfile(int concurrency, Duration warmup, Duration duration, int menuItems, Map<Operation, Integer> mix, double minThroughput) {
+
+    enum Operation {
+        ADD, TAKE, GET
+    }
+
+    static LoadProfile fromSystemProperties() {
+        return new LoadProfile(
+                Integer.getInteger("load.concurrency", 32),
+                Duration.parse(System.getProperty("load.warmup", "PT5S")),
+                Duration.parse(System.getProperty("load.duration", "PT20S")),
+                Integer.getInteger("load.menu-items", 100),
+                parseMix(System.getProperty("load.mix", "ADD=20,TAKE=40,GET=40")),
+                Double.parseDouble(System.getProperty("load.min-throughput", "0")));
+    }
+
+    Operation nextOperation() {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (var weightedOperation : mix.entrySet()) {
+            pick -= weightedOperation.getValue();
+            if (pick < 0) {
+                return weightedOperation.getKey();
+            }
+        }
+        throw new IllegalStateException("Missing operation for the mix " + mix);
+    }
+
+    int nextMenuItemId() {
+        return ThreadLocalRandom.current().nextInt(menuItems) + 1;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        Arrays.stream(mix.split(","))
+                .map(weight -> weight.trim().split("="))
+                .forEach(weight -> weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim())));
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Missing positive weight in the operation mix " + mix);
+        }
+        return weights;
+    }
+}
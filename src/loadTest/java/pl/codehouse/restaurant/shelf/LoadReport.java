@@ -0,0 +1,80 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput and latency percentiles of the measured phase of a load test, overall and per operation.
+ * Latencies are of successful requests only, failed requests are counted as errors.
+ */
+record LoadReport(int concurrency, double durationSeconds, long requests, long errors, double throughput, List<OperationReport> operations) {
+    static final String REQUESTS_METRIC = "load.requests";
+    static final String SUCCESS = "success";
+    static final String ERROR = "error";
+    static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    record OperationReport(LoadProfile.Operation operation,
+                           long requests,
+                           long errors,
+                           double throughput,
+                           double meanMillis,
+                           Map<String, Double> percentilesMillis,
+                           double maxMillis) {
+    }
+
+    static Timer requestTimer(MeterRegistry meterRegistry, LoadProfile.Operation operation, String outcome) {
+        return Timer.builder(REQUESTS_METRIC)
+                .tag("operation", operation.name())
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                // the percentiles have to cover the whole measured phase instead of the default two minutes window
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(meterRegistry);
+    }
+
+    static LoadReport of(LoadProfile profile, Duration elapsed, MeterRegistry meterRegistry) {
+        double seconds = elapsed.toNanos() / 1e9;
+        List<OperationReport> operations = Arrays.stream(LoadProfile.Operation.values())
+                .filter(profile.mix()::containsKey)
+                .map(operation -> operationReport(operation, seconds, meterRegistry))
+                .toList();
+        long requests = operations.stream().mapToLong(OperationReport::requests).sum();
+        long errors = operations.stream().mapToLong(OperationReport::errors).sum();
+        return new LoadReport(profile.concurrency(), seconds, requests, errors, requests / seconds, operations);
+    }
+
+    String summary() {
+        return operations.stream()
+                .map(operation -> "%-4s %8d req %6d err %10.1f req/s  mean %7.2f ms  %s  max %7.2f ms".formatted(
+                        operation.operation(), operation.requests(), operation.errors(), operation.throughput(), operation.meanMillis(),
+                        operation.percentilesMillis().entrySet().stream()
+                                .map(percentile -> "%s %7.2f ms".formatted(percentile.getKey(), percentile.getValue()))
+                                .collect(Collectors.joining("  ")),
+                        operation.maxMillis()))
+                .collect(Collectors.joining(System.lineSeparator(),
+                        "%d client(s), %.1f s: %d requests, %d errors, %.1f req/s%n".formatted(concurrency, durationSeconds, requests, errors, throughput),
+                        ""));
+    }
+
+    private static OperationReport operationReport(LoadProfile.Operation operation, double seconds, MeterRegistry meterRegistry) {
+        HistogramSnapshot succeeded = requestTimer(meterRegistry, operation, SUCCESS).takeSnapshot();
+        long errors = requestTimer(meterRegistry, operation, ERROR).count();
+        long requests = succeeded.count() + errors;
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : succeeded.percentileValues()) {
+            percentiles.put("p" + (percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return new OperationReport(operation, requests, errors, requests / seconds, succeeded.mean(TimeUnit.MILLISECONDS), percentiles,
+                                   succeeded.max(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,134 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Drives {@link ShelfResource} over HTTP with a configurable number of concurrent clients and mix of ADD, TAKE and GET
+ * requests, see {@link LoadProfile}. The service runs on the in-memory stand-ins of Postgres and Kafka, so the results
+ * show the cost of the service itself. The report is logged and written to {@value #REPORT_FILE} as JSON.
+ */
+@ActiveProfiles(InMemoryShelfConfiguration.IN_MEMORY_PROFILE)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient(timeout = "30s")
+class ShelfLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ShelfLoadTest.class);
+    private static final String REPORT_FILE = "build/reports/load/shelf-load-test.json";
+    private static final int INITIAL_QUANTITY = 1_000_000;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockProducer<String, ShelfEventDto> shelfEventsProducer;
+
+    private final LoadProfile profile = LoadProfile.fromSystemProperties();
+
+    @Test
+    @DisplayName("should serve the configured mix of requests without errors and with the minimal throughput")
+    void should_ServeConfiguredMixOfRequestsWithoutErrorsAndWithMinimalThroughput() throws IOException {
+        // given
+        putMenuItemsOnShelf();
+        run(profile.warmup(), new SimpleMeterRegistry());
+
+        // when
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Duration elapsed = run(profile.duration(), meterRegistry);
+
+        // then
+        LoadReport report = LoadReport.of(profile, elapsed, meterRegistry);
+        log.info("Shelf load test report{}{}", System.lineSeparator(), report.summary());
+        Path reportFile = Path.of(REPORT_FILE);
+        Files.createDirectories(reportFile.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+
+        assertThat(report.errors()).isZero();
+        assertThat(report.throughput()).isGreaterThanOrEqualTo(profile.minThroughput());
+    }
+
+    private void putMenuItemsOnShelf() {
+        for (int menuItemId = 1; menuItemId <= profile.menuItems(); menuItemId++) {
+            webTestClient.post().uri("/shelf")
+                    .contentType(APPLICATION_JSON)
+                    .bodyValue(new CreateNewItemOnShelfAction(menuItemId, "Menu Item " + menuItemId, INITIAL_QUANTITY))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+    }
+
+    private Duration run(Duration duration, MeterRegistry meterRegistry) {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        // every client sends its next request once the previous one is answered
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < profile.concurrency(); client++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        send(profile.nextOperation(), profile.nextMenuItemId(), meterRegistry);
+                    }
+                });
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        // the mock producer keeps every sent event
+        shelfEventsProducer.clear();
+        return elapsed;
+    }
+
+    private void send(LoadProfile.Operation operation, int menuItemId, MeterRegistry meterRegistry) {
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            boolean succeeded = request(operation, menuItemId)
+                    .exchange()
+                    .expectBody()
+                    .returnResult()
+                    .getStatus()
+                    .is2xxSuccessful();
+            outcome = succeeded ? LoadReport.SUCCESS : LoadReport.ERROR;
+        } catch (RuntimeException | AssertionError error) {
+            outcome = LoadReport.ERROR;
+        }
+        LoadReport.requestTimer(meterRegistry, operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private WebTestClient.RequestHeadersSpec<?> request(LoadProfile.Operation operation, int menuItemId) {
+        return switch (operation) {
+            case ADD -> webTestClient.put().uri("/shelf/{menuItemId}", menuItemId)
+                    .contentType(APPLICATION_JSON)
+                    .bodyValue(new UpdateMenuItemOnShelfRequest(UpdateType.ADD, 1));
+            case TAKE -> webTestClient.put().uri("/shelf/{menuItemId}", menuItemId)
+                    .contentType(APPLICATION_JSON)
+                    .bodyValue(new UpdateMenuItemOnShelfRequest(UpdateType.TAKE, 1));
+            // the resource consumes JSON on every endpoint, including the ones without a body
+            case GET -> webTestClient.get().uri("/shelf/{menuItemId}", menuItemId)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .accept(APPLICATION_JSON);
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base of the in-memory repositories, failing every CRUD operation the shelf service does not issue.
+ * Subclasses override the operations they support, so an unexpected call fails loudly instead of returning no data.
+ */
+abstract class UnsupportedCrudRepository<T, I> implements ReactiveCrudRepository<T, I> {
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return unsupported("save");
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.error(new UnsupportedOperationException("saveAll"));
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<T> findById(I id) {
+        return unsupported("findById");
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<I> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(I id) {
+        return findById(id).hasElement();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<I> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return Flux.error(new UnsupportedOperationException("findAll"));
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<I> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<I> idStream) {
+        return Flux.from(idStream).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return findAll().count();
+    }
+
+    @Override
+    public Mono<Void> deleteById(I id) {
+        return unsupported("deleteById");
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<I> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return unsupported("delete");
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends I> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return unsupported("deleteAll");
+    }
+
+    private static <R> Mono<R> unsupported(String operation) {
+        return Mono.error(new UnsupportedOperationException(operation));
+    }
+}
@@ -4,12 +4,10 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.cache.annotation.EnableCaching;
 
 /**
  * Kitchen Shelf Spring Boot Starter class.
  */
-@EnableCaching
 @SpringBootApplication
 @EnableConfigurationProperties
 @ConfigurationPropertiesScan
@@ -0,0 +1,57 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ConfirmReservationOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
+    private static final Logger log = LoggerFactory.getLogger(ConfirmReservationOnShelfCommand.class);
+
+    private final Clock clock;
+    private final ShelfShardRouter shardRouter;
+    private final ShelfReservationRepository reservationRepository;
+    private final ShelfEventOutbox eventOutbox;
+
+    ConfirmReservationOnShelfCommand(Clock clock,
+                                     ShelfShardRouter shardRouter,
+                                     ShelfReservationRepository reservationRepository,
+                                     ShelfEventOutbox eventOutbox) {
+        this.clock = clock;
+        this.shardRouter = shardRouter;
+        this.reservationRepository = reservationRepository;
+        this.eventOutbox = eventOutbox;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof ConfirmReservationOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
+        var input = (ConfirmReservationOnShelfAction) context;
+        return reservationRepository.deleteReturning(input.reservationId())
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Missing reservation %s, it is already settled or expired".formatted(input.reservationId()))))
+                .doOnNext(reservation -> log.info("Performing `Confirm` Action on entity: {} >>> Taking {} reserved items", reservation.menuItemId(), reservation.quantity()))
+                .flatMap(reservation -> shardRouter.settleReservation(
+                                reservation.menuItemId(), reservation.quantity(), reservation.quantity(), LocalDateTime.now(clock))
+                        .flatMap(entity -> eventOutbox.append(new ShelfEventDto(EventType.TAKE, reservation.menuItemId(), reservation.quantity()))
+                                .thenReturn(entity)))
+                .map(ShelfDto::from)
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of Confirm action on reservation {}. Error Message: {}",
+                              input.reservationId(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+}
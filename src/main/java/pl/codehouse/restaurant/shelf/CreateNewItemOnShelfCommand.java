@@ -2,27 +2,26 @@ package pl.codehouse.restaurant.shelf;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import pl.codehouse.commons.ActionEvent;
 import pl.codehouse.commons.ApplicableCommand;
-import pl.codehouse.commons.Command;
 import pl.codehouse.commons.ExecutionResult;
 import reactor.core.publisher.Mono;
 
 @Component
 class CreateNewItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
     private static final Logger log = LoggerFactory.getLogger(CreateNewItemOnShelfCommand.class);
-    private static final int NEW_VERSION = 1;
 
     private final Clock clock;
     private final ShelfRepository repository;
+    private final ShelfEventOutbox eventOutbox;
 
-    CreateNewItemOnShelfCommand(Clock clock, ShelfRepository repository) {
+    CreateNewItemOnShelfCommand(Clock clock, ShelfRepository repository, ShelfEventOutbox eventOutbox) {
         this.clock = clock;
         this.repository = repository;
+        this.eventOutbox = eventOutbox;
     }
 
     @Override
@@ -33,11 +32,12 @@ class CreateNewItemOnShelfCommand implements ApplicableCommand<ActionEvent, Shel
     @Override
     public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
         var input = (CreateNewItemOnShelfAction) context;
-        return repository.existsByMenuItemId(input.menuItemId())
-                .flatMap(handleIfMenuItemExists(input))
-                .map(empty -> createEntity(input))
-                .doOnNext(entity -> log.info("Storing entity after Action >>> {}", entity))
-                .flatMap(repository::save)
+        log.info("Performing `Create` Action on entity: {} >>> Adding {} items", input.menuItemId(), input.quantity());
+        return repository.insertIfAbsent(input.menuItemName(), input.menuItemId(), input.quantity(), LocalDateTime.now(clock))
+                .switchIfEmpty(Mono.error(() -> new ShelfConflictException("Following menu item already exists %s on shelf".formatted(input.menuItemId()))))
+                .doOnNext(entity -> log.info("Stored entity after Action >>> {}", entity))
+                .flatMap(entity -> eventOutbox.append(new ShelfEventDto(EventType.NEW, entity.menuItemId(), entity.quantity()))
+                        .thenReturn(entity))
                 .map(ShelfDto::from)
                 .map(ExecutionResult::success)
                 .onErrorResume((error) -> {
@@ -46,23 +46,4 @@ class CreateNewItemOnShelfCommand implements ApplicableCommand<ActionEvent, Shel
                     return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
                 });
     }
-
-    private static Function<Boolean, Mono<? extends Boolean>> handleIfMenuItemExists(CreateNewItemOnShelfAction input) {
-        return menuItemExists -> {
-            if (menuItemExists) {
-                return Mono.error(new IllegalStateException("Following menu item already exists %s on shelf".formatted(input.menuItemId())));
-            }
-            return Mono.just(true);
-        };
-    }
-
-    private ShelfEntity createEntity(CreateNewItemOnShelfAction input) {
-        var menuItemId = input.menuItemId();
-        var menuItemName = input.menuItemName();
-        var newQuantity = input.quantity();
-        var updateAt = LocalDateTime.now(clock);
-
-        log.info("Performing `Create` Action on entity: {} >>> Adding {} items", menuItemId, newQuantity);
-        return new ShelfEntity(0, menuItemName, menuItemId, newQuantity, NEW_VERSION, updateAt);
-    }
 }
@@ -18,5 +18,18 @@ public enum EventType {
     /**
      * Indicates that some quantity of an item has been taken from the shelf.
      */
-    TAKE
+    TAKE;
+
+    /**
+     * Maps the type of update performed on a shelf item onto the matching event type.
+     *
+     * @param updateType The type of update performed on the shelf item.
+     * @return The event type describing the update.
+     */
+    public static EventType of(UpdateType updateType) {
+        return switch (updateType) {
+            case ADD -> ADD;
+            case TAKE -> TAKE;
+        };
+    }
 }
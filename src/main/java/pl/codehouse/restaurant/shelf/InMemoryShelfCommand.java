@@ -0,0 +1,8 @@
+package pl.codehouse.restaurant.shelf;
+
+/**
+ * Marks commands operating on the in-memory inventory. Their changes are persisted asynchronously,
+ * so they are executed without opening a database transaction.
+ */
+interface InMemoryShelfCommand {
+}
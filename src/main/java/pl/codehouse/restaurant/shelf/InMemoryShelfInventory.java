@@ -0,0 +1,265 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Authoritative in-memory shelf inventory of this node. Quantities are changed with compare-and-set on per item state,
+ * so a TAKE never drops an item below zero without any lock on the hot path. Each change is written to the
+ * {@link ShelfJournal} before it is acknowledged and is persisted to the database later by the {@link ShelfInventoryFlusher}.
+ *
+ * <p>The mode assumes this node is the only writer of the shelf table.</p>
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.IN_MEMORY_MODE)
+class InMemoryShelfInventory implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryShelfInventory.class);
+
+    private final ShelfRepository repository;
+    private final ShelfJournal journal;
+    private final Map<Integer, Item> items = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyMenuItemIds = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedDeque<ShelfEventDto> pendingEvents = new ConcurrentLinkedDeque<>();
+    // appends share the read lock, rotating the journal for a flush takes the write lock
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    InMemoryShelfInventory(ShelfRepository repository, ShelfEngineProperties properties) {
+        this.repository = repository;
+        this.journal = new ShelfJournal(properties.journalDirectory(), properties.journalSync());
+    }
+
+    record State(int quantity, long version) {
+    }
+
+    record Item(String menuItemName, int menuItemId, AtomicReference<State> state) {
+
+        static Item from(ShelfEntity entity) {
+            return new Item(entity.menuItemName(), entity.menuItemId(), new AtomicReference<>(new State(entity.quantity(), entity.version())));
+        }
+
+        ShelfDto toDto() {
+            State current = state.get();
+            return new ShelfDto(menuItemName, menuItemId, current.quantity(), current.version());
+        }
+    }
+
+    /**
+     * Changes accumulated since the previous flush, together with the journal segments they are recorded in.
+     */
+    record FlushBatch(List<ShelfDto> items, List<ShelfEventDto> events, List<Path> segments) {
+
+        boolean isEmpty() {
+            return items.isEmpty() && events.isEmpty();
+        }
+    }
+
+    /**
+     * Loads the inventory from the database and replays journal entries that were not persisted before the last shutdown.
+     */
+    void recover() {
+        repository.findAll()
+                .doOnNext(this::register)
+                .then()
+                .block();
+        int replayed = 0;
+        for (ShelfJournal.Entry entry : journal.readAll()) {
+            Item item = items.get(entry.menuItemId());
+            if (item == null || item.state().get().version() >= entry.version()) {
+                continue;
+            }
+            item.state().set(new State(entry.quantity(), entry.version()));
+            dirtyMenuItemIds.add(entry.menuItemId());
+            pendingEvents.add(new ShelfEventDto(entry.eventType(), entry.menuItemId(), entry.eventQuantity()));
+            replayed++;
+        }
+        log.info("Recovered in-memory shelf inventory of {} menu item(s), replayed {} journal entry(ies)", items.size(), replayed);
+    }
+
+    ShelfDto register(ShelfEntity entity) {
+        return items.computeIfAbsent(entity.menuItemId(), id -> Item.from(entity)).toDto();
+    }
+
+    Mono<ShelfDto> find(int menuItemId) {
+        Item item = items.get(menuItemId);
+        if (item != null) {
+            return Mono.just(item.toDto());
+        }
+        return repository.findByMenuItemId(menuItemId)
+                .map(this::register);
+    }
+
+    Flux<ShelfDto> findAvailable() {
+        return repository.findAll()
+                .map(this::register)
+                .filter(item -> item.quantity() > 0);
+    }
+
+    /**
+     * Finds the next page of items available by their in-memory quantity, starting after the given menu item id.
+     * Rows of the shelf table are read page by page whatever their persisted quantity, until the page is filled.
+     */
+    Flux<ShelfDto> findAvailableAfter(int after, int limit) {
+        return repository.findAfter(after, limit)
+                .collectList()
+                .expand(rows -> rows.size() < limit ? Mono.empty() : repository.findAfter(rows.getLast().menuItemId(), limit).collectList())
+                .concatMapIterable(Function.identity())
+                .map(this::register)
+                .filter(item -> item.quantity() > 0)
+                .take(limit);
+    }
+
+    /**
+     * Applies a signed quantity delta to the menu item and journals the change.
+     */
+    Mono<ShelfDto> apply(int menuItemId, int delta, EventType eventType, int eventQuantity) {
+        return item(menuItemId)
+                .publishOn(Schedulers.boundedElastic())
+                .map(item -> {
+                    journalLock.readLock().lock();
+                    try {
+                        State updated = tryApply(item, delta);
+                        if (updated == null) {
+                            int missingItems = -delta - item.state().get().quantity();
+                            throw new InsufficientStockException("Missing %d item(s) of %s from shelf".formatted(missingItems, menuItemId));
+                        }
+                        record(item, updated, new ShelfEventDto(eventType, menuItemId, eventQuantity));
+                        return new ShelfDto(item.menuItemName(), menuItemId, updated.quantity(), updated.version());
+                    } finally {
+                        journalLock.readLock().unlock();
+                    }
+                });
+    }
+
+    /**
+     * Applies signed quantity deltas to several menu items, either all of them or none.
+     * The batch holds the journal write lock, which excludes every other change, so all menu items are checked before
+     * any of them is changed and no concurrent TAKE can consume a quantity the batch would have to give back.
+     * Each menu item is checked against the lowest running total of its updates, as an ADD must not cover an earlier TAKE.
+     * One event with the net quantity is recorded per menu item.
+     */
+    Mono<List<ShelfDto>> applyAll(ShelfBatchDeltas deltas) {
+        return Flux.fromIterable(deltas.menuItemIds())
+                .concatMap(this::item)
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .map(loaded -> {
+                    journalLock.writeLock().lock();
+                    try {
+                        for (Item item : loaded) {
+                            if (item.state().get().quantity() + deltas.lowestDelta(item.menuItemId()) < 0) {
+                                throw new InsufficientStockException(
+                                        "Missing menu item(s) [%s] on shelf or not enough quantity available".formatted(item.menuItemId()));
+                            }
+                        }
+                        List<ShelfDto> result = new ArrayList<>(loaded.size());
+                        for (Item item : loaded) {
+                            int delta = deltas.delta(item.menuItemId());
+                            State current = item.state().get();
+                            State updated = new State(current.quantity() + delta, current.version() + 1);
+                            item.state().set(updated);
+                            record(item, updated, new ShelfEventDto(delta < 0 ? EventType.TAKE : EventType.ADD, item.menuItemId(), Math.abs(delta)));
+                            result.add(new ShelfDto(item.menuItemName(), item.menuItemId(), updated.quantity(), updated.version()));
+                        }
+                        return result;
+                    } finally {
+                        journalLock.writeLock().unlock();
+                    }
+                });
+    }
+
+    /**
+     * Takes all changes recorded since the previous flush and rotates the journal, so the returned segments
+     * can be deleted once the batch is persisted.
+     */
+    FlushBatch drain() {
+        journalLock.writeLock().lock();
+        try {
+            if (dirtyMenuItemIds.isEmpty() && pendingEvents.isEmpty()) {
+                return new FlushBatch(List.of(), List.of(), List.of());
+            }
+            List<ShelfDto> dirtyItems = new ArrayList<>();
+            for (Integer menuItemId : List.copyOf(dirtyMenuItemIds)) {
+                dirtyMenuItemIds.remove(menuItemId);
+                dirtyItems.add(items.get(menuItemId).toDto());
+            }
+            List<ShelfEventDto> events = new ArrayList<>();
+            for (ShelfEventDto event = pendingEvents.poll(); event != null; event = pendingEvents.poll()) {
+                events.add(event);
+            }
+            return new FlushBatch(dirtyItems, events, journal.rotate());
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts back a batch that failed to be persisted, its journal segments are kept until a later flush succeeds.
+     */
+    void restore(FlushBatch batch) {
+        batch.items().forEach(item -> dirtyMenuItemIds.add(item.menuItemId()));
+        List<ShelfEventDto> events = batch.events();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            pendingEvents.addFirst(events.get(i));
+        }
+    }
+
+    void deleteJournal(Collection<Path> segments) {
+        journal.delete(List.copyOf(segments));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        journal.close();
+    }
+
+    private Mono<Item> item(int menuItemId) {
+        Item item = items.get(menuItemId);
+        if (item != null) {
+            return Mono.just(item);
+        }
+        // items created after the start of the node are loaded on their first use
+        return repository.findByMenuItemId(menuItemId)
+                .map(entity -> items.computeIfAbsent(menuItemId, id -> Item.from(entity)))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Missing Menu item by id %s on shelf".formatted(menuItemId))));
+    }
+
+    private static State tryApply(Item item, int delta) {
+        while (true) {
+            State current = item.state().get();
+            int quantity = current.quantity() + delta;
+            if (quantity < 0) {
+                return null;
+            }
+            State updated = new State(quantity, current.version() + 1);
+            if (item.state().compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // callers hold the journal lock, so the change and its journal entry end up in the same flush batch
+    private void record(Item item, State updated, ShelfEventDto event) {
+        journal.append(new ShelfJournal.Entry(item.menuItemId(), updated.quantity(), updated.version(), event.eventType(), event.quantity()));
+        dirtyMenuItemIds.add(item.menuItemId());
+        pendingEvents.add(event);
+    }
+}
@@ -0,0 +1,56 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.IN_MEMORY_MODE)
+class InMemoryShelfQueryService implements ShelfQueryService {
+    private final InMemoryShelfInventory inventory;
+    private final ShelfRepository shelfRepository;
+
+    InMemoryShelfQueryService(InMemoryShelfInventory inventory, ShelfRepository shelfRepository) {
+        this.inventory = inventory;
+        this.shelfRepository = shelfRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<ShelfDto> findByMenuItemId(int menuItemId) {
+        return inventory.find(menuItemId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<List<ShelfDto>> findAllAvailableItems() {
+        return inventory.findAvailable().collectList();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Flux<ShelfDto> streamAvailableItems() {
+        return inventory.findAvailable();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<List<ShelfDto>> findAvailableItemsPage(int after, int limit) {
+        return inventory.findAvailableAfter(after, limit)
+                .collectList();
+    }
+
+    /**
+     * Changes are read from the shelf table, so they trail the in-memory inventory by at most one flush interval.
+     */
+    @Override
+    public Mono<ShelfChangesDto> findChangesSince(long sinceVersion, int limit) {
+        return shelfRepository.findChangedAfter(sinceVersion, limit)
+                .collectList()
+                .map(changes -> ShelfChangesDto.from(changes, sinceVersion));
+    }
+}
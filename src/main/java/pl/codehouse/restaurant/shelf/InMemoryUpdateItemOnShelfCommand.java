@@ -0,0 +1,49 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.IN_MEMORY_MODE)
+class InMemoryUpdateItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto>, InMemoryShelfCommand {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryUpdateItemOnShelfCommand.class);
+
+    private final InMemoryShelfInventory inventory;
+
+    InMemoryUpdateItemOnShelfCommand(InMemoryShelfInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof UpdateItemOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
+        var input = (UpdateItemOnShelfAction) context;
+        return Mono.fromCallable(() -> quantityDelta(input))
+                .flatMap(delta -> inventory.apply(input.menuItemId(), delta, EventType.of(input.updateType()), input.quantity()))
+                .doOnNext(item -> log.debug("Updated in-memory item after Action >>> {}", item))
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of Update Type action {} on {}. Error Message: {}",
+                              input.updateType(), input.menuItemId(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+
+    private static int quantityDelta(UpdateItemOnShelfAction input) {
+        return switch (input.updateType()) {
+            case ADD -> input.quantity();
+            case TAKE -> -input.quantity();
+            case null -> throw new IllegalStateException("Missing update type for menu item %s".formatted(input.menuItemId()));
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.IN_MEMORY_MODE)
+class InMemoryUpdateItemsOnShelfCommand implements ApplicableCommand<ActionEvent, List<ShelfDto>>, InMemoryShelfCommand {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryUpdateItemsOnShelfCommand.class);
+
+    private final InMemoryShelfInventory inventory;
+
+    InMemoryUpdateItemsOnShelfCommand(InMemoryShelfInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof UpdateItemsOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<List<ShelfDto>>> execute(ActionEvent context) {
+        var input = (UpdateItemsOnShelfAction) context;
+        return Mono.fromCallable(() -> ShelfBatchDeltas.of(input))
+                .flatMap(inventory::applyAll)
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of batch Update action on {} item(s). Error Message: {}",
+                              input.items().size(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+}
@@ -0,0 +1,11 @@
+package pl.codehouse.restaurant.shelf;
+
+/**
+ * Thrown when a shelf action asks for more items than are available on the shelf.
+ */
+class InsufficientStockException extends IllegalStateException {
+
+    InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the shelf from the snapshot kept in the shelf table plus the tail of ledger entries not folded into it yet.
+ * The changes feed is stamped on writes of the shelf table, so it follows the ledger with the delay of the snapshotter.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.LEDGER_MODE)
+class LedgerShelfQueryService implements ShelfQueryService {
+    private final ShelfLedgerRepository ledgerRepository;
+    private final ShelfRepository shelfRepository;
+    private final ShelfCache shelfCache;
+
+    LedgerShelfQueryService(ShelfLedgerRepository ledgerRepository, ShelfRepository shelfRepository, ShelfCache shelfCache) {
+        this.ledgerRepository = ledgerRepository;
+        this.shelfRepository = shelfRepository;
+        this.shelfCache = shelfCache;
+    }
+
+    @Override
+    public Mono<ShelfDto> findByMenuItemId(int menuItemId) {
+        return shelfCache.getByMenuItemId(menuItemId, id -> ledgerRepository.findCurrentByMenuItemId(id)
+                .map(ShelfDto::from));
+    }
+
+    @Override
+    public Mono<List<ShelfDto>> findAllAvailableItems() {
+        return shelfCache.getAvailableItems(() -> ledgerRepository.findCurrentByQuantityAbove(0)
+                .map(ShelfDto::from)
+                .collectList());
+    }
+
+    @Override
+    public Flux<ShelfDto> streamAvailableItems() {
+        return ledgerRepository.findCurrentByQuantityAbove(0)
+                .map(ShelfDto::from);
+    }
+
+    @Override
+    public Mono<List<ShelfDto>> findAvailableItemsPage(int after, int limit) {
+        return ledgerRepository.findCurrentAvailableAfter(after, limit)
+                .map(ShelfDto::from)
+                .collectList();
+    }
+
+    @Override
+    public Mono<ShelfChangesDto> findChangesSince(long sinceVersion, int limit) {
+        return shelfRepository.findChangedAfter(sinceVersion, limit)
+                .collectList()
+                .map(changes -> ShelfChangesDto.from(changes, sinceVersion));
+    }
+}
@@ -0,0 +1,77 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.LEDGER_MODE)
+class LedgerUpdateItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
+    private static final Logger log = LoggerFactory.getLogger(LedgerUpdateItemOnShelfCommand.class);
+
+    private final Clock clock;
+    private final ShelfLedgerRepository ledgerRepository;
+    private final ShelfEventOutbox eventOutbox;
+
+    LedgerUpdateItemOnShelfCommand(Clock clock, ShelfLedgerRepository ledgerRepository, ShelfEventOutbox eventOutbox) {
+        this.clock = clock;
+        this.ledgerRepository = ledgerRepository;
+        this.eventOutbox = eventOutbox;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof UpdateItemOnShelfAction;
+    }
+
+    /**
+     * Appends are serialized per menu item until the end of the transaction, so two TAKEs cannot both pass the availability
+     * check against the same state and no two appends report the same version. The lock is taken by its own statement,
+     * as the append has to see the entries committed while it was waiting.
+     */
+    @Override
+    public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
+        var input = (UpdateItemOnShelfAction) context;
+        return Mono.fromCallable(() -> quantityDelta(input))
+                .flatMap(delta -> ledgerRepository.lockMenuItem(input.menuItemId())
+                        .then(Mono.defer(() -> ledgerRepository.appendIfAvailable(input.menuItemId(), delta, LocalDateTime.now(clock)))))
+                .switchIfEmpty(Mono.defer(() -> rejectUpdate(input)))
+                .doOnNext(entity -> log.info("Appended ledger entry after Action >>> {}", entity))
+                .flatMap(entity -> eventOutbox.append(new ShelfEventDto(EventType.of(input.updateType()), input.menuItemId(), input.quantity()))
+                        .thenReturn(entity))
+                .map(ShelfDto::from)
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of Update Type action {} on {}. Error Message: {}",
+                              input.updateType(), input.menuItemId(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+
+    /**
+     * Resolves why the conditional append did not add any entry. Only executed on the failure path.
+     */
+    private Mono<ShelfEntity> rejectUpdate(UpdateItemOnShelfAction input) {
+        return ledgerRepository.findCurrentByMenuItemId(input.menuItemId())
+                .switchIfEmpty(Mono.error(new IllegalStateException("Missing Menu item by id %s on shelf".formatted(input.menuItemId()))))
+                .flatMap(entity -> {
+                    int remainingItems = input.quantity() - (entity.quantity() - entity.reserved());
+                    return Mono.error(new InsufficientStockException("Missing %d item(s) of %s from shelf".formatted(remainingItems, input.menuItemId())));
+                });
+    }
+
+    private static int quantityDelta(UpdateItemOnShelfAction input) {
+        return switch (input.updateType()) {
+            case ADD -> input.quantity();
+            case TAKE -> -input.quantity();
+            case null -> throw new IllegalStateException("Missing update type for menu item %s".formatted(input.menuItemId()));
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.LEDGER_MODE)
+class LedgerUpdateItemsOnShelfCommand implements ApplicableCommand<ActionEvent, List<ShelfDto>> {
+    private static final Logger log = LoggerFactory.getLogger(LedgerUpdateItemsOnShelfCommand.class);
+
+    private final Clock clock;
+    private final ShelfLedgerRepository ledgerRepository;
+    private final ShelfEventOutbox eventOutbox;
+
+    LedgerUpdateItemsOnShelfCommand(Clock clock, ShelfLedgerRepository ledgerRepository, ShelfEventOutbox eventOutbox) {
+        this.clock = clock;
+        this.ledgerRepository = ledgerRepository;
+        this.eventOutbox = eventOutbox;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof UpdateItemsOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<List<ShelfDto>>> execute(ActionEvent context) {
+        var input = (UpdateItemsOnShelfAction) context;
+        return Mono.fromCallable(() -> ShelfBatchDeltas.of(input))
+                .doOnNext(deltas -> log.info("Performing batch Action on {} menu item(s) >>> {}", deltas.size(), deltas))
+                .flatMap(deltas -> lockMenuItems(deltas)
+                        .then(Mono.defer(() -> ledgerRepository.appendAllIfAvailable(
+                                        deltas.menuItemIdArray(),
+                                        deltas.deltaArray(),
+                                        deltas.lowestDeltaArray(),
+                                        LocalDateTime.now(clock))
+                                .collectList()))
+                        .flatMap(entities -> validateAllItemsAppended(entities, deltas.menuItemIds())))
+                .doOnNext(entities -> log.info("Appended {} ledger entries after batch Action", entities.size()))
+                .flatMap(entities -> eventOutbox.appendAll(toEvents(input)).thenReturn(entities))
+                .map(entities -> entities.stream().map(ShelfDto::from).toList())
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of batch Update action on {} item(s). Error Message: {}",
+                              input.items().size(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+
+    /**
+     * All menu items of the batch are locked, as every append derives the version of its menu item from the entries it sees.
+     * They are locked in the order of their menu item ids, so concurrent batches never wait on each other in a cycle.
+     */
+    private Mono<Void> lockMenuItems(ShelfBatchDeltas deltas) {
+        return Flux.fromIterable(deltas.menuItemIds())
+                .concatMap(ledgerRepository::lockMenuItem)
+                .then();
+    }
+
+    private static List<ShelfEventDto> toEvents(UpdateItemsOnShelfAction input) {
+        return input.items().stream()
+                .map(item -> new ShelfEventDto(EventType.of(item.updateType()), item.menuItemId(), item.quantity()))
+                .toList();
+    }
+
+    private static Mono<List<ShelfEntity>> validateAllItemsAppended(List<ShelfEntity> entities, Set<Integer> menuItemIds) {
+        if (entities.size() == menuItemIds.size()) {
+            return Mono.just(entities);
+        }
+        Set<Integer> appendedMenuItemIds = entities.stream()
+                .map(ShelfEntity::menuItemId)
+                .collect(Collectors.toSet());
+        List<Integer> rejectedMenuItemIds = menuItemIds.stream()
+                .filter(menuItemId -> !appendedMenuItemIds.contains(menuItemId))
+                .toList();
+        return Mono.error(new InsufficientStockException("Missing menu item(s) %s on shelf or not enough quantity available".formatted(rejectedMenuItemIds)));
+    }
+}
@@ -0,0 +1,13 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+import pl.codehouse.commons.ActionEvent;
+
+/**
+ * Represents an action to give the reserved quantity of a menu item back to the shelf.
+ */
+public record ReleaseReservationOnShelfAction(
+        @JsonProperty("reservationId") @NotNull UUID reservationId) implements ActionEvent {
+}
@@ -0,0 +1,56 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ReleaseReservationOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
+    private static final Logger log = LoggerFactory.getLogger(ReleaseReservationOnShelfCommand.class);
+    private static final int NOTHING_TAKEN = 0;
+
+    private final Clock clock;
+    private final ShelfShardRouter shardRouter;
+    private final ShelfReservationRepository reservationRepository;
+
+    ReleaseReservationOnShelfCommand(Clock clock,
+                                     ShelfShardRouter shardRouter,
+                                     ShelfReservationRepository reservationRepository) {
+        this.clock = clock;
+        this.shardRouter = shardRouter;
+        this.reservationRepository = reservationRepository;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof ReleaseReservationOnShelfAction;
+    }
+
+    /**
+     * Gives the reserved items back to the shelf. The quantity on the shelf does not change, so no event is recorded.
+     */
+    @Override
+    public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
+        var input = (ReleaseReservationOnShelfAction) context;
+        return reservationRepository.deleteReturning(input.reservationId())
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Missing reservation %s, it is already settled or expired".formatted(input.reservationId()))))
+                .doOnNext(reservation -> log.info("Performing `Release` Action on entity: {} >>> Releasing {} reserved items", reservation.menuItemId(), reservation.quantity()))
+                .flatMap(reservation -> shardRouter.settleReservation(
+                        reservation.menuItemId(), reservation.quantity(), NOTHING_TAKEN, LocalDateTime.now(clock)))
+                .map(ShelfDto::from)
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of Release action on reservation {}. Error Message: {}",
+                              input.reservationId(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+}
@@ -0,0 +1,124 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hierarchical timing wheel keeping the deadlines of outstanding reservations.
+ * Scheduling and expiring a reservation costs O(1) regardless of the number of outstanding reservations:
+ * each level is a ring of buckets spanning {@code wheelSize} ticks of the level below, and reservations due in a far
+ * bucket are cascaded to the lower levels once their bucket comes up.
+ *
+ * <p>Reservations settled before their deadline are not removed, releasing them on expiry is a no-op.</p>
+ */
+@Component
+class ReservationTimingWheel {
+    private final Clock clock;
+    private final Level root;
+
+    ReservationTimingWheel(Clock clock, ShelfReservationProperties properties) {
+        this.clock = clock;
+        long tickMillis = properties.tick().toMillis();
+        this.root = new Level(tickMillis, properties.wheelSize(), Math.floorDiv(clock.millis(), tickMillis) * tickMillis);
+    }
+
+    record Hold(UUID reservationId, long deadlineMillis) {
+    }
+
+    /**
+     * Schedules the reservation to expire at the given deadline.
+     *
+     * @return false when the deadline has already passed and the reservation is due immediately.
+     */
+    synchronized boolean schedule(UUID reservationId, long deadlineMillis) {
+        return root.add(new Hold(reservationId, deadlineMillis));
+    }
+
+    /**
+     * Moves the wheel to the current time.
+     *
+     * @return the reservations whose deadline has passed since the previous advance.
+     */
+    synchronized List<UUID> advance() {
+        List<UUID> expired = new ArrayList<>();
+        root.advanceTo(clock.millis(), expired);
+        return expired;
+    }
+
+    private static final class Level {
+        private final long tickMillis;
+        private final int wheelSize;
+        private final ArrayDeque<Hold>[] buckets;
+        // start of the next bucket to be expired (root) or cascaded to the level below (overflow levels)
+        private long currentTime;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMillis, int wheelSize, long currentTime) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+        }
+
+        private boolean add(Hold hold) {
+            if (hold.deadlineMillis() < currentTime) {
+                return false;
+            }
+            if (hold.deadlineMillis() < currentTime + tickMillis * wheelSize) {
+                buckets[bucketOf(hold.deadlineMillis())].add(hold);
+                return true;
+            }
+            if (overflow == null) {
+                long overflowTick = tickMillis * wheelSize;
+                overflow = new Level(overflowTick, wheelSize, Math.floorDiv(currentTime, overflowTick) * overflowTick + overflowTick);
+            }
+            return overflow.add(hold);
+        }
+
+        /**
+         * Expires all buckets of the root level that ended before the given time.
+         */
+        private void advanceTo(long now, List<UUID> expired) {
+            while (currentTime + tickMillis <= now) {
+                if (overflow != null) {
+                    overflow.cascadeTo(currentTime, this);
+                }
+                ArrayDeque<Hold> bucket = buckets[bucketOf(currentTime)];
+                for (Hold hold = bucket.poll(); hold != null; hold = bucket.poll()) {
+                    expired.add(hold.reservationId());
+                }
+                currentTime += tickMillis;
+            }
+        }
+
+        /**
+         * Moves holds of all buckets starting at or before the given time of the level below down the hierarchy.
+         */
+        private void cascadeTo(long lowerTime, Level root) {
+            while (currentTime <= lowerTime) {
+                if (overflow != null) {
+                    overflow.cascadeTo(currentTime, root);
+                }
+                ArrayDeque<Hold> bucket = buckets[bucketOf(currentTime)];
+                for (Hold hold = bucket.poll(); hold != null; hold = bucket.poll()) {
+                    if (!root.add(hold)) {
+                        root.buckets[root.bucketOf(root.currentTime)].add(hold);
+                    }
+                }
+                currentTime += tickMillis;
+            }
+        }
+
+        private int bucketOf(long timeMillis) {
+            return (int) Math.floorMod(Math.floorDiv(timeMillis, tickMillis), (long) wheelSize);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+import pl.codehouse.commons.ActionEvent;
+
+/**
+ * Represents an action to hold a quantity of a menu item on the shelf for a limited time.
+ * The reserved quantity is not available to other TAKE actions until the reservation is confirmed, released or expired.
+ */
+public record ReserveItemOnShelfAction(
+        @JsonProperty("reservationId") @NotNull UUID reservationId,
+        @JsonProperty("menuItemId") @Min(1) int menuItemId,
+        @JsonProperty("quantity") @Min(1) int quantity) implements ActionEvent {
+}
@@ -0,0 +1,82 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ReserveItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
+    private static final Logger log = LoggerFactory.getLogger(ReserveItemOnShelfCommand.class);
+
+    private final Clock clock;
+    private final ShelfReservationRepository reservationRepository;
+    private final ReservationTimingWheel timingWheel;
+    private final ShelfShardRouter shardRouter;
+    private final ShelfReservationProperties properties;
+
+    ReserveItemOnShelfCommand(Clock clock,
+                              ShelfReservationRepository reservationRepository,
+                              ReservationTimingWheel timingWheel,
+                              ShelfShardRouter shardRouter,
+                              ShelfReservationProperties properties) {
+        this.clock = clock;
+        this.reservationRepository = reservationRepository;
+        this.timingWheel = timingWheel;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof ReserveItemOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
+        var input = (ReserveItemOnShelfAction) context;
+        var now = LocalDateTime.now(clock);
+        var expiresAt = now.plus(properties.holdDuration());
+        log.info("Performing `Reserve` Action on entity: {} >>> Reserving {} items until {}", input.menuItemId(), input.quantity(), expiresAt);
+        // reserved items are held by the shelf row, so the items spread over the shards of a hot menu item are moved back to it first
+        Mono<Void> consolidated = shardRouter.isSharded(input.menuItemId()) ? shardRouter.consolidate(input.menuItemId(), now) : Mono.empty();
+        return consolidated
+                .then(Mono.defer(() -> shardRouter.reserveIfAvailable(input.menuItemId(), input.quantity(), now)))
+                .switchIfEmpty(Mono.defer(() -> retryOnSplitItem(input, now)))
+                .switchIfEmpty(Mono.defer(() -> rejectReservation(input)))
+                .flatMap(entity -> reservationRepository.insertIfAbsent(input.reservationId(), input.menuItemId(), input.quantity(), expiresAt, now)
+                        .switchIfEmpty(Mono.error(() -> new ShelfConflictException("Following reservation already exists %s".formatted(input.reservationId()))))
+                        .thenReturn(entity))
+                .doOnNext(entity -> timingWheel.schedule(input.reservationId(), expiresAt.atZone(clock.getZone()).toInstant().toEpochMilli()))
+                .map(ShelfDto::from)
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of Reserve action {} on {}. Error Message: {}",
+                              input.reservationId(), input.menuItemId(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+
+    /**
+     * The menu item may have been split into shards by another node since the last refresh, leaving too few items
+     * on its shelf row. In that case its shards are moved back to the shelf row and the reservation is retried once.
+     */
+    private Mono<ShelfEntity> retryOnSplitItem(ReserveItemOnShelfAction input, LocalDateTime now) {
+        return shardRouter.consolidateIfSplit(input.menuItemId(), now)
+                .filter(Boolean::booleanValue)
+                .flatMap(consolidated -> shardRouter.reserveIfAvailable(input.menuItemId(), input.quantity(), now));
+    }
+
+    private Mono<ShelfEntity> rejectReservation(ReserveItemOnShelfAction input) {
+        return shardRouter.findByMenuItemId(input.menuItemId())
+                .switchIfEmpty(Mono.error(new IllegalStateException("Missing Menu item by id %s on shelf".formatted(input.menuItemId()))))
+                .flatMap(entity -> Mono.error(new InsufficientStockException("Not enough items of %s available to reserve %d item(s)".formatted(input.menuItemId(), input.quantity()))));
+    }
+}
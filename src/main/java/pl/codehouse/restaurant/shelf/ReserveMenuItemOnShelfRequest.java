@@ -0,0 +1,16 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+
+/**
+ * Represents a request to reserve a quantity of a menu item on the shelf.
+ * The reservation id is chosen by the client, so a retried request cannot reserve the quantity twice.
+ */
+public record ReserveMenuItemOnShelfRequest(
+        @JsonProperty("reservationId") @NotNull UUID reservationId,
+        @JsonProperty("quantity") @Min(1) int quantity
+) {
+}
@@ -0,0 +1,68 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import pl.codehouse.commons.ActionEvent;
+
+/**
+ * Groups actions of one polled batch by menu item and merges consecutive quantity updates of the same type and menu item
+ * into a single update carrying their total quantity. ADDs and TAKEs are never netted against each other, so every write
+ * is still a change of the shelf with its own event. The order of actions within one menu item is preserved,
+ * a create action ends the run of updates before it.
+ */
+final class ShelfActionCoalescer {
+
+    private ShelfActionCoalescer() {
+    }
+
+    static Collection<List<Write>> coalesce(List<? extends ActionEvent> actions) {
+        Map<Integer, List<Write>> writesByMenuItemId = new LinkedHashMap<>();
+        for (ActionEvent action : actions) {
+            switch (action) {
+                case UpdateItemOnShelfAction update -> mergeUpdate(writesByMenuItemId.computeIfAbsent(update.menuItemId(), id -> new ArrayList<>()), update);
+                case CreateNewItemOnShelfAction create -> writesByMenuItemId.computeIfAbsent(create.menuItemId(), id -> new ArrayList<>())
+                        .add(Write.of(create));
+                default -> throw new IllegalArgumentException("Missing configuration for the following action: " + action);
+            }
+        }
+        return writesByMenuItemId.values();
+    }
+
+    private static void mergeUpdate(List<Write> itemWrites, UpdateItemOnShelfAction update) {
+        int lastIndex = itemWrites.size() - 1;
+        if (lastIndex >= 0
+                && itemWrites.get(lastIndex).action() instanceof UpdateItemOnShelfAction previous
+                && previous.updateType() == update.updateType()) {
+            var merged = new UpdateItemOnShelfAction(update.menuItemId(), update.updateType(), previous.quantity() + update.quantity());
+            itemWrites.set(lastIndex, itemWrites.get(lastIndex).mergedWith(merged, update));
+            return;
+        }
+        itemWrites.add(Write.of(update));
+    }
+
+    /**
+     * One write on the shelf.
+     *
+     * @param action  The action applied by the write.
+     * @param actions The consumed actions merged into the write, in their order.
+     */
+    record Write(ActionEvent action, List<ActionEvent> actions) {
+
+        static Write of(ActionEvent action) {
+            return new Write(action, List.of(action));
+        }
+
+        boolean isMerged() {
+            return actions.size() > 1;
+        }
+
+        private Write mergedWith(ActionEvent merged, ActionEvent next) {
+            List<ActionEvent> mergedActions = new ArrayList<>(actions);
+            mergedActions.add(next);
+            return new Write(merged, mergedActions);
+        }
+    }
+}
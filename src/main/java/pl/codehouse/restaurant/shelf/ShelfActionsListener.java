@@ -0,0 +1,103 @@
+package pl.codehouse.restaurant.shelf;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Consumes create and update actions in batches from the shelf commands topic.
+ * Each consumer thread owns its share of partitions; within a polled batch, consecutive updates of the same type and
+ * menu item are merged into one write and different menu items are updated in parallel. Offsets are committed once
+ * the whole batch has been processed.
+ */
+@Component
+class ShelfActionsListener {
+    private static final Logger log = LoggerFactory.getLogger(ShelfActionsListener.class);
+
+    private final ShelfService shelfService;
+    private final Validator validator;
+    private final ShelfCommandsKafkaProperties properties;
+
+    ShelfActionsListener(ShelfService shelfService, Validator validator, ShelfCommandsKafkaProperties properties) {
+        this.shelfService = shelfService;
+        this.validator = validator;
+        this.properties = properties;
+    }
+
+    @KafkaListener(
+            id = "shelfActionsListener",
+            topics = "${app.kafka.shelf.commands.topic-name}",
+            concurrency = "${app.kafka.shelf.commands.concurrency}",
+            batch = "true")
+    void onActions(List<ConsumerRecord<String, ActionEvent>> records) {
+        List<ActionEvent> actions = records.stream()
+                .map(ConsumerRecord::value)
+                .filter(Objects::nonNull)
+                .toList();
+        if (actions.size() < records.size()) {
+            log.warn("Skipping {} record(s) of the batch that could not be deserialized", records.size() - actions.size());
+        }
+        // the payloads do not pass the bean validation of the REST API, e.g. a negative TAKE would be merged as an ADD
+        List<ActionEvent> validActions = actions.stream()
+                .filter(this::isValid)
+                .toList();
+
+        var writesByMenuItem = ShelfActionCoalescer.coalesce(validActions);
+        log.info("Consumed {} shelf action(s), applying them as {} write(s) on {} menu item(s)",
+                 validActions.size(), writesByMenuItem.stream().mapToInt(List::size).sum(), writesByMenuItem.size());
+
+        Flux.fromIterable(writesByMenuItem)
+                .flatMap(itemWrites -> Flux.fromIterable(itemWrites).concatMap(this::apply), properties.parallelism())
+                .then()
+                .block();
+    }
+
+    /**
+     * A rejected merged write is not lost: its actions are applied again one by one, so the ones the shelf can satisfy
+     * are still applied.
+     */
+    private Mono<ShelfDto> apply(ShelfActionCoalescer.Write write) {
+        if (!write.isMerged()) {
+            return applyOrSkip(write.action());
+        }
+        return shelfService.action(write.action())
+                .onErrorResume(ShelfFailures::isRejected, error -> {
+                    log.warn("Merged shelf action {} rejected, applying its {} action(s) one by one. Error Message: {}",
+                             write.action(), write.actions().size(), error.getMessage());
+                    return Flux.fromIterable(write.actions())
+                            .concatMap(this::applyOrSkip)
+                            .then(Mono.empty());
+                });
+    }
+
+    /**
+     * Rejected actions (not enough items on the shelf, conflicting create) are logged and skipped, so they cannot block
+     * the partition. Any other failure fails the batch, so it is redelivered without committing the offsets.
+     */
+    private Mono<ShelfDto> applyOrSkip(ActionEvent action) {
+        return shelfService.action(action)
+                .onErrorResume(ShelfFailures::isRejected, error -> {
+                    log.error("Skipping rejected shelf action {}. Error Message: {}", action, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private boolean isValid(ActionEvent action) {
+        Set<ConstraintViolation<ActionEvent>> violations = validator.validate(action);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        log.error("Skipping invalid shelf action {}. Violations: {}", action, violations);
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Quantity updates of a batch summed up per menu item, so that each menu item is written once, sorted by menu item id.
+ * Besides the net delta, the lowest running total of the updates of each menu item in the order of the batch is kept:
+ * the batch is only applicable when the quantity not held by reservations covers it, so an ADD never covers an earlier
+ * TAKE of the same menu item.
+ */
+final class ShelfBatchDeltas {
+
+    private final SortedMap<Integer, Integer> deltas;
+    private final SortedMap<Integer, Integer> lowestDeltas;
+
+    private ShelfBatchDeltas(SortedMap<Integer, Integer> deltas, SortedMap<Integer, Integer> lowestDeltas) {
+        this.deltas = deltas;
+        this.lowestDeltas = lowestDeltas;
+    }
+
+    static ShelfBatchDeltas of(UpdateItemsOnShelfAction action) {
+        SortedMap<Integer, Integer> deltas = new TreeMap<>();
+        SortedMap<Integer, Integer> lowestDeltas = new TreeMap<>();
+        for (UpdateItemOnShelfAction item : action.items()) {
+            int runningDelta = deltas.merge(item.menuItemId(), quantityDelta(item), Integer::sum);
+            lowestDeltas.merge(item.menuItemId(), runningDelta, Math::min);
+        }
+        return new ShelfBatchDeltas(deltas, lowestDeltas);
+    }
+
+    static int quantityDelta(UpdateItemOnShelfAction item) {
+        return switch (item.updateType()) {
+            case ADD -> item.quantity();
+            case TAKE -> -item.quantity();
+            case null -> throw new IllegalStateException("Missing update type for menu item %s".formatted(item.menuItemId()));
+        };
+    }
+
+    /**
+     * @return the deltas of the given menu items only, menu items not part of the batch are ignored.
+     */
+    ShelfBatchDeltas only(Collection<Integer> menuItemIds) {
+        SortedMap<Integer, Integer> selectedDeltas = new TreeMap<>();
+        SortedMap<Integer, Integer> selectedLowestDeltas = new TreeMap<>();
+        for (Integer menuItemId : menuItemIds) {
+            if (deltas.containsKey(menuItemId)) {
+                selectedDeltas.put(menuItemId, deltas.get(menuItemId));
+                selectedLowestDeltas.put(menuItemId, lowestDeltas.get(menuItemId));
+            }
+        }
+        return new ShelfBatchDeltas(selectedDeltas, selectedLowestDeltas);
+    }
+
+    Set<Integer> menuItemIds() {
+        return deltas.keySet();
+    }
+
+    int size() {
+        return deltas.size();
+    }
+
+    boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    int delta(int menuItemId) {
+        return deltas.get(menuItemId);
+    }
+
+    int lowestDelta(int menuItemId) {
+        return lowestDeltas.get(menuItemId);
+    }
+
+    Integer[] menuItemIdArray() {
+        return deltas.keySet().toArray(Integer[]::new);
+    }
+
+    Integer[] deltaArray() {
+        return deltas.values().toArray(Integer[]::new);
+    }
+
+    Integer[] lowestDeltaArray() {
+        return lowestDeltas.values().toArray(Integer[]::new);
+    }
+
+    @Override
+    public String toString() {
+        return deltas.toString();
+    }
+}
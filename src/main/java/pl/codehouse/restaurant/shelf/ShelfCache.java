@@ -0,0 +1,66 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache of resolved shelf items, bounded in size and time (Caffeine uses W-TinyLFU for eviction).
+ * Concurrent reads of the same key share one database query. The committed state of a command is written through
+ * {@link #put(ShelfDto)}, which also drops the cached list of available items. Only the node executing the command
+ * updates its cache, the caches of other nodes are not invalidated and may serve a stale item for up to
+ * {@code expireAfterWrite}.
+ * Hit, miss and eviction rates of both caches are published as {@code cache.*} metrics.
+ */
+@Component
+class ShelfCache {
+    private static final String AVAILABLE_ITEMS_KEY = "availableItems";
+
+    private final AsyncCache<Integer, ShelfDto> itemsByMenuItemId;
+    private final AsyncCache<String, List<ShelfDto>> availableItems;
+
+    ShelfCache(ShelfCacheProperties properties, MeterRegistry meterRegistry) {
+        this.itemsByMenuItemId = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .<Integer, ShelfDto>buildAsync(), "itemsByMenuItemId");
+        this.availableItems = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .<String, List<ShelfDto>>buildAsync(), AVAILABLE_ITEMS_KEY);
+    }
+
+    Mono<ShelfDto> getByMenuItemId(int menuItemId, Function<Integer, Mono<ShelfDto>> loader) {
+        CompletableFuture<ShelfDto> item = itemsByMenuItemId.get(menuItemId, (key, executor) -> loader.apply(key).toFuture());
+        return fromSharedFuture(item);
+    }
+
+    Mono<List<ShelfDto>> getAvailableItems(Supplier<Mono<List<ShelfDto>>> loader) {
+        CompletableFuture<List<ShelfDto>> items = availableItems.get(AVAILABLE_ITEMS_KEY, (key, executor) -> loader.get().toFuture());
+        return fromSharedFuture(items);
+    }
+
+    void put(ShelfDto item) {
+        itemsByMenuItemId.put(item.menuItemId(), CompletableFuture.completedFuture(item));
+        availableItems.synchronous().invalidateAll();
+    }
+
+    void invalidateAll() {
+        itemsByMenuItemId.synchronous().invalidateAll();
+        availableItems.synchronous().invalidateAll();
+    }
+
+    // the future is shared by all concurrent readers, so a cancelled subscriber must not cancel it for the others
+    private static <T> Mono<T> fromSharedFuture(CompletableFuture<T> future) {
+        return Mono.fromFuture(future, true);
+    }
+}
@@ -0,0 +1,21 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the in-memory cache of shelf items.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.cache".</p>
+ *
+ * @param maximumSize       maximum number of menu items kept in the cache.
+ * @param expireAfterWrite  time after which a cached entry is reloaded from the database.
+ */
+@ConfigurationProperties("app.shelf.cache")
+public record ShelfCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration expireAfterWrite
+) {
+}
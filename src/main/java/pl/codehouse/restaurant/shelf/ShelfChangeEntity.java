@@ -0,0 +1,16 @@
+package pl.codehouse.restaurant.shelf;
+
+/**
+ * Projection of a shelf row together with the transaction id of its last write.
+ */
+record ShelfChangeEntity(
+        String menuItemName,
+        int menuItemId,
+        int quantity,
+        long version,
+        long changeXid) {
+
+    ShelfDto toDto() {
+        return new ShelfDto(menuItemName, menuItemId, quantity, version);
+    }
+}
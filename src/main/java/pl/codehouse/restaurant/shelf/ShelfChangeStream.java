@@ -0,0 +1,43 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Multicasts shelf items changed by committed commands of this node to all live subscribers.
+ * Each subscriber gets its own bounded buffer, so a slow client only loses its oldest changes
+ * instead of slowing down the others.
+ */
+@Component
+class ShelfChangeStream {
+    private static final Logger log = LoggerFactory.getLogger(ShelfChangeStream.class);
+    private static final Sinks.EmitFailureHandler RETRY_CONCURRENT_EMISSION = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Sinks.Many<ShelfDto> sink = Sinks.many().multicast().directBestEffort();
+    private final ShelfStreamProperties properties;
+
+    ShelfChangeStream(ShelfStreamProperties properties) {
+        this.properties = properties;
+    }
+
+    void emit(ShelfDto change) {
+        sink.emitNext(change, RETRY_CONCURRENT_EMISSION);
+    }
+
+    void emitAll(List<ShelfDto> changes) {
+        changes.forEach(this::emit);
+    }
+
+    Flux<ShelfDto> changes() {
+        return sink.asFlux()
+                .onBackpressureBuffer(properties.bufferSize(),
+                                      dropped -> log.debug("Dropped shelf change of slow subscriber >>> {}", dropped),
+                                      BufferOverflowStrategy.DROP_OLDEST);
+    }
+}
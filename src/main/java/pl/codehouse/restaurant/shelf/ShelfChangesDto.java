@@ -0,0 +1,19 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing the shelf items changed since a given high-water mark.
+ *
+ * @param items         items changed since the requested high-water mark, ordered by the transactions that changed them.
+ * @param highWaterMark transaction id of the last change returned, to request the next changes from.
+ */
+public record ShelfChangesDto(
+        List<ShelfDto> items,
+        long highWaterMark) {
+
+    static ShelfChangesDto from(List<ShelfChangeEntity> changes, long sinceVersion) {
+        long highWaterMark = changes.isEmpty() ? sinceVersion : changes.getLast().changeXid();
+        return new ShelfChangesDto(changes.stream().map(ShelfChangeEntity::toDto).toList(), highWaterMark);
+    }
+}
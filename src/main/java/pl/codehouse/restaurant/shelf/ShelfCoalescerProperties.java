@@ -0,0 +1,24 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of coalescing concurrent quantity updates of one menu item into a single write,
+ * in the "database" engine mode.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.coalescer".</p>
+ *
+ * @param enabled      whether concurrent quantity updates are coalesced.
+ * @param window       time for which updates of a menu item are collected after the first one arrived.
+ * @param maxBatchSize number of collected updates from which they are written without waiting for the end of the window.
+ */
+@ConfigurationProperties("app.shelf.coalescer")
+public record ShelfCoalescerProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("64") int maxBatchSize
+) {
+}
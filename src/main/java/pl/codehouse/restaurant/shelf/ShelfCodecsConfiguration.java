@@ -0,0 +1,35 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers the CBOR codecs of the shelf API, a compact binary encoding of the same documents as JSON.
+ * Clients opt in with {@code Content-Type} and {@code Accept} of {@code application/cbor}, JSON stays the default.
+ * The CBOR mapper is built from the Spring Boot configured builder, so both encodings share the Jackson settings.
+ */
+@Configuration(proxyBeanMethods = false)
+class ShelfCodecsConfiguration implements WebFluxConfigurer {
+    private final ObjectMapper cborMapper;
+
+    ShelfCodecsConfiguration(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.cborMapper = cborMapper(objectMapperBuilder);
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+        configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+    }
+
+    // the builder is a prototype bean, so changing its factory does not affect the JSON mapper
+    static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return objectMapperBuilder.factory(new CBORFactory()).build();
+    }
+}
@@ -0,0 +1,14 @@
+package pl.codehouse.restaurant.shelf;
+
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hook around the execution of shelf commands, e.g. for timing, tracing or validation.
+ * Interceptors are applied in their {@link org.springframework.core.annotation.Order}, the first one being the outermost.
+ * The execution is lazy, so an interceptor may subscribe to it several times or not at all.
+ */
+interface ShelfCommandInterceptor {
+
+    <R> Mono<R> intercept(ActionEvent action, Mono<R> execution);
+}
@@ -0,0 +1,117 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Fixed set of execution lanes shelf commands are hashed onto by their menu item id.
+ * Each lane is a single-consumer mailbox running one command at a time on its own scheduler,
+ * so commands on one menu item are executed in submission order while unrelated menu items run in parallel.
+ */
+@Component
+class ShelfCommandLanes implements DisposableBean {
+    static final String QUEUE_DEPTH_METRIC = "shelf.lanes.queue.depth";
+    static final String WAIT_METRIC = "shelf.lanes.wait";
+
+    private final List<Lane> lanes;
+
+    ShelfCommandLanes(ShelfLaneProperties properties, MeterRegistry meterRegistry) {
+        this.lanes = new ArrayList<>(properties.count());
+        for (int index = 0; index < properties.count(); index++) {
+            lanes.add(new Lane(index, meterRegistry));
+        }
+    }
+
+    /**
+     * Executes the command in the lane of the menu item, once all commands submitted to that lane before are completed.
+     * The command is not subscribed to before its turn.
+     */
+    <R> Mono<R> submit(int menuItemId, Mono<R> command) {
+        return Mono.create(sink -> laneOf(menuItemId).enqueue(new Task<>(command, sink, System.nanoTime())));
+    }
+
+    @Override
+    public void destroy() {
+        lanes.forEach(lane -> lane.scheduler.dispose());
+    }
+
+    private Lane laneOf(int menuItemId) {
+        return lanes.get(Math.floorMod(Integer.hashCode(menuItemId), lanes.size()));
+    }
+
+    private static final class Task<R> {
+        private final Mono<R> command;
+        private final MonoSink<R> sink;
+        private final long enqueuedAt;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Task(Mono<R> command, MonoSink<R> sink, long enqueuedAt) {
+            this.command = command;
+            this.sink = sink;
+            this.enqueuedAt = enqueuedAt;
+            sink.onCancel(() -> cancelled.set(true));
+        }
+    }
+
+    private static final class Lane {
+        private final Queue<Task<?>> mailbox = new ConcurrentLinkedQueue<>();
+        // number of queued tasks plus the running one, the thread moving it from zero to one becomes the consumer
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Scheduler scheduler;
+        private final Timer waitTimer;
+
+        private Lane(int index, MeterRegistry meterRegistry) {
+            String lane = String.valueOf(index);
+            this.scheduler = Schedulers.newSingle("shelf-lane-" + lane);
+            this.waitTimer = meterRegistry.timer(WAIT_METRIC, "lane", lane);
+            Gauge.builder(QUEUE_DEPTH_METRIC, pending, AtomicInteger::get)
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+        }
+
+        private void enqueue(Task<?> task) {
+            mailbox.offer(task);
+            if (pending.getAndIncrement() == 0) {
+                scheduler.schedule(this::runNext);
+            }
+        }
+
+        private void runNext() {
+            Task<?> task = mailbox.poll();
+            if (task != null) {
+                run(task);
+            }
+        }
+
+        private <R> void run(Task<R> task) {
+            waitTimer.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            if (task.cancelled.get()) {
+                completed();
+                return;
+            }
+            task.command
+                    .doFinally(signal -> completed())
+                    .subscribe(task.sink::success, task.sink::error, task.sink::success);
+        }
+
+        private void completed() {
+            if (pending.decrementAndGet() > 0) {
+                scheduler.schedule(this::runNext);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times every shelf command by its action type and outcome, and counts the applied quantity updates by their {@link UpdateType}.
+ * Being the outermost interceptor, the recorded time includes waiting for the transaction of the command.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ShelfCommandMetricsInterceptor implements ShelfCommandInterceptor {
+    static final String COMMANDS_METRIC = "shelf.commands";
+    static final String UPDATES_METRIC = "shelf.updates";
+
+    static final String SUCCESS = "success";
+    static final String INSUFFICIENT_STOCK = "insufficient_stock";
+    static final String CONFLICT = "conflict";
+    static final String FAILURE = "failure";
+
+    private final MeterRegistry meterRegistry;
+
+    ShelfCommandMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <R> Mono<R> intercept(ActionEvent action, Mono<R> execution) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return execution
+                    .doOnSuccess(result -> {
+                        sample.stop(commandTimer(action, SUCCESS));
+                        countUpdates(action);
+                    })
+                    .doOnError(error -> sample.stop(commandTimer(action, outcomeOf(error))));
+        });
+    }
+
+    private Timer commandTimer(ActionEvent action, String outcome) {
+        return meterRegistry.timer(COMMANDS_METRIC, "command", action.getClass().getSimpleName(), "outcome", outcome);
+    }
+
+    private void countUpdates(ActionEvent action) {
+        switch (action) {
+            case UpdateItemOnShelfAction update -> countUpdate(update);
+            case UpdateItemsOnShelfAction updates -> updates.items().forEach(this::countUpdate);
+            default -> {
+            }
+        }
+    }
+
+    private void countUpdate(UpdateItemOnShelfAction update) {
+        meterRegistry.counter(UPDATES_METRIC, "updateType", String.valueOf(update.updateType())).increment();
+    }
+
+    static String outcomeOf(Throwable error) {
+        if (ShelfFailures.isInsufficientStock(error)) {
+            return INSUFFICIENT_STOCK;
+        }
+        if (ShelfFailures.isConflict(error)) {
+            return CONFLICT;
+        }
+        return FAILURE;
+    }
+}
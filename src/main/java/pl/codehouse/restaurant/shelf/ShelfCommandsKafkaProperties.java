@@ -0,0 +1,24 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the Kafka topic from which shelf actions are consumed.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.kafka.shelf.commands".</p>
+ *
+ * @param topicName   name of the topic carrying create and update actions.
+ * @param partitions  number of partitions the topic is created with.
+ * @param concurrency number of consumer threads, each of them handles its own share of partitions.
+ * @param parallelism maximum number of menu items updated concurrently while processing one polled batch.
+ */
+@ConfigurationProperties("app.kafka.shelf.commands")
+public record ShelfCommandsKafkaProperties(
+        String topicName,
+        @DefaultValue("5") int partitions,
+        @DefaultValue("5") int concurrency,
+        @DefaultValue("16") int parallelism
+) {
+}
@@ -0,0 +1,11 @@
+package pl.codehouse.restaurant.shelf;
+
+/**
+ * Thrown when a shelf action collides with an existing state, e.g. creating a menu item that is already on the shelf.
+ */
+class ShelfConflictException extends IllegalStateException {
+
+    ShelfConflictException(String message) {
+        super(message);
+    }
+}
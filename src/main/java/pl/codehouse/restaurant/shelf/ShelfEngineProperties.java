@@ -0,0 +1,41 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the engine holding the shelf inventory.
+ * In the default "database" mode every action is applied on the shelf table directly. In the "in-memory" mode
+ * the node keeps the authoritative inventory in memory, records each change in a local journal and persists
+ * the changes to the shelf table asynchronously. In the "ledger" mode every action appends a signed quantity delta
+ * to the shelf ledger, which is folded into the shelf table by a background snapshotter.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.engine".</p>
+ *
+ * @param mode             one of "database", "in-memory" or "ledger".
+ * @param journalDirectory directory of the local journal used in the "in-memory" mode.
+ * @param journalSync      whether each journal entry is forced to disk before the action is acknowledged.
+ * @param flushInterval    interval in which changes of the in-memory inventory are persisted to the database.
+ */
+@ConfigurationProperties("app.shelf.engine")
+public record ShelfEngineProperties(
+        @DefaultValue("database") String mode,
+        @DefaultValue("shelf-journal") Path journalDirectory,
+        @DefaultValue("true") boolean journalSync,
+        @DefaultValue("100ms") Duration flushInterval
+) {
+    static final String MODE_PROPERTY = "app.shelf.engine.mode";
+    static final String DATABASE_MODE = "database";
+    static final String IN_MEMORY_MODE = "in-memory";
+    static final String LEDGER_MODE = "ledger";
+
+    /**
+     * Reservations are held in the shelf table, so only the "database" mode supports them.
+     */
+    boolean supportsReservations() {
+        return DATABASE_MODE.equals(mode);
+    }
+}
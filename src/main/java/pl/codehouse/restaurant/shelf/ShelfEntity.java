@@ -2,7 +2,6 @@ package pl.codehouse.restaurant.shelf;
 
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
-import java.time.Clock;
 import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
@@ -14,6 +13,7 @@ record ShelfEntity(
         String menuItemName,
         int menuItemId,
         int quantity,
+        int reserved,
         long version,
         LocalDateTime updatedAt
 ) {
@@ -0,0 +1,90 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Compact binary Kafka serializer and deserializer of {@link ShelfEventDto}.
+ * Version 1 of the payload is 10 bytes: the version byte, the event type code byte, then the menu item ID and
+ * the quantity as big-endian ints. A new version byte is introduced for any change of the layout, so consumers
+ * can read events of every version still on the topic. The deserializer also reads the JSON payloads written by
+ * the Spring {@code JsonSerializer}, so consumers can be switched before the producers.
+ */
+public class ShelfEventBinarySerde implements Serializer<ShelfEventDto>, Deserializer<ShelfEventDto> {
+    static final byte VERSION = 1;
+    static final int PAYLOAD_SIZE = 2 + 2 * Integer.BYTES;
+
+    private static final byte JSON_OBJECT_START = '{';
+    private static final ObjectMapper JSON_MAPPER = JsonMapper.builder().build();
+
+    @Override
+    public byte[] serialize(String topic, ShelfEventDto event) {
+        if (event == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(PAYLOAD_SIZE)
+                .put(VERSION)
+                .put(codeOf(event.eventType()))
+                .putInt(event.menuItemId())
+                .putInt(event.quantity())
+                .array();
+    }
+
+    @Override
+    public ShelfEventDto deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length > 0 && data[0] == JSON_OBJECT_START) {
+            return fromJson(data);
+        }
+        if (data.length != PAYLOAD_SIZE || data[0] != VERSION) {
+            throw new SerializationException("Unsupported shelf event payload of " + data.length + " byte(s) and version "
+                                             + (data.length > 0 ? data[0] : "none") + " on topic " + topic);
+        }
+        ByteBuffer payload = ByteBuffer.wrap(data, 1, PAYLOAD_SIZE - 1);
+        return new ShelfEventDto(eventTypeOf(payload.get()), payload.getInt(), payload.getInt());
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        // nothing to configure
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    // explicit codes rather than ordinals, so reordering the enum does not change the meaning of stored events
+    private static byte codeOf(EventType eventType) {
+        return switch (eventType) {
+            case NEW -> 0;
+            case ADD -> 1;
+            case TAKE -> 2;
+        };
+    }
+
+    private static EventType eventTypeOf(byte code) {
+        return switch (code) {
+            case 0 -> EventType.NEW;
+            case 1 -> EventType.ADD;
+            case 2 -> EventType.TAKE;
+            default -> throw new SerializationException("Unknown shelf event type code " + code);
+        };
+    }
+
+    private static ShelfEventDto fromJson(byte[] data) {
+        try {
+            return JSON_MAPPER.readValue(data, ShelfEventDto.class);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to read shelf event from JSON", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores shelf events in the outbox table within the transaction of the shelf update,
+ * the {@link ShelfOutboxRelay} publishes them to Kafka afterwards.
+ */
+@Component
+class ShelfEventOutbox {
+    private final Clock clock;
+    private final ShelfOutboxRepository outboxRepository;
+
+    ShelfEventOutbox(Clock clock, ShelfOutboxRepository outboxRepository) {
+        this.clock = clock;
+        this.outboxRepository = outboxRepository;
+    }
+
+    Mono<Void> append(ShelfEventDto event) {
+        return outboxRepository.save(ShelfOutboxEntity.pending(event, LocalDateTime.now(clock)))
+                .then();
+    }
+
+    Mono<Void> appendAll(List<ShelfEventDto> events) {
+        var createdAt = LocalDateTime.now(clock);
+        return outboxRepository.saveAll(events.stream().map(event -> ShelfOutboxEntity.pending(event, createdAt)).toList())
+                .then();
+    }
+}
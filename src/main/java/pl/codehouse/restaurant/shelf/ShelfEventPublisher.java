@@ -1,41 +1,66 @@
 package pl.codehouse.restaurant.shelf;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.GenericMessage;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
 
 @Component
 class ShelfEventPublisher {
     private static final Logger logger = LoggerFactory.getLogger(ShelfEventPublisher.class);
+    static final String PUBLISH_METRIC = "shelf.events.publish";
 
-    private final KafkaTemplate<String, ShelfEventDto> kafkaTemplate;
+    private final KafkaSender<String, ShelfEventDto> kafkaSender;
     private final ShelfKafkaProperties kafkaProperties;
+    private final Timer publishedTimer;
+    private final Timer failedTimer;
 
     ShelfEventPublisher(
-            KafkaTemplate<String, ShelfEventDto> kafkaTemplate,
-            ShelfKafkaProperties kafkaProperties) {
-        this.kafkaTemplate = kafkaTemplate;
+            KafkaSender<String, ShelfEventDto> kafkaSender,
+            ShelfKafkaProperties kafkaProperties,
+            MeterRegistry meterRegistry) {
+        this.kafkaSender = kafkaSender;
         this.kafkaProperties = kafkaProperties;
+        this.publishedTimer = meterRegistry.timer(PUBLISH_METRIC, "outcome", "success");
+        this.failedTimer = meterRegistry.timer(PUBLISH_METRIC, "outcome", "failure");
     }
 
-    void publishNewMenuItemAddedEvent(int menuItemId, int quantity) {
-        publish(new ShelfEventDto(EventType.ADD, menuItemId, quantity));
+    /**
+     * Sends all events keyed by their menu item, so events of one item keep their order within a partition.
+     * Completes once the broker acknowledged every event, or fails with the first send failure.
+     */
+    Mono<Void> publishAll(List<ShelfEventDto> events) {
+        logger.info("{} Shelf Event(s) about to be emitted", events.size());
+        Flux<SenderRecord<String, ShelfEventDto, Long>> records = Flux.fromIterable(events)
+                .map(this::toSenderRecord);
+        return kafkaSender.send(records)
+                .doOnNext(this::recordOutcome)
+                .filter(result -> result.exception() != null)
+                .next()
+                .flatMap(failed -> Mono.<Void>error(failed.exception()));
     }
 
-    void publishMenuItemTakenEvent(int menuItemId, int quantity) {
-        publish(new ShelfEventDto(EventType.TAKE, menuItemId, quantity));
+    private SenderRecord<String, ShelfEventDto, Long> toSenderRecord(ShelfEventDto eventDto) {
+        var producerRecord = new ProducerRecord<>(kafkaProperties.topicName(), String.valueOf(eventDto.menuItemId()), eventDto);
+        return SenderRecord.create(producerRecord, System.nanoTime());
     }
 
-    void publishMenuItemCreatedEvent(int menuItemId, int quantity) {
-        publish(new ShelfEventDto(EventType.NEW, menuItemId, quantity));
-    }
-
-    private void publish(ShelfEventDto eventDto) {
-        logger.info("Shelf Event:{} for menu item {} with quantity:{} about to be emitted", eventDto.eventType(), eventDto.menuItemId(), eventDto.quantity());
-        Message<ShelfEventDto> message = new GenericMessage<>(eventDto, kafkaProperties.kafkaHeaders());
-        kafkaTemplate.send(message);
+    private void recordOutcome(SenderResult<Long> result) {
+        long latency = System.nanoTime() - result.correlationMetadata();
+        if (result.exception() == null) {
+            publishedTimer.record(latency, TimeUnit.NANOSECONDS);
+            return;
+        }
+        failedTimer.record(latency, TimeUnit.NANOSECONDS);
+        logger.error("Failed to emit Shelf Event. Error Message: {}", result.exception().getMessage(), result.exception());
     }
 }
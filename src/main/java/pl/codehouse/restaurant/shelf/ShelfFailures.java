@@ -0,0 +1,40 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * Classifies the failures of shelf commands by their known reasons.
+ * Commands wrap their failures, so the whole cause chain is searched for the reason.
+ */
+final class ShelfFailures {
+
+    private ShelfFailures() {
+    }
+
+    static boolean isInsufficientStock(Throwable error) {
+        return hasCause(error, InsufficientStockException.class);
+    }
+
+    /**
+     * @return whether the action conflicts with the state of the shelf, an existing menu item or a concurrent change.
+     */
+    static boolean isConflict(Throwable error) {
+        return hasCause(error, ShelfConflictException.class)
+               || hasCause(error, ConcurrencyFailureException.class)
+               || hasCause(error, DuplicateKeyException.class);
+    }
+
+    /**
+     * @return whether the shelf refused the action itself, not enough items or a conflicting create, so applying it again
+     *         fails the same way.
+     */
+    static boolean isRejected(Throwable error) {
+        return isInsufficientStock(error) || hasCause(error, ShelfConflictException.class);
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        return ExceptionUtils.indexOfType(error, type) >= 0;
+    }
+}
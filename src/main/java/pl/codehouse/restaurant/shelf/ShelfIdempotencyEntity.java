@@ -0,0 +1,30 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Response of a request sent with an Idempotency-Key header. The response columns stay empty
+ * while the request is being executed.
+ */
+@Table("shelf_idempotency")
+record ShelfIdempotencyEntity(
+        @Id String idempotencyKey,
+        String requestFingerprint,
+        String menuItemName,
+        Integer menuItemId,
+        Integer quantity,
+        Long version,
+        LocalDateTime createdAt,
+        LocalDateTime expiresAt
+) {
+
+    boolean isCompleted() {
+        return version != null;
+    }
+
+    ShelfDto toDto() {
+        return new ShelfDto(menuItemName, menuItemId, quantity, version);
+    }
+}
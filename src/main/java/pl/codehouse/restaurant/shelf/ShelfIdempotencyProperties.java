@@ -0,0 +1,23 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the responses kept for requests sent with an Idempotency-Key header.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.idempotency".</p>
+ *
+ * @param ttl             time for which the response of a key is replayed to repeated requests.
+ * @param maximumSize     maximum number of responses kept in memory, older ones are read from the database.
+ * @param cleanupInterval interval in which expired responses are deleted from the database.
+ */
+@ConfigurationProperties("app.shelf.idempotency")
+public record ShelfIdempotencyProperties(
+        @DefaultValue("24h") Duration ttl,
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("5m") Duration cleanupInterval
+) {
+}
@@ -0,0 +1,49 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+interface ShelfIdempotencyRepository extends ReactiveCrudRepository<ShelfIdempotencyEntity, String> {
+
+    /**
+     * Claims the idempotency key for a request about to be executed. An expired claim or response of the key is taken over.
+     *
+     * @return the claim, or empty when the key is claimed by another request or its response is still kept.
+     */
+    @Query("""
+            INSERT INTO shelf_idempotency (idempotency_key, request_fingerprint, created_at, expires_at)
+            VALUES (:idempotencyKey, :requestFingerprint, :createdAt, :expiresAt)
+            ON CONFLICT (idempotency_key) DO UPDATE
+               SET request_fingerprint = EXCLUDED.request_fingerprint,
+                   menu_item_name = NULL, menu_item_id = NULL, quantity = NULL, version = NULL,
+                   created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+             WHERE shelf_idempotency.expires_at < EXCLUDED.created_at
+            RETURNING *
+            """)
+    Mono<ShelfIdempotencyEntity> claim(@Param("idempotencyKey") String idempotencyKey,
+                                       @Param("requestFingerprint") String requestFingerprint,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("""
+            UPDATE shelf_idempotency
+               SET menu_item_name = :menuItemName, menu_item_id = :menuItemId, quantity = :quantity, version = :version
+             WHERE idempotency_key = :idempotencyKey
+            """)
+    Mono<Integer> complete(@Param("idempotencyKey") String idempotencyKey,
+                           @Param("menuItemName") String menuItemName,
+                           @Param("menuItemId") Integer menuItemId,
+                           @Param("quantity") Integer quantity,
+                           @Param("version") Long version);
+
+    @Modifying
+    @Query("DELETE FROM shelf_idempotency WHERE expires_at < :now")
+    Mono<Integer> deleteExpired(@Param("now") LocalDateTime now);
+}
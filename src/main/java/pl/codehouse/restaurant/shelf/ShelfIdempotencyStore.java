@@ -0,0 +1,152 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Mono;
+
+/**
+ * Executes an action at most once per Idempotency-Key and replays its response to repeated requests with the same key.
+ * Responses are kept in a bounded in-memory cache, which also joins concurrent requests of one key to a single execution,
+ * and in the shelf_idempotency table, which covers evicted keys, restarts and other instances.
+ *
+ * <p>A key is claimed and completed with the response in the transaction of the action, so the claim is committed
+ * together with the change of the shelf or not at all, and only successful responses are replayed. A request of a key
+ * claimed by a transaction still in flight waits for its outcome. Actions without a transaction release the claim when
+ * they fail, and a request of a key claimed by such an action still being executed is rejected with 409.
+ * A key used for a different request is rejected with 422. Expired responses are deleted periodically.</p>
+ */
+@Component
+class ShelfIdempotencyStore implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfIdempotencyStore.class);
+
+    private final Clock clock;
+    private final ShelfIdempotencyRepository repository;
+    private final ShelfIdempotencyProperties properties;
+    private final AsyncCache<String, IdempotentResponse> responses;
+
+    private final ShelfPeriodicTask cleanup;
+
+    ShelfIdempotencyStore(Clock clock, ShelfIdempotencyRepository repository, ShelfIdempotencyProperties properties) {
+        this.clock = clock;
+        this.repository = repository;
+        this.properties = properties;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .buildAsync();
+        this.cleanup = new ShelfPeriodicTask(properties.cleanupInterval(), this::deleteExpired);
+    }
+
+    /**
+     * Executes the action once per key.
+     *
+     * @param execution executes the action, applying the given scope to the command within the transaction of the action.
+     */
+    Mono<ShelfDto> execute(String idempotencyKey, ActionEvent action, Function<UnaryOperator<Mono<ShelfDto>>, Mono<ShelfDto>> execution) {
+        String fingerprint = fingerprintOf(action);
+        CompletableFuture<IdempotentResponse> response = responses.get(idempotencyKey,
+                (key, executor) -> claimOrReplay(key, fingerprint, execution).toFuture());
+        // the execution is shared by all requests of the key, so a cancelled request must not cancel it for the others
+        return Mono.fromFuture(response, true)
+                .map(replayed -> {
+                    if (!replayed.requestFingerprint().equals(fingerprint)) {
+                        throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                                          "Idempotency-Key %s is already used for a different request".formatted(idempotencyKey));
+                    }
+                    return replayed.item();
+                });
+    }
+
+    private Mono<IdempotentResponse> claimOrReplay(String idempotencyKey, String fingerprint,
+                                                   Function<UnaryOperator<Mono<ShelfDto>>, Mono<ShelfDto>> execution) {
+        return execution.apply(command -> executeClaimed(idempotencyKey, fingerprint, command))
+                .map(item -> new IdempotentResponse(fingerprint, item))
+                .onErrorResume(KeyClaimedException.class, claimed -> replay(idempotencyKey));
+    }
+
+    private Mono<ShelfDto> executeClaimed(String idempotencyKey, String fingerprint, Mono<ShelfDto> command) {
+        var now = LocalDateTime.now(clock);
+        return repository.claim(idempotencyKey, fingerprint, now, now.plus(properties.ttl()))
+                .hasElement()
+                .flatMap(claimed -> claimed ? releaseOnError(idempotencyKey, command) : Mono.error(new KeyClaimedException()))
+                .flatMap(item -> repository.complete(idempotencyKey, item.menuItemName(), item.menuItemId(), item.quantity(), item.version())
+                        .thenReturn(item));
+    }
+
+    // only a failure of the action itself releases the claim, within a transaction the rollback releases it anyway
+    private Mono<ShelfDto> releaseOnError(String idempotencyKey, Mono<ShelfDto> command) {
+        return command.onErrorResume(error -> repository.deleteById(idempotencyKey)
+                .onErrorComplete()
+                .then(Mono.error(error)));
+    }
+
+    private Mono<IdempotentResponse> replay(String idempotencyKey) {
+        return repository.findById(idempotencyKey)
+                .filter(ShelfIdempotencyEntity::isCompleted)
+                .map(stored -> new IdempotentResponse(stored.requestFingerprint(), stored.toDto()))
+                .doOnNext(stored -> log.info("Replaying stored response of Idempotency-Key {}", idempotencyKey))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Request with Idempotency-Key %s is still in progress".formatted(idempotencyKey))));
+    }
+
+    @Override
+    public void start() {
+        cleanup.start();
+    }
+
+    @Override
+    public void stop() {
+        cleanup.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return cleanup.isRunning();
+    }
+
+    Mono<Integer> deleteExpired() {
+        return repository.deleteExpired(LocalDateTime.now(clock))
+                .doOnNext(deleted -> log.info("Deleted {} expired response(s) of Idempotency-Keys", deleted))
+                .onErrorResume(error -> {
+                    log.error("Error thrown while deleting expired responses of Idempotency-Keys. Error Message: {}", error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
+
+    // actions are records, so their string form covers the type and all values of the request
+    private static String fingerprintOf(ActionEvent action) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(action.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Missing SHA-256 message digest", e);
+        }
+    }
+
+    private record IdempotentResponse(String requestFingerprint, ShelfDto item) {
+    }
+
+    // signals a key claimed by another request, it rolls back the transaction of the action before the action is executed
+    private static final class KeyClaimedException extends RuntimeException {
+
+        private KeyClaimedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Background write-behind of the {@link InMemoryShelfInventory}. Changes accumulated since the previous flush are written
+ * to the shelf table in one statement together with their events in the outbox, within one transaction.
+ * The journal segments of a batch are deleted only once it is committed, a failed batch is retried with the next flush.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.IN_MEMORY_MODE)
+class ShelfInventoryFlusher implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfInventoryFlusher.class);
+
+    private final Clock clock;
+    private final InMemoryShelfInventory inventory;
+    private final ShelfRepository repository;
+    private final ShelfEventOutbox eventOutbox;
+    private final TransactionalOperator transactionalOperator;
+
+    private final ShelfPeriodicTask flusher;
+
+    ShelfInventoryFlusher(Clock clock,
+                          InMemoryShelfInventory inventory,
+                          ShelfRepository repository,
+                          ShelfEventOutbox eventOutbox,
+                          TransactionalOperator transactionalOperator,
+                          ShelfEngineProperties properties) {
+        this.clock = clock;
+        this.inventory = inventory;
+        this.repository = repository;
+        this.eventOutbox = eventOutbox;
+        this.transactionalOperator = transactionalOperator;
+        this.flusher = new ShelfPeriodicTask(properties.flushInterval(), this::flush);
+    }
+
+    @Override
+    public void start() {
+        inventory.recover();
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        flusher.stop();
+        // persist what was acknowledged until now, anything left is replayed from the journal on the next start
+        flush().block();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        // started before and stopped after the web server, so no action is served by a not recovered inventory
+        return 0;
+    }
+
+    Mono<Integer> flush() {
+        return Mono.fromCallable(inventory::drain)
+                .filter(batch -> !batch.isEmpty())
+                .flatMap(batch -> persist(batch)
+                        .doOnSuccess(persisted -> inventory.deleteJournal(batch.segments()))
+                        .onErrorResume(error -> {
+                            log.error("Error thrown while persisting the in-memory shelf inventory. Error Message: {}", error.getMessage(), error);
+                            inventory.restore(batch);
+                            return Mono.just(0);
+                        }))
+                .defaultIfEmpty(0);
+    }
+
+    private Mono<Integer> persist(InMemoryShelfInventory.FlushBatch batch) {
+        var items = batch.items();
+        return repository.persistQuantities(
+                        items.stream().map(ShelfDto::menuItemId).toArray(Integer[]::new),
+                        items.stream().map(ShelfDto::quantity).toArray(Integer[]::new),
+                        items.stream().map(ShelfDto::version).toArray(Long[]::new),
+                        LocalDateTime.now(clock))
+                .flatMap(persisted -> eventOutbox.appendAll(batch.events()).thenReturn(persisted))
+                .doOnNext(persisted -> log.info("Persisted {} menu item(s) and {} event(s) of the in-memory shelf inventory", persisted, batch.events().size()))
+                .as(transactionalOperator::transactional);
+    }
+}
@@ -0,0 +1,152 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Append-only local journal of in-memory inventory changes, split into numbered segments.
+ * Each entry carries the absolute state of a menu item, so replaying keeps the entry with the highest version
+ * regardless of the order in which concurrent entries were written.
+ */
+class ShelfJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final boolean sync;
+    private long segmentSequence;
+    private Path segment;
+    private FileChannel channel;
+
+    ShelfJournal(Path directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+        try {
+            Files.createDirectories(directory);
+            this.segmentSequence = segments().stream()
+                    .mapToLong(ShelfJournal::sequenceOf)
+                    .max()
+                    .orElse(0L);
+            openNextSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open shelf journal in " + directory, e);
+        }
+    }
+
+    record Entry(int menuItemId, int quantity, long version, EventType eventType, int eventQuantity) {
+
+        String format() {
+            return "%d;%d;%d;%s;%d%n".formatted(menuItemId, quantity, version, eventType, eventQuantity);
+        }
+
+        /**
+         * Parses a journal line, skipping the incomplete last line a crash in the middle of an append can leave behind.
+         */
+        static Optional<Entry> parse(String line) {
+            String[] fields = line.split(";");
+            if (fields.length != 5) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new Entry(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+                                             EventType.valueOf(fields[3]), Integer.parseInt(fields[4])));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    void append(Entry entry) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(entry.format().getBytes(StandardCharsets.UTF_8));
+            FileChannel current = channel;
+            while (buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+            if (sync) {
+                current.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append entry to shelf journal " + segment, e);
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Must not run concurrently with {@link #append(Entry)}.
+     *
+     * @return all segments written before the rotation, including those of earlier rotations that were not deleted yet.
+     */
+    List<Path> rotate() {
+        try {
+            channel.close();
+            List<Path> closedSegments = segments();
+            openNextSegment();
+            return closedSegments;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to rotate shelf journal in " + directory, e);
+        }
+    }
+
+    List<Entry> readAll() {
+        List<Entry> entries = new ArrayList<>();
+        for (Path journalSegment : segments()) {
+            try (BufferedReader reader = Files.newBufferedReader(journalSegment, StandardCharsets.UTF_8)) {
+                reader.lines()
+                        .map(Entry::parse)
+                        .flatMap(Optional::stream)
+                        .forEach(entries::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read shelf journal segment " + journalSegment, e);
+            }
+        }
+        return entries;
+    }
+
+    void delete(List<Path> closedSegments) {
+        for (Path closedSegment : closedSegments) {
+            try {
+                Files.deleteIfExists(closedSegment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to delete shelf journal segment " + closedSegment, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentSequence++;
+        segment = directory.resolve("%s%019d%s".formatted(SEGMENT_PREFIX, segmentSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list shelf journal segments in " + directory, e);
+        }
+    }
+
+    private static long sequenceOf(Path journalSegment) {
+        String fileName = journalSegment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
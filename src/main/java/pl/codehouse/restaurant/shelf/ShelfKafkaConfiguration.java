@@ -0,0 +1,48 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+/**
+ * Configuration of the Kafka topics and the reactive sender used to publish shelf events.
+ * Producer settings such as idempotence, batching and compression are taken from the spring.kafka.producer properties,
+ * the value serializer is replaced by {@link ShelfEventBinarySerde} when the binary serialization is selected.
+ */
+@Configuration
+class ShelfKafkaConfiguration {
+
+    @Bean
+    NewTopic shelfEventsTopic(ShelfKafkaProperties shelfKafkaProperties) {
+        return TopicBuilder.name(shelfKafkaProperties.topicName())
+                .partitions(shelfKafkaProperties.partitions())
+                .replicas(shelfKafkaProperties.replicas())
+                .build();
+    }
+
+    @Bean
+    NewTopic shelfCommandsTopic(ShelfCommandsKafkaProperties commandsKafkaProperties, ShelfKafkaProperties shelfKafkaProperties) {
+        return TopicBuilder.name(commandsKafkaProperties.topicName())
+                .partitions(commandsKafkaProperties.partitions())
+                .replicas(shelfKafkaProperties.replicas())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    KafkaSender<String, ShelfEventDto> shelfEventsSender(KafkaProperties kafkaProperties,
+                                                         ShelfKafkaProperties shelfKafkaProperties,
+                                                         SslBundles sslBundles) {
+        SenderOptions<String, ShelfEventDto> senderOptions = SenderOptions.<String, ShelfEventDto>create(kafkaProperties.buildProducerProperties(sslBundles))
+                .maxInFlight(shelfKafkaProperties.maxInFlight())
+                .stopOnError(false);
+        if (shelfKafkaProperties.serialization() == ShelfKafkaProperties.Serialization.BINARY) {
+            senderOptions = senderOptions.withValueSerializer(new ShelfEventBinarySerde());
+        }
+        return KafkaSender.create(senderOptions);
+    }
+}
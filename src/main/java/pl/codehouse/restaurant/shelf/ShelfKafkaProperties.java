@@ -2,6 +2,7 @@ package pl.codehouse.restaurant.shelf;
 
 import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.kafka.support.KafkaHeaders;
 
 /**
@@ -10,12 +11,37 @@ import org.springframework.kafka.support.KafkaHeaders;
  *
  * <p>The properties are typically loaded from the application's configuration
  * file using the prefix "app.kafka.shelf.topic".</p>
+ *
+ * @param topicName   name of the topic the shelf events are published to.
+ * @param partitions  number of partitions the topic is created with.
+ * @param replicas    replication factor the topic is created with.
+ * @param maxInFlight maximum number of events sent but not yet acknowledged by the broker, further events are backpressured.
+ * @param serialization encoding of the published events, JSON with the Spring {@code JsonSerializer} or the compact
+ *                      {@link ShelfEventBinarySerde} format.
  */
 @ConfigurationProperties("app.kafka.shelf.topic")
 public record ShelfKafkaProperties(
         String topicName,
-        int partitions
+        int partitions,
+        @DefaultValue("1") int replicas,
+        @DefaultValue("1024") int maxInFlight,
+        @DefaultValue("json") Serialization serialization
 ) {
+    /**
+     * Encodings of the published shelf events.
+     */
+    public enum Serialization {
+        /**
+         * JSON written by the serializer configured in spring.kafka.producer.value-serializer.
+         */
+        JSON,
+
+        /**
+         * Compact binary payload written by {@link ShelfEventBinarySerde}.
+         */
+        BINARY
+    }
+
     /**
      * Generates Kafka headers for the shelf topic.
      * This method creates a Map containing the necessary Kafka headers
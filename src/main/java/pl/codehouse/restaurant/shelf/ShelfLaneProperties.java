@@ -0,0 +1,18 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the execution lanes serializing shelf commands per menu item.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.lanes".</p>
+ *
+ * @param count number of lanes menu items are hashed onto, commands of different lanes run in parallel.
+ */
+@ConfigurationProperties("app.shelf.lanes")
+public record ShelfLaneProperties(
+        @DefaultValue("16") int count
+) {
+}
@@ -0,0 +1,15 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("shelf_ledger")
+record ShelfLedgerEntity(
+        @Id long id,
+        int menuItemId,
+        int delta,
+        LocalDateTime createdAt,
+        boolean folded
+) {
+}
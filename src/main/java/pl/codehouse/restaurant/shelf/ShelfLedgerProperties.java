@@ -0,0 +1,21 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the shelf ledger used in the "ledger" engine mode.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.ledger".</p>
+ *
+ * @param snapshotInterval  interval in which ledger entries are folded into the snapshot kept in the shelf table.
+ * @param snapshotBatchSize maximum number of ledger entries folded within one statement.
+ */
+@ConfigurationProperties("app.shelf.ledger")
+public record ShelfLedgerProperties(
+        @DefaultValue("1s") Duration snapshotInterval,
+        @DefaultValue("10000") int snapshotBatchSize
+) {
+}
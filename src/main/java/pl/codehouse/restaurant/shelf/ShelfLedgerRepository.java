@@ -0,0 +1,114 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+interface ShelfLedgerRepository extends ReactiveCrudRepository<ShelfLedgerEntity, Long> {
+
+    /**
+     * Takes the transaction scoped advisory lock of the menu item. Every append of the menu item is serialized by the lock,
+     * as the appends derive the version of the menu item from the entries they see, and two appends on the same snapshot
+     * would report the same version. The two key form of the lock does not overlap with the single key advisory locks used elsewhere.
+     */
+    @Query("SELECT TRUE FROM pg_advisory_xact_lock(7310002, :menuItemId)")
+    Mono<Boolean> lockMenuItem(@Param("menuItemId") Integer menuItemId);
+
+    @Query("SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at FROM shelf_current WHERE menu_item_id = :menuItemId")
+    Mono<ShelfEntity> findCurrentByMenuItemId(@Param("menuItemId") Integer menuItemId);
+
+    @Query("SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at FROM shelf_current WHERE quantity >= :quantity")
+    Flux<ShelfEntity> findCurrentByQuantityAbove(@Param("quantity") Integer quantity);
+
+    /**
+     * Finds the next page of available items ordered by menu item id, starting after the given menu item id.
+     */
+    @Query("""
+            SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+              FROM shelf_current
+             WHERE quantity > 0 AND menu_item_id > :after
+             ORDER BY menu_item_id
+             LIMIT :limit
+            """)
+    Flux<ShelfEntity> findCurrentAvailableAfter(@Param("after") Integer after, @Param("limit") Integer limit);
+
+    /**
+     * Appends a signed quantity delta of the menu item to the ledger, when the resulting quantity does not drop below
+     * the reserved quantity. The shelf row is only read, appends of the menu item are serialized by {@link #lockMenuItem(Integer)}.
+     * The outer select runs on the same snapshot as the insert, so the new entry is added to the current state explicitly.
+     *
+     * @return the state of the menu item including the appended entry, or empty when the menu item is missing
+     *         or there is not enough quantity on the shelf.
+     */
+    @Query("""
+            WITH entry AS (
+                INSERT INTO shelf_ledger (menu_item_id, delta, created_at)
+                SELECT c.menu_item_id, :delta, :createdAt
+                  FROM shelf_current c
+                 WHERE c.menu_item_id = :menuItemId AND c.quantity - c.reserved + :delta >= 0
+                RETURNING menu_item_id, delta, created_at
+            )
+            SELECT c.id, c.menu_item_name, c.menu_item_id, c.quantity + e.delta AS quantity, c.reserved, c.version + 1 AS version, e.created_at AS updated_at
+              FROM entry e
+              JOIN shelf_current c ON c.menu_item_id = e.menu_item_id
+            """)
+    Mono<ShelfEntity> appendIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                        @Param("delta") Integer delta,
+                                        @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Appends signed quantity deltas of several menu items to the ledger in a single statement.
+     * The menu item ids and deltas are matched by their position in the arrays, each menu item id may occur only once.
+     * Deltas whose lowest delta, the lowest running total of the updates netted into the delta, would drop the quantity
+     * below the reserved quantity are not appended.
+     *
+     * @return the states of the menu items including the appended entries, missing or not available menu items are not part of the result.
+     */
+    @Query("""
+            WITH entries AS (
+                INSERT INTO shelf_ledger (menu_item_id, delta, created_at)
+                SELECT c.menu_item_id, d.delta, :createdAt
+                  FROM UNNEST(:menuItemIds::int[], :deltas::int[], :lowestDeltas::int[]) AS d(menu_item_id, delta, lowest_delta)
+                  JOIN shelf_current c ON c.menu_item_id = d.menu_item_id
+                 WHERE c.quantity - c.reserved + d.lowest_delta >= 0
+                RETURNING menu_item_id, delta, created_at
+            )
+            SELECT c.id, c.menu_item_name, c.menu_item_id, c.quantity + e.delta AS quantity, c.reserved, c.version + 1 AS version, e.created_at AS updated_at
+              FROM entries e
+              JOIN shelf_current c ON c.menu_item_id = e.menu_item_id
+            """)
+    Flux<ShelfEntity> appendAllIfAvailable(@Param("menuItemIds") Integer[] menuItemIds,
+                                           @Param("deltas") Integer[] deltas,
+                                           @Param("lowestDeltas") Integer[] lowestDeltas,
+                                           @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Folds the oldest entries of the ledger into the snapshot kept in the shelf table, in a single statement.
+     * Marking the entries and moving their sum into the snapshot commit together, so readers of the current state
+     * see each entry exactly once. Entries of not yet committed appends are invisible here and folded by a later run.
+     *
+     * @return number of folded entries.
+     */
+    @Query("""
+            WITH folded AS (
+                UPDATE shelf_ledger
+                   SET folded = TRUE
+                 WHERE id IN (SELECT id FROM shelf_ledger WHERE NOT folded ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED)
+                RETURNING menu_item_id, delta, created_at
+            ), snapshot AS (
+                UPDATE shelf s
+                   SET quantity = s.quantity + f.delta, version = s.version + f.entries, updated_at = GREATEST(s.updated_at, f.created_at)
+                  FROM (SELECT menu_item_id, SUM(delta)::int AS delta, COUNT(*) AS entries, MAX(created_at) AS created_at
+                          FROM folded
+                         GROUP BY menu_item_id) f
+                 WHERE s.menu_item_id = f.menu_item_id
+            )
+            SELECT COUNT(*)::int FROM folded
+            """)
+    Mono<Integer> foldIntoSnapshot(@Param("limit") int limit);
+}
@@ -0,0 +1,67 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Background snapshotter of the shelf ledger. Entries appended since the previous run are folded into the shelf table,
+ * so the tail summed up by readers stays short while the hot path only ever inserts into the ledger.
+ * Folded entries are kept in the ledger as the audit trail of the shelf.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.LEDGER_MODE)
+class ShelfLedgerSnapshotter implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfLedgerSnapshotter.class);
+
+    private final ShelfLedgerRepository ledgerRepository;
+    private final ShelfLedgerProperties properties;
+
+    private final ShelfPeriodicTask snapshotter;
+
+    ShelfLedgerSnapshotter(ShelfLedgerRepository ledgerRepository, ShelfLedgerProperties properties) {
+        this.ledgerRepository = ledgerRepository;
+        this.properties = properties;
+        this.snapshotter = new ShelfPeriodicTask(properties.snapshotInterval(), this::snapshot);
+    }
+
+    @Override
+    public void start() {
+        snapshotter.start();
+    }
+
+    @Override
+    public void stop() {
+        snapshotter.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return snapshotter.isRunning();
+    }
+
+    /**
+     * Folds batches until the ledger holds less than a full batch of unfolded entries.
+     */
+    Mono<Integer> snapshot() {
+        return fold()
+                .expand(folded -> folded == properties.snapshotBatchSize() ? fold() : Mono.empty())
+                .reduce(Integer::sum)
+                .doOnNext(folded -> {
+                    if (folded > 0) {
+                        log.info("Folded {} shelf ledger entries into the snapshot", folded);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("Error thrown while folding the shelf ledger into the snapshot. Error Message: {}", error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
+
+    private Mono<Integer> fold() {
+        return Mono.defer(() -> ledgerRepository.foldIntoSnapshot(properties.snapshotBatchSize()));
+    }
+}
@@ -0,0 +1,30 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics of the shelf service not covered by the Spring Boot auto-configuration.
+ * The saturation of the R2DBC pool is already published as {@code r2dbc.pool.*} gauges, the time spent waiting
+ * for a connection is added by decorating the connection factories with a {@link TimedConnectionFactory}.
+ */
+@Configuration(proxyBeanMethods = false)
+class ShelfMetricsConfiguration {
+
+    @Bean
+    static BeanPostProcessor timedConnectionFactoryPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof TimedConnectionFactory)) {
+                    return new TimedConnectionFactory(connectionFactory, beanName, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("shelf_outbox")
+record ShelfOutboxEntity(
+        @Id long id,
+        EventType eventType,
+        int menuItemId,
+        int quantity,
+        LocalDateTime createdAt,
+        LocalDateTime publishedAt
+) {
+
+    static ShelfOutboxEntity pending(ShelfEventDto event, LocalDateTime createdAt) {
+        return new ShelfOutboxEntity(0, event.eventType(), event.menuItemId(), event.quantity(), createdAt, null);
+    }
+
+    ShelfEventDto toEvent() {
+        return new ShelfEventDto(eventType, menuItemId, quantity);
+    }
+}
@@ -0,0 +1,23 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for relaying stored shelf events from the outbox to Kafka.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.outbox".</p>
+ *
+ * @param pollInterval interval in which the relay checks the outbox for unpublished events.
+ * @param batchSize    maximum number of events relayed within one transaction.
+ * @param retention    time for which published events are kept in the outbox before being pruned.
+ */
+@ConfigurationProperties("app.shelf.outbox")
+public record ShelfOutboxProperties(
+        @DefaultValue("200ms") Duration pollInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("1h") Duration retention
+) {
+}
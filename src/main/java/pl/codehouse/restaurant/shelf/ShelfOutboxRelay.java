@@ -0,0 +1,92 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Background relay draining the shelf events outbox to Kafka.
+ * Each batch is read, published and marked as published within one transaction guarded by an advisory lock,
+ * so across all replicas only one relay is active at a time and events are published in the order they were stored.
+ */
+@Component
+class ShelfOutboxRelay implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfOutboxRelay.class);
+    private static final long RELAY_LOCK_KEY = 7_310_001L;
+
+    private final Clock clock;
+    private final ShelfOutboxRepository outboxRepository;
+    private final ShelfEventPublisher eventPublisher;
+    private final TransactionalOperator transactionalOperator;
+    private final ShelfOutboxProperties properties;
+
+    private final ShelfPeriodicTask relay;
+
+    ShelfOutboxRelay(Clock clock,
+                     ShelfOutboxRepository outboxRepository,
+                     ShelfEventPublisher eventPublisher,
+                     TransactionalOperator transactionalOperator,
+                     ShelfOutboxProperties properties) {
+        this.clock = clock;
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+        this.relay = new ShelfPeriodicTask(properties.pollInterval(), this::drain);
+    }
+
+    @Override
+    public void start() {
+        relay.start();
+    }
+
+    @Override
+    public void stop() {
+        relay.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return relay.isRunning();
+    }
+
+    /**
+     * Relays batches until the outbox holds less than a full batch of unpublished events.
+     */
+    Mono<Integer> drain() {
+        return relayBatch()
+                .expand(published -> published == properties.batchSize() ? relayBatch() : Mono.empty())
+                .reduce(Integer::sum)
+                .onErrorResume(error -> {
+                    log.error("Error thrown while relaying shelf events from the outbox. Error Message: {}", error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
+
+    Mono<Integer> relayBatch() {
+        return outboxRepository.tryLockRelay(RELAY_LOCK_KEY)
+                .filter(Boolean::booleanValue)
+                .flatMap(locked -> outboxRepository.findUnpublished(properties.batchSize()).collectList())
+                .filter(pending -> !pending.isEmpty())
+                .flatMap(this::publish)
+                .defaultIfEmpty(0)
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Integer> publish(List<ShelfOutboxEntity> pending) {
+        var now = LocalDateTime.now(clock);
+        var events = pending.stream().map(ShelfOutboxEntity::toEvent).toList();
+        var ids = pending.stream().map(ShelfOutboxEntity::id).toList();
+        return eventPublisher.publishAll(events)
+                .then(Mono.defer(() -> outboxRepository.markPublished(ids, now)))
+                .flatMap(published -> outboxRepository.deletePublishedBefore(now.minus(properties.retention()))
+                        .doOnNext(pruned -> log.info("Relayed {} shelf event(s) from the outbox, pruned {} published event(s)", published, pruned))
+                        .thenReturn(pending.size()));
+    }
+}
@@ -0,0 +1,33 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+interface ShelfOutboxRepository extends ReactiveCrudRepository<ShelfOutboxEntity, Long> {
+
+    /**
+     * Tries to take the transaction scoped advisory lock, so only one relay drains the outbox at a time
+     * and events keep the order in which they were stored.
+     */
+    @Query("SELECT pg_try_advisory_xact_lock(:key)")
+    Mono<Boolean> tryLockRelay(@Param("key") long key);
+
+    @Query("SELECT * FROM shelf_outbox WHERE published_at IS NULL ORDER BY id LIMIT :limit")
+    Flux<ShelfOutboxEntity> findUnpublished(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE shelf_outbox SET published_at = :publishedAt WHERE id IN (:ids)")
+    Mono<Integer> markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("DELETE FROM shelf_outbox WHERE published_at < :publishedBefore")
+    Mono<Integer> deletePublishedBefore(@Param("publishedBefore") LocalDateTime publishedBefore);
+}
@@ -0,0 +1,49 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Background task run periodically by the lifecycle of its owner, one run at a time. While a run is in progress at most
+ * one tick is kept waiting and further ticks are dropped, so a slow run delays the next one instead of piling runs up.
+ * The run is expected to handle its own errors, an error signalled by the run stops the task.
+ */
+final class ShelfPeriodicTask {
+    private final Duration initialDelay;
+    private final Duration period;
+    private final Supplier<? extends Publisher<?>> run;
+
+    private volatile Disposable ticks;
+
+    ShelfPeriodicTask(Duration period, Supplier<? extends Publisher<?>> run) {
+        this(period, period, run);
+    }
+
+    ShelfPeriodicTask(Duration initialDelay, Duration period, Supplier<? extends Publisher<?>> run) {
+        this.initialDelay = initialDelay;
+        this.period = period;
+        this.run = run;
+    }
+
+    void start() {
+        ticks = Flux.interval(initialDelay, period)
+                .onBackpressureDrop()
+                .concatMap(tick -> run.get(), 1)
+                .subscribe();
+    }
+
+    void stop() {
+        Disposable current = ticks;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    boolean isRunning() {
+        Disposable current = ticks;
+        return current != null && !current.isDisposed();
+    }
+}
@@ -2,6 +2,7 @@ package pl.codehouse.restaurant.shelf;
 
 import java.util.List;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -20,4 +21,32 @@ public interface ShelfQueryService {
 
     @Transactional(readOnly = true)
     Mono<List<ShelfDto>> findAllAvailableItems();
+
+    /**
+     * Stream available Shelf objects as they are read from the db, without buffering the whole listing.
+     *
+     * @return Flux of ShelfDto with quantity above zero.
+     */
+    @Transactional(readOnly = true)
+    Flux<ShelfDto> streamAvailableItems();
+
+    /**
+     * Fetch a page of available Shelf objects ordered by menuItemId.
+     *
+     * @param after menuItemId of the last item of the previous page, 0 for the first page.
+     * @param limit maximum number of items of the page.
+     * @return page of ShelfDto with quantity above zero.
+     */
+    @Transactional(readOnly = true)
+    Mono<List<ShelfDto>> findAvailableItemsPage(int after, int limit);
+
+    /**
+     * Fetch Shelf objects changed after the given high-water mark.
+     *
+     * @param sinceVersion high-water mark returned by the previous call, 0 for all items.
+     * @param limit        maximum number of returned items.
+     * @return ShelfChangesDto with the changed items and the new high-water mark.
+     */
+    @Transactional(readOnly = true)
+    Mono<ShelfChangesDto> findChangesSince(long sinceVersion, int limit);
 }
@@ -1,33 +1,52 @@
 package pl.codehouse.restaurant.shelf;
 
 import java.util.List;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
 class ShelfQueryServiceImpl implements ShelfQueryService {
-    private static final String ITEMS_BY_MENU_ITEM_ID = "itemsByMenuItemId";
-    private static final String AVAILABLE_ITEMS = "availableItems";
+    private final ShelfShardRouter shardRouter;
+    private final ShelfCache shelfCache;
 
-    private final ShelfRepository shelfRepository;
-
-    ShelfQueryServiceImpl(ShelfRepository shelfRepository) {
-        this.shelfRepository = shelfRepository;
+    ShelfQueryServiceImpl(ShelfShardRouter shardRouter, ShelfCache shelfCache) {
+        this.shardRouter = shardRouter;
+        this.shelfCache = shelfCache;
     }
 
     @Override
-    @Cacheable(ITEMS_BY_MENU_ITEM_ID)
     public Mono<ShelfDto> findByMenuItemId(int menuItemId) {
-        return shelfRepository.findByMenuItemId(menuItemId)
-                .map(ShelfDto::from);
+        return shelfCache.getByMenuItemId(menuItemId, id -> shardRouter.findByMenuItemId(id)
+                .map(ShelfDto::from));
     }
 
     @Override
-    @Cacheable(AVAILABLE_ITEMS)
     public Mono<List<ShelfDto>> findAllAvailableItems() {
-        return shelfRepository.findByQuantityAbove(0)
+        return shelfCache.getAvailableItems(() -> shardRouter.findByQuantityAbove(0)
+                .map(ShelfDto::from)
+                .collectList());
+    }
+
+    @Override
+    public Flux<ShelfDto> streamAvailableItems() {
+        return shardRouter.findByQuantityAbove(0)
+                .map(ShelfDto::from);
+    }
+
+    @Override
+    public Mono<List<ShelfDto>> findAvailableItemsPage(int after, int limit) {
+        return shardRouter.findAvailableAfter(after, limit)
                 .map(ShelfDto::from)
                 .collectList();
     }
+
+    @Override
+    public Mono<ShelfChangesDto> findChangesSince(long sinceVersion, int limit) {
+        return shardRouter.findChangedAfter(sinceVersion, limit)
+                .collectList()
+                .map(changes -> ShelfChangesDto.from(changes, sinceVersion));
+    }
 }
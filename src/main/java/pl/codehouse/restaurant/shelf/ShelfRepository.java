@@ -1,5 +1,7 @@
 package pl.codehouse.restaurant.shelf;
 
+import java.time.LocalDateTime;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
@@ -13,6 +15,188 @@ interface ShelfRepository extends ReactiveCrudRepository<ShelfEntity, Integer> {
 
     Mono<Boolean> existsByMenuItemId(Integer menuItemId);
 
-    @Query("SELECT * FROM shelf WHERE quantity >= :quantity")
+    @Query("SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at FROM shelf WHERE quantity >= :quantity")
     Flux<ShelfEntity> findByQuantityAbove(@Param("quantity") Integer quantity);
+
+    /**
+     * Finds the next page of available items ordered by menu item id, starting after the given menu item id.
+     * Keyset pagination keeps the cost of a page independent of its position in the listing.
+     */
+    @Query("""
+            SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+              FROM shelf
+             WHERE quantity > 0 AND menu_item_id > :after
+             ORDER BY menu_item_id
+             LIMIT :limit
+            """)
+    Flux<ShelfEntity> findAvailableAfter(@Param("after") Integer after, @Param("limit") Integer limit);
+
+    /**
+     * Finds the next page of shelf rows ordered by menu item id, starting after the given menu item id, whatever their quantity.
+     * Used by the in-memory engine, which knows the current quantities better than the shelf table.
+     */
+    @Query("""
+            SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+              FROM shelf
+             WHERE menu_item_id > :after
+             ORDER BY menu_item_id
+             LIMIT :limit
+            """)
+    Flux<ShelfEntity> findAfter(@Param("after") Integer after, @Param("limit") Integer limit);
+
+    /**
+     * Finds rows written by transactions after the given transaction id, in the order of their transactions.
+     * The transaction id is stamped by a trigger on every insert and update of the shelf table. Only transactions older
+     * than the xmin of the current snapshot are read, they are all finished, so no transaction can commit below
+     * the returned ids later. A page never splits the rows of a transaction, so it may hold more than the limit of rows.
+     */
+    @Query("""
+            WITH changed AS (SELECT menu_item_name, menu_item_id, quantity, version, change_xid
+                               FROM shelf
+                              WHERE change_xid > CAST(CAST(:changeXid AS TEXT) AS XID8)
+                                AND change_xid < PG_SNAPSHOT_XMIN(PG_CURRENT_SNAPSHOT())),
+                 page AS (SELECT change_xid FROM changed ORDER BY change_xid LIMIT :limit)
+            SELECT menu_item_name, menu_item_id, quantity, version, CAST(CAST(change_xid AS TEXT) AS BIGINT) AS change_xid
+              FROM changed
+             WHERE change_xid <= (SELECT MAX(change_xid) FROM page)
+             ORDER BY changed.change_xid, menu_item_id
+            """)
+    Flux<ShelfChangeEntity> findChangedAfter(@Param("changeXid") Long changeXid, @Param("limit") Integer limit);
+
+    /**
+     * Inserts a new menu item in a single statement, unless a row of the menu item already exists.
+     *
+     * @return the inserted row, or empty when the menu item is already on the shelf.
+     */
+    @Query("""
+            INSERT INTO shelf (menu_item_name, menu_item_id, quantity, version, updated_at)
+            VALUES (:menuItemName, :menuItemId, :quantity, 1, :updatedAt)
+            ON CONFLICT (menu_item_id) DO NOTHING
+            RETURNING *
+            """)
+    Mono<ShelfEntity> insertIfAbsent(@Param("menuItemName") String menuItemName,
+                                     @Param("menuItemId") Integer menuItemId,
+                                     @Param("quantity") Integer quantity,
+                                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically applies a signed quantity delta to the given menu item in a single statement.
+     * The row is only updated when the resulting quantity does not drop below the reserved quantity,
+     * so concurrent TAKEs can never oversell the item nor take reserved items.
+     *
+     * @return the updated row, or empty when the menu item is missing or there is not enough quantity on the shelf.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity + :delta, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved + :delta >= 0
+            RETURNING id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+            """)
+    Mono<ShelfEntity> updateQuantityIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                                @Param("delta") Integer delta,
+                                                @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically applies the net quantity delta of several coalesced updates of the menu item in a single statement.
+     * Each of the updates counts as a version of the row, so callers of the coalesced updates get distinct versions.
+     * The row is only updated when the quantity not held by reservations covers the lowest running total of the deltas
+     * in their arrival order, so none of the updates overdraws the shelf on its own, even when a later ADD makes up for it.
+     *
+     * @return the updated row, or empty when the menu item is missing or there is not enough quantity on the shelf.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity + :delta, version = version + :updates, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved + :lowestDelta >= 0
+            RETURNING id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+            """)
+    Mono<ShelfEntity> updateNetQuantityIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                                   @Param("delta") Integer delta,
+                                                   @Param("lowestDelta") Integer lowestDelta,
+                                                   @Param("updates") Integer updates,
+                                                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Locks the row of the menu item until the end of the transaction.
+     *
+     * @return the quantity not held by reservations, or empty when the menu item is missing.
+     */
+    @Query("SELECT quantity - reserved FROM shelf WHERE menu_item_id = :menuItemId FOR UPDATE")
+    Mono<Integer> lockAvailableQuantity(@Param("menuItemId") Integer menuItemId);
+
+    /**
+     * Locks the rows of the menu items until the end of the transaction, in the order of their menu item ids,
+     * so concurrent batches on overlapping menu items wait on each other instead of deadlocking.
+     *
+     * @return the ids of the locked menu items, missing menu items are not part of the result.
+     */
+    @Query("SELECT menu_item_id FROM shelf WHERE menu_item_id = ANY(:menuItemIds::int[]) ORDER BY menu_item_id FOR UPDATE")
+    Flux<Integer> lockMenuItems(@Param("menuItemIds") Integer[] menuItemIds);
+
+    /**
+     * Atomically adds the quantity to the reserved quantity of the menu item, when that many items are not reserved yet.
+     *
+     * @return the updated row, or empty when the menu item is missing or there is not enough quantity available.
+     */
+    @Query("""
+            UPDATE shelf
+               SET reserved = reserved + :quantity, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved >= :quantity
+            RETURNING id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+            """)
+    Mono<ShelfEntity> reserveIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                         @Param("quantity") Integer quantity,
+                                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Settles a reservation of the menu item, taking the given quantity from the shelf and freeing the reserved quantity.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity - :taken, reserved = reserved - :reserved, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId
+            RETURNING id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+            """)
+    Mono<ShelfEntity> settleReservation(@Param("menuItemId") Integer menuItemId,
+                                        @Param("reserved") Integer reserved,
+                                        @Param("taken") Integer taken,
+                                        @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically applies signed quantity deltas to several menu items in a single statement.
+     * The menu item ids and deltas are matched by their position in the arrays, each menu item id may occur only once.
+     * Rows whose quantity would drop below their reserved quantity at the lowest delta, the lowest running total of
+     * the updates netted into the delta, are left untouched.
+     *
+     * @return the updated rows, missing or not available menu items are not part of the result.
+     */
+    @Query("""
+            UPDATE shelf s
+               SET quantity = s.quantity + d.delta, version = s.version + 1, updated_at = :updatedAt
+              FROM UNNEST(:menuItemIds::int[], :deltas::int[], :lowestDeltas::int[]) AS d(menu_item_id, delta, lowest_delta)
+             WHERE s.menu_item_id = d.menu_item_id AND s.quantity - s.reserved + d.lowest_delta >= 0
+            RETURNING s.id, s.menu_item_name, s.menu_item_id, s.quantity, s.reserved, s.version, s.updated_at
+            """)
+    Flux<ShelfEntity> updateQuantitiesIfAvailable(@Param("menuItemIds") Integer[] menuItemIds,
+                                                  @Param("deltas") Integer[] deltas,
+                                                  @Param("lowestDeltas") Integer[] lowestDeltas,
+                                                  @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Writes quantities kept by the in-memory inventory back to the shelf table in a single statement.
+     * A row is only overwritten by a newer version, so replaying an already persisted change is a no-op.
+     *
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            UPDATE shelf s
+               SET quantity = d.quantity, version = d.version, updated_at = :updatedAt
+              FROM UNNEST(:menuItemIds::int[], :quantities::int[], :versions::bigint[]) AS d(menu_item_id, quantity, version)
+             WHERE s.menu_item_id = d.menu_item_id AND s.version < d.version
+            """)
+    Mono<Integer> persistQuantities(@Param("menuItemIds") Integer[] menuItemIds,
+                                    @Param("quantities") Integer[] quantities,
+                                    @Param("versions") Long[] versions,
+                                    @Param("updatedAt") LocalDateTime updatedAt);
 }
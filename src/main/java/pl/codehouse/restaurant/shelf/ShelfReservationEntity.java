@@ -0,0 +1,16 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("shelf_reservation")
+record ShelfReservationEntity(
+        @Id UUID id,
+        int menuItemId,
+        int quantity,
+        LocalDateTime expiresAt,
+        LocalDateTime createdAt
+) {
+}
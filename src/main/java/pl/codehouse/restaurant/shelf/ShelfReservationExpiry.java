@@ -0,0 +1,91 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Releases reservations that were not confirmed in time. Deadlines scheduled on this node expire through the
+ * {@link ReservationTimingWheel}, while a periodic sweep of the reservation table releases those the wheel does not know about,
+ * e.g. reservations made before a restart.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ShelfReservationExpiry implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfReservationExpiry.class);
+    private static final int RELEASE_CONCURRENCY = 16;
+
+    private final Clock clock;
+    private final ReservationTimingWheel timingWheel;
+    private final ShelfReservationRepository reservationRepository;
+    private final ShelfService shelfService;
+    private final ShelfReservationProperties properties;
+
+    private final ShelfPeriodicTask ticks;
+    private final ShelfPeriodicTask sweeps;
+
+    ShelfReservationExpiry(Clock clock,
+                           ReservationTimingWheel timingWheel,
+                           ShelfReservationRepository reservationRepository,
+                           ShelfService shelfService,
+                           ShelfReservationProperties properties) {
+        this.clock = clock;
+        this.timingWheel = timingWheel;
+        this.reservationRepository = reservationRepository;
+        this.shelfService = shelfService;
+        this.properties = properties;
+        this.ticks = new ShelfPeriodicTask(properties.tick(), () -> releaseAll(Flux.defer(() -> Flux.fromIterable(timingWheel.advance()))));
+        this.sweeps = new ShelfPeriodicTask(Duration.ZERO, properties.sweepInterval(), this::sweep);
+    }
+
+    @Override
+    public void start() {
+        ticks.start();
+        sweeps.start();
+    }
+
+    @Override
+    public void stop() {
+        ticks.stop();
+        sweeps.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ticks.isRunning() || sweeps.isRunning();
+    }
+
+    Mono<Long> sweep() {
+        return releaseAll(reservationRepository.findExpiredIds(LocalDateTime.now(clock), properties.sweepBatchSize()))
+                .doOnNext(released -> {
+                    if (released > 0) {
+                        log.info("Released {} expired reservation(s) found by the sweep", released);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("Error thrown while sweeping expired reservations. Error Message: {}", error.getMessage(), error);
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Releases the reservations, skipping those already confirmed or released in the meantime.
+     */
+    private Mono<Long> releaseAll(Flux<UUID> reservationIds) {
+        return reservationIds
+                .flatMap(reservationId -> Mono.defer(() -> shelfService.action(new ReleaseReservationOnShelfAction(reservationId)))
+                        .onErrorResume(error -> {
+                            log.debug("Skipping expiry of reservation {}. Error Message: {}", reservationId, error.getMessage());
+                            return Mono.empty();
+                        }), RELEASE_CONCURRENCY)
+                .count();
+    }
+}
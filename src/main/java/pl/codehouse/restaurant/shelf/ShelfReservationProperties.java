@@ -0,0 +1,28 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of time-limited reservations of shelf items.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.reservation".</p>
+ *
+ * @param holdDuration   time after which an unconfirmed reservation is released.
+ * @param tick           resolution of the timing wheel expiring reservations.
+ * @param wheelSize      number of buckets of each level of the timing wheel.
+ * @param sweepInterval  interval in which expired reservations are looked up in the database,
+ *                       e.g. those scheduled on this node before a restart.
+ * @param sweepBatchSize maximum number of expired reservations released by one sweep.
+ */
+@ConfigurationProperties("app.shelf.reservation")
+public record ShelfReservationProperties(
+        @DefaultValue("5m") Duration holdDuration,
+        @DefaultValue("100ms") Duration tick,
+        @DefaultValue("512") int wheelSize,
+        @DefaultValue("30s") Duration sweepInterval,
+        @DefaultValue("500") int sweepBatchSize
+) {
+}
@@ -0,0 +1,42 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+interface ShelfReservationRepository extends ReactiveCrudRepository<ShelfReservationEntity, UUID> {
+
+    /**
+     * Stores a new reservation, unless a reservation with the same id already exists.
+     *
+     * @return the stored reservation, or empty when the id is already taken.
+     */
+    @Query("""
+            INSERT INTO shelf_reservation (id, menu_item_id, quantity, expires_at, created_at)
+            VALUES (:id, :menuItemId, :quantity, :expiresAt, :createdAt)
+            ON CONFLICT (id) DO NOTHING
+            RETURNING *
+            """)
+    Mono<ShelfReservationEntity> insertIfAbsent(@Param("id") UUID id,
+                                                @Param("menuItemId") Integer menuItemId,
+                                                @Param("quantity") Integer quantity,
+                                                @Param("expiresAt") LocalDateTime expiresAt,
+                                                @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Removes the reservation, so it is settled by exactly one confirm, release or expiry.
+     *
+     * @return the removed reservation, or empty when it is already settled.
+     */
+    @Query("DELETE FROM shelf_reservation WHERE id = :id RETURNING *")
+    Mono<ShelfReservationEntity> deleteReturning(@Param("id") UUID id);
+
+    @Query("SELECT id FROM shelf_reservation WHERE expires_at <= :now ORDER BY expires_at LIMIT :limit")
+    Flux<UUID> findExpiredIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
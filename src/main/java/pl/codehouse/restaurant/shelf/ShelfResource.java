@@ -1,96 +1,335 @@
 package pl.codehouse.restaurant.shelf;
 
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON_VALUE;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
  * REST controller for managing shelf operations.
  * This class handles HTTP requests related to shelf items, including fetching, updating, and adding items.
+ * Requests and responses are JSON by default, clients may send and accept CBOR instead.
  */
 @Validated
 @RestController
 @RequestMapping(value = "/shelf",
-        consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_PROBLEM_JSON_VALUE},
-        produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_PROBLEM_JSON_VALUE})
+        consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_PROBLEM_JSON_VALUE, APPLICATION_CBOR_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_PROBLEM_JSON_VALUE, APPLICATION_CBOR_VALUE})
 class ShelfResource {
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final ShelfQueryService queryService;
     private final ShelfService shelfService;
+    private final ShelfChangeStream changeStream;
+    private final ShelfIdempotencyStore idempotencyStore;
+    private final ShelfResponseCache responseCache;
+    private final ShelfEngineProperties engineProperties;
 
     /**
      * Constructs a new ShelfResource with the given services.
      *
      * @param queryService The service for querying shelf items.
      * @param shelfService The service for performing actions on shelf items.
+     * @param changeStream The stream of live changes of shelf items.
+     * @param idempotencyStore The store of responses to requests sent with an Idempotency-Key.
+     * @param responseCache The cache of serialized responses of the shelf reads.
+     * @param engineProperties The properties of the engine holding the shelf inventory.
      */
-    ShelfResource(ShelfQueryService queryService, ShelfService shelfService) {
+    ShelfResource(ShelfQueryService queryService,
+                  ShelfService shelfService,
+                  ShelfChangeStream changeStream,
+                  ShelfIdempotencyStore idempotencyStore,
+                  ShelfResponseCache responseCache,
+                  ShelfEngineProperties engineProperties) {
         this.queryService = queryService;
         this.shelfService = shelfService;
+        this.changeStream = changeStream;
+        this.idempotencyStore = idempotencyStore;
+        this.responseCache = responseCache;
+        this.engineProperties = engineProperties;
     }
 
     /**
-     * Fetches all available items on the shelf.
+     * Fetches all available items on the shelf. The response carries an ETag, a request with a matching If-None-Match
+     * gets 304 Not Modified without a body.
      *
-     * @return A Mono emitting a List of ShelfDto objects representing available items.
+     * @param request The request, its Accept and Accept-Encoding headers select the representation of the body.
+     * @return A Mono emitting the serialized List of ShelfDto objects representing available items.
      */
     @GetMapping
-    Mono<List<ShelfDto>> fetchAvailableItemsOnShelf() {
-        return queryService.findAllAvailableItems();
+    Mono<ResponseEntity<byte[]>> fetchAvailableItemsOnShelf(ServerHttpRequest request) {
+        return queryService.findAllAvailableItems()
+                .map(items -> responseCache.availableItems(items, acceptedMediaType(request)))
+                .map(response -> toResponseEntity(response, request));
+    }
+
+    /**
+     * Streams all available items on the shelf as newline delimited JSON, writing each item as soon as it is read.
+     *
+     * @return A Flux emitting ShelfDto objects representing available items.
+     */
+    @GetMapping(consumes = MediaType.ALL_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<ShelfDto> streamAvailableItemsOnShelf() {
+        return queryService.streamAvailableItems();
+    }
+
+    /**
+     * Fetches one page of available items on the shelf ordered by menu item ID.
+     *
+     * @param after The menu item ID of the last item of the previous page, 0 for the first page.
+     * @param limit The maximum number of items of the page.
+     * @return A Mono emitting a List of ShelfDto objects representing available items.
+     */
+    @GetMapping(params = "limit")
+    Mono<List<ShelfDto>> fetchPageOfAvailableItemsOnShelf(@RequestParam(defaultValue = "0") @PositiveOrZero int after,
+                                                          @RequestParam @Positive @Max(5000) int limit) {
+        return queryService.findAvailableItemsPage(after, limit);
+    }
+
+    /**
+     * Streams changes of shelf items as Server-Sent Events, starting with the available items when a snapshot is requested.
+     * Snapshot and live changes are merged, so a client keeps the highest version received per menu item.
+     *
+     * @param snapshot Whether the stream starts with all available items.
+     * @return A Flux emitting the ShelfDto of each changed item.
+     */
+    @GetMapping(value = "/stream", consumes = MediaType.ALL_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ShelfDto> streamChangesOfShelf(@RequestParam(defaultValue = "false") boolean snapshot) {
+        Flux<ShelfDto> changes = changeStream.changes();
+        if (!snapshot) {
+            return changes;
+        }
+        return Flux.merge(queryService.findAllAvailableItems().flatMapIterable(Function.identity()), changes);
+    }
+
+    /**
+     * Fetches the items changed since the given high-water mark, so clients can sync without re-downloading the whole shelf.
+     *
+     * @param sinceVersion The high-water mark returned by the previous call, 0 to fetch all items.
+     * @param limit The maximum number of items returned at once.
+     * @return A Mono emitting the changed items and the high-water mark to pass on the next call.
+     */
+    @GetMapping("/changes")
+    Mono<ShelfChangesDto> fetchChangesOfShelf(@RequestParam(defaultValue = "0") @PositiveOrZero long sinceVersion,
+                                              @RequestParam(defaultValue = "500") @Positive @Max(5000) int limit) {
+        return queryService.findChangesSince(sinceVersion, limit);
     }
 
     /**
-     * Fetches a specific item from the shelf by its menu item ID.
+     * Fetches a specific item from the shelf by its menu item ID. The response carries an ETag, a request with a matching
+     * If-None-Match gets 304 Not Modified without a body.
      *
      * @param menuItemId The ID of the menu item to fetch.
-     * @return A Mono emitting the ShelfDto for the specified menu item.
+     * @param request The request, its Accept and Accept-Encoding headers select the representation of the body.
+     * @return A Mono emitting the serialized ShelfDto for the specified menu item.
      */
     @GetMapping("/{menuItemId}")
-    Mono<ShelfDto> fetchByMenuItem(@PathVariable
-                                   @Positive Integer menuItemId) {
-        return queryService.findByMenuItemId(menuItemId);
+    Mono<ResponseEntity<byte[]>> fetchByMenuItem(@PathVariable
+                                                 @Positive Integer menuItemId,
+                                                 ServerHttpRequest request) {
+        return queryService.findByMenuItemId(menuItemId)
+                .map(item -> responseCache.item(item, acceptedMediaType(request)))
+                .map(response -> toResponseEntity(response, request));
     }
 
     /**
-     * Updates an existing item on the shelf.
+     * Updates an existing item on the shelf. A retried request with the same Idempotency-Key is not applied again,
+     * it gets the response of the first request instead.
      *
      * @param menuItemId The ID of the menu item to update.
+     * @param idempotencyKey The optional client chosen key identifying retries of the same request.
      * @param request The update request containing the update type and quantity.
      * @return A Mono emitting the updated ShelfDto.
      */
     @PutMapping("/{menuItemId}")
     Mono<ShelfDto> updateByMenuItem(@PathVariable
                                     @Positive Integer menuItemId,
+                                    @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                    @Size(min = 1, max = 255) String idempotencyKey,
                                     @RequestBody
                                     @NotNull
                                     @Valid UpdateMenuItemOnShelfRequest request) {
         UpdateItemOnShelfAction action = new UpdateItemOnShelfAction(menuItemId, request.updateType(), request.quantity());
-        return shelfService.action(action);
+        return actionOnce(idempotencyKey, action);
     }
 
     /**
-     * Adds a new item to the shelf.
+     * Adds a new item to the shelf. A retried request with the same Idempotency-Key is not applied again,
+     * it gets the response of the first request instead.
      *
+     * @param idempotencyKey The optional client chosen key identifying retries of the same request.
      * @param action The action containing details of the new item to add.
      * @return A Mono emitting the newly created ShelfDto.
      */
     @PostMapping
     @ResponseStatus(CREATED)
-    Mono<ShelfDto> addByMenuItem(@RequestBody @NotNull @Valid CreateNewItemOnShelfAction action) {
+    Mono<ShelfDto> addByMenuItem(@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                 @Size(min = 1, max = 255) String idempotencyKey,
+                                 @RequestBody @NotNull @Valid CreateNewItemOnShelfAction action) {
+        return actionOnce(idempotencyKey, action);
+    }
+
+    /**
+     * Reserves a quantity of an existing item on the shelf for a limited time.
+     * The reservation expires unless it is confirmed or released before.
+     *
+     * @param menuItemId The ID of the menu item to reserve.
+     * @param request The reservation request containing the client chosen reservation ID and the quantity.
+     * @return A Mono emitting the ShelfDto of the reserved item.
+     */
+    @PostMapping("/{menuItemId}/reservations")
+    @ResponseStatus(CREATED)
+    Mono<ShelfDto> reserveMenuItem(@PathVariable
+                                   @Positive Integer menuItemId,
+                                   @RequestBody
+                                   @NotNull
+                                   @Valid ReserveMenuItemOnShelfRequest request) {
+        return reservationAction(new ReserveItemOnShelfAction(request.reservationId(), menuItemId, request.quantity()));
+    }
+
+    /**
+     * Takes the reserved quantity of an item from the shelf.
+     *
+     * @param reservationId The ID of the reservation to confirm.
+     * @return A Mono emitting the ShelfDto of the taken item.
+     */
+    @PostMapping("/reservations/{reservationId}/confirmation")
+    Mono<ShelfDto> confirmReservation(@PathVariable UUID reservationId) {
+        return reservationAction(new ConfirmReservationOnShelfAction(reservationId));
+    }
+
+    /**
+     * Gives the reserved quantity of an item back to the shelf.
+     *
+     * @param reservationId The ID of the reservation to release.
+     * @return A Mono emitting the ShelfDto of the released item.
+     */
+    @DeleteMapping("/reservations/{reservationId}")
+    Mono<ShelfDto> releaseReservation(@PathVariable UUID reservationId) {
+        return reservationAction(new ReleaseReservationOnShelfAction(reservationId));
+    }
+
+    /**
+     * Updates several existing items on the shelf within one transaction.
+     * Either all updates are applied or none of them.
+     *
+     * @param action The action containing the update type and quantity for each of the menu items.
+     * @return A Mono emitting a List of the updated ShelfDto objects.
+     */
+    @PostMapping("/batch")
+    Mono<List<ShelfDto>> updateBatchOfMenuItems(@RequestBody @NotNull @Valid UpdateItemsOnShelfAction action) {
+        return shelfService.batchAction(action);
+    }
+
+    // the quality of the most specific range including JSON or CBOR decides, on a tie the range listed first wins and JSON when it is the same range
+    private static MediaType acceptedMediaType(ServerHttpRequest request) {
+        List<MediaType> accept = request.getHeaders().getAccept();
+        MediaType jsonRange = mostSpecificRange(accept, MediaType.APPLICATION_JSON);
+        MediaType cborRange = mostSpecificRange(accept, MediaType.APPLICATION_CBOR);
+        double json = jsonRange == null ? 0 : jsonRange.getQualityValue();
+        double cbor = cborRange == null ? 0 : cborRange.getQualityValue();
+        if (cbor > json || (cbor > 0 && cbor == json && accept.indexOf(cborRange) < accept.indexOf(jsonRange))) {
+            return MediaType.APPLICATION_CBOR;
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private static MediaType mostSpecificRange(List<MediaType> accept, MediaType mediaType) {
+        MediaType range = null;
+        for (MediaType accepted : accept) {
+            if (accepted.includes(mediaType) && (range == null || accepted.isMoreSpecific(range))) {
+                range = accepted;
+            }
+        }
+        return range;
+    }
+
+    // a matching If-None-Match is answered with 304 by the result handler of the ResponseEntity
+    private static ResponseEntity<byte[]> toResponseEntity(ShelfResponseCache.ShelfResponse response, ServerHttpRequest request) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(response.etag())
+                .contentType(response.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (response.gzip() != null && acceptsGzip(request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING))) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip());
+        }
+        return builder.body(response.body());
+    }
+
+    // gzip is accepted when listed, or covered by "*", with a non-zero quality
+    private static boolean acceptsGzip(List<String> acceptEncoding) {
+        boolean wildcard = false;
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parameters = coding.split(";");
+                String name = parameters[0].trim();
+                if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                    return quality(parameters) > 0;
+                }
+                if (name.equals("*")) {
+                    wildcard = quality(parameters) > 0;
+                }
+            }
+        }
+        return wildcard;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private Mono<ShelfDto> reservationAction(ActionEvent action) {
+        if (!engineProperties.supportsReservations()) {
+            return Mono.error(new ResponseStatusException(NOT_FOUND, "Reservations are not available in the %s engine mode"
+                    .formatted(engineProperties.mode())));
+        }
         return shelfService.action(action);
     }
+
+    private Mono<ShelfDto> actionOnce(String idempotencyKey, ActionEvent action) {
+        if (idempotencyKey == null) {
+            return shelfService.action(action);
+        }
+        return idempotencyStore.execute(idempotencyKey, action, transactionScope -> shelfService.action(action, transactionScope));
+    }
 }
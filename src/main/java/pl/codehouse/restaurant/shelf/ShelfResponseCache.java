@@ -0,0 +1,145 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serialized responses of the shelf reads, kept in memory together with their strong ETag.
+ * The ETag of an item is its menu item ID and version, the ETag of the list of available items is a SHA-256 digest
+ * of the menu item IDs and versions in the order of the list. A cached response is served only for the very same
+ * content it was serialized from, an equal ETag alone is not trusted. Responses larger than {@link #GZIP_THRESHOLD}
+ * bytes are also kept gzipped. JSON and CBOR responses are cached separately and have distinct ETags.
+ */
+@Component
+class ShelfResponseCache {
+    static final int GZIP_THRESHOLD = 1024;
+    private static final int ETAG_DIGEST_BYTES = 16;
+
+    private final Representation json;
+    private final Representation cbor;
+
+    ShelfResponseCache(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder, ShelfCacheProperties properties) {
+        this.json = new Representation(MediaType.APPLICATION_JSON, "", objectMapper, properties.maximumSize());
+        this.cbor = new Representation(MediaType.APPLICATION_CBOR, "-cbor",
+                                       ShelfCodecsConfiguration.cborMapper(objectMapperBuilder), properties.maximumSize());
+    }
+
+    ShelfResponse item(ShelfDto item, MediaType mediaType) {
+        return representationOf(mediaType).item(item);
+    }
+
+    ShelfResponse availableItems(List<ShelfDto> items, MediaType mediaType) {
+        return representationOf(mediaType).availableItems(items);
+    }
+
+    private Representation representationOf(MediaType mediaType) {
+        return MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType) ? cbor : json;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        var bytes = new ByteArrayOutputStream(body.length / 4);
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serialized response of a shelf read.
+     *
+     * @param etag The strong ETag of the response, quoted.
+     * @param mediaType The media type of the body.
+     * @param body The serialized body.
+     * @param gzip The gzipped body, null when the body is too small to be worth compressing.
+     */
+    record ShelfResponse(String etag, MediaType mediaType, byte[] body, byte[] gzip) {
+    }
+
+    private record ItemResponse(ShelfDto item, ShelfResponse response) {
+    }
+
+    private record AvailableItemsResponse(List<ShelfDto> items, ShelfResponse response) {
+    }
+
+    private static final class Representation {
+        private final MediaType mediaType;
+        private final String etagSuffix;
+        private final ObjectMapper objectMapper;
+        private final Cache<Integer, ItemResponse> itemsByMenuItemId;
+        private final AtomicReference<AvailableItemsResponse> availableItems = new AtomicReference<>();
+
+        private Representation(MediaType mediaType, String etagSuffix, ObjectMapper objectMapper, long maximumSize) {
+            this.mediaType = mediaType;
+            this.etagSuffix = etagSuffix;
+            this.objectMapper = objectMapper;
+            this.itemsByMenuItemId = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .build();
+        }
+
+        ShelfResponse item(ShelfDto item) {
+            ItemResponse cached = itemsByMenuItemId.getIfPresent(item.menuItemId());
+            if (cached != null && cached.item().equals(item)) {
+                return cached.response();
+            }
+            String etag = "\"" + item.menuItemId() + "-" + item.version() + etagSuffix + "\"";
+            ShelfResponse response = serialize(etag, item);
+            itemsByMenuItemId.put(item.menuItemId(), new ItemResponse(item, response));
+            return response;
+        }
+
+        ShelfResponse availableItems(List<ShelfDto> items) {
+            AvailableItemsResponse cached = availableItems.get();
+            // the query cache hands out the same list until a write drops it, so the comparison is mostly an identity check
+            if (cached != null && (cached.items() == items || cached.items().equals(items))) {
+                return cached.response();
+            }
+            ShelfResponse response = serialize(availableItemsEtag(items), items);
+            availableItems.set(new AvailableItemsResponse(items, response));
+            return response;
+        }
+
+        private String availableItemsEtag(List<ShelfDto> items) {
+            MessageDigest digest = sha256();
+            ByteBuffer pair = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+            for (ShelfDto item : items) {
+                digest.update(pair.clear().putInt(item.menuItemId()).putLong(item.version()).flip());
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, ETAG_DIGEST_BYTES) + etagSuffix + "\"";
+        }
+
+        private ShelfResponse serialize(String etag, Object value) {
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(value);
+                return new ShelfResponse(etag, mediaType, body, body.length > GZIP_THRESHOLD ? gzip(body) : null);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize shelf response " + etag, e);
+            }
+        }
+    }
+}
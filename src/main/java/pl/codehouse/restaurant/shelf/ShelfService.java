@@ -1,5 +1,7 @@
 package pl.codehouse.restaurant.shelf;
 
+import java.util.List;
+import java.util.function.UnaryOperator;
 import pl.codehouse.commons.ActionEvent;
 import reactor.core.publisher.Mono;
 
@@ -15,4 +17,22 @@ public interface ShelfService {
      * @return ShelfDto after the action is performed.
      */
     Mono<ShelfDto> action(ActionEvent action);
+
+    /**
+     * Update given Shelf object, applying the given scope to the update within its transaction, so steps recorded
+     * by the scope are committed together with the update. Such an update is never coalesced with other updates.
+     *
+     * @param action           by which we do the update.
+     * @param transactionScope applied to the update within its transaction.
+     * @return ShelfDto after the action is performed.
+     */
+    Mono<ShelfDto> action(ActionEvent action, UnaryOperator<Mono<ShelfDto>> transactionScope);
+
+    /**
+     * Update several Shelf objects within one transaction.
+     *
+     * @param action by which we do the update.
+     * @return list of ShelfDto after the action is performed on all of them.
+     */
+    Mono<List<ShelfDto>> batchAction(ActionEvent action);
 }
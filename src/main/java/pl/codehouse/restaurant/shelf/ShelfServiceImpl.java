@@ -1,10 +1,14 @@
 package pl.codehouse.restaurant.shelf;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import pl.codehouse.commons.ActionEvent;
 import pl.codehouse.commons.ApplicableCommand;
 import pl.codehouse.commons.ExecutionResult;
@@ -13,21 +17,121 @@ import reactor.core.publisher.Mono;
 @Service
 class ShelfServiceImpl implements ShelfService {
     private static final Logger log = LoggerFactory.getLogger(ShelfServiceImpl.class);
+    private static final UnaryOperator<Mono<ShelfDto>> NO_SCOPE = UnaryOperator.identity();
 
-    private final List<ApplicableCommand<ActionEvent, ShelfDto>> shelfCommands;
+    private final CommandDispatcher<ShelfDto> shelfCommands;
+    private final CommandDispatcher<List<ShelfDto>> shelfBatchCommands;
+    private final TransactionalOperator transactionalOperator;
+    private final ShelfCommandLanes commandLanes;
+    private final ShelfChangeStream changeStream;
+    private final ShelfCache shelfCache;
+    private final ShelfCommandInterceptor[] interceptors;
+    private final ShelfWriteCoalescer writeCoalescer;
 
-    ShelfServiceImpl(List<ApplicableCommand<ActionEvent, ShelfDto>> shelfCommands) {
-        this.shelfCommands = shelfCommands;
+    ShelfServiceImpl(List<ApplicableCommand<ActionEvent, ShelfDto>> shelfCommands,
+                     List<ApplicableCommand<ActionEvent, List<ShelfDto>>> shelfBatchCommands,
+                     TransactionalOperator transactionalOperator,
+                     ShelfCommandLanes commandLanes,
+                     ShelfChangeStream changeStream,
+                     ShelfCache shelfCache,
+                     ObjectProvider<ShelfCommandInterceptor> interceptors,
+                     ObjectProvider<ShelfWriteCoalescer> writeCoalescer) {
+        this.shelfCommands = new CommandDispatcher<>(shelfCommands);
+        this.shelfBatchCommands = new CommandDispatcher<>(shelfBatchCommands);
+        this.transactionalOperator = transactionalOperator;
+        this.commandLanes = commandLanes;
+        this.changeStream = changeStream;
+        this.shelfCache = shelfCache;
+        this.interceptors = interceptors.orderedStream().toArray(ShelfCommandInterceptor[]::new);
+        this.writeCoalescer = writeCoalescer.getIfAvailable();
     }
 
     @Override
-    @Transactional
     public Mono<ShelfDto> action(ActionEvent action) {
-        log.info("Trying to executing command applicable for action: {} ...", action.getClass().getSimpleName());
-        return shelfCommands.stream()
-                .filter(command -> command.isApplicable(action))
-                .findFirst()
-                .map(command -> command.execute(action).map(ExecutionResult::handle))
-                .orElseThrow(() -> new IllegalArgumentException("Missing configuration for the following action: " + action));
+        return action(action, NO_SCOPE);
+    }
+
+    /**
+     * Executes the action in the lane of its menu item, so actions on one menu item are applied one after another
+     * instead of racing for the same row. Actions without a single menu item are executed directly.
+     * Quantity updates may be coalesced with concurrent updates of the same menu item, which are then written together
+     * in the lane of the menu item, unless a transaction scope is given.
+     */
+    @Override
+    public Mono<ShelfDto> action(ActionEvent action, UnaryOperator<Mono<ShelfDto>> transactionScope) {
+        Mono<ShelfDto> result = switch (action) {
+            case CreateNewItemOnShelfAction create -> commandLanes.submit(create.menuItemId(), execute(shelfCommands, action, transactionScope));
+            case UpdateItemOnShelfAction update when transactionScope == NO_SCOPE && writeCoalescer != null
+                                                     && writeCoalescer.isApplicable(update) ->
+                    intercept(action, writeCoalescer.submit(update));
+            case UpdateItemOnShelfAction update -> commandLanes.submit(update.menuItemId(), execute(shelfCommands, action, transactionScope));
+            case ReserveItemOnShelfAction reserve -> commandLanes.submit(reserve.menuItemId(), execute(shelfCommands, action, transactionScope));
+            default -> execute(shelfCommands, action, transactionScope);
+        };
+        // emitted once the command is committed, so subscribers never see a change that is rolled back
+        return result.doOnNext(changeStream::emit);
+    }
+
+    @Override
+    public Mono<List<ShelfDto>> batchAction(ActionEvent action) {
+        return execute(shelfBatchCommands, action, UnaryOperator.identity())
+                .doOnNext(changeStream::emitAll);
+    }
+
+    private <R> Mono<R> execute(CommandDispatcher<R> commands, ActionEvent action, UnaryOperator<Mono<R>> transactionScope) {
+        log.debug("Executing command applicable for action: {}", action);
+        ApplicableCommand<ActionEvent, R> command = commands.commandFor(action);
+        Mono<R> result = transactionScope.apply(command.execute(action).map(ExecutionResult::handle));
+        // commands on the in-memory inventory persist their changes asynchronously and need no database transaction
+        if (!(command instanceof InMemoryShelfCommand)) {
+            result = result.as(transactionalOperator::transactional)
+                    .doOnNext(this::cacheCommitted);
+        }
+        return intercept(action, result);
+    }
+
+    // written once the transaction is committed, so a rolled back change is never served from the cache
+    private void cacheCommitted(Object result) {
+        switch (result) {
+            case ShelfDto item -> shelfCache.put(item);
+            case List<?> items -> items.forEach(this::cacheCommitted);
+            default -> {
+            }
+        }
+    }
+
+    private <R> Mono<R> intercept(ActionEvent action, Mono<R> execution) {
+        Mono<R> result = execution;
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            result = interceptors[i].intercept(action, result);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the command of an action by the class of the action. Commands decide on their applicability
+     * by the type of the action only, so each class is resolved once and later actions are dispatched with a single lookup.
+     */
+    private static final class CommandDispatcher<R> {
+        private final List<ApplicableCommand<ActionEvent, R>> commands;
+        private final Map<Class<?>, ApplicableCommand<ActionEvent, R>> commandsByActionType = new ConcurrentHashMap<>();
+
+        private CommandDispatcher(List<ApplicableCommand<ActionEvent, R>> commands) {
+            this.commands = List.copyOf(commands);
+        }
+
+        private ApplicableCommand<ActionEvent, R> commandFor(ActionEvent action) {
+            ApplicableCommand<ActionEvent, R> command = commandsByActionType.get(action.getClass());
+            if (command != null) {
+                return command;
+            }
+            command = commands.stream()
+                    .filter(candidate -> candidate.isApplicable(action))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Missing configuration for the following action: " + action));
+            log.info("Dispatching actions of type {} to {}", action.getClass().getSimpleName(), command.getClass().getSimpleName());
+            commandsByActionType.put(action.getClass(), command);
+            return command;
+        }
     }
 }
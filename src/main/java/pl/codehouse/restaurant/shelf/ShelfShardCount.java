@@ -0,0 +1,7 @@
+package pl.codehouse.restaurant.shelf;
+
+/**
+ * Number of shards of a sharded menu item, including its shelf row.
+ */
+record ShelfShardCount(int menuItemId, int shards) {
+}
@@ -0,0 +1,16 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("shelf_shard")
+record ShelfShardEntity(
+        @Id long id,
+        int menuItemId,
+        int shard,
+        int quantity,
+        long version,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,26 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of sharded counters for hot menu items in the "database" engine mode.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.shards".</p>
+ *
+ * @param enabled      whether menu items are split into shards once they get hot. Only then reads and conditional updates
+ *                     sum up the shards of a menu item, so shards left over from an earlier run must be drained before disabling it.
+ * @param count        number of shards of a hot menu item, including its shelf row.
+ * @param hotThreshold number of writes of a menu item within one window on this node, from which it is split into shards.
+ * @param window       window in which writes are counted, also the interval in which shards split by other nodes are picked up.
+ */
+@ConfigurationProperties("app.shelf.shards")
+public record ShelfShardProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8") int count,
+        @DefaultValue("500") int hotThreshold,
+        @DefaultValue("1s") Duration window
+) {
+}
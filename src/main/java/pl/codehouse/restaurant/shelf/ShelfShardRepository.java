@@ -0,0 +1,223 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.LocalDateTime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+interface ShelfShardRepository extends ReactiveCrudRepository<ShelfShardEntity, Long> {
+
+    @Query("SELECT menu_item_id, COUNT(*)::int + 1 AS shards FROM shelf_shard GROUP BY menu_item_id")
+    Flux<ShelfShardCount> findShardCounts();
+
+    @Query("SELECT CAST(:menuItemId AS INT) AS menu_item_id, COUNT(*)::int + 1 AS shards FROM shelf_shard WHERE menu_item_id = :menuItemId")
+    Mono<ShelfShardCount> findShardCount(@Param("menuItemId") Integer menuItemId);
+
+    /**
+     * Finds the menu item with its quantity and version summed up over all of its shards.
+     */
+    @Query("SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at FROM shelf_total WHERE menu_item_id = :menuItemId")
+    Mono<ShelfEntity> findTotalByMenuItemId(@Param("menuItemId") Integer menuItemId);
+
+    @Query("SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at FROM shelf_total WHERE quantity >= :quantity")
+    Flux<ShelfEntity> findTotalsByQuantityAbove(@Param("quantity") Integer quantity);
+
+    /**
+     * Finds the next page of available items summed up over their shards, ordered by menu item id.
+     * The shelf row of a sharded menu item may be empty while its shards are not, so the partial index of available
+     * shelf rows cannot be used here.
+     */
+    @Query("""
+            SELECT id, menu_item_name, menu_item_id, quantity, reserved, version, updated_at
+              FROM shelf_total
+             WHERE quantity > 0 AND menu_item_id > :after
+             ORDER BY menu_item_id
+             LIMIT :limit
+            """)
+    Flux<ShelfEntity> findAvailableTotalsAfter(@Param("after") Integer after, @Param("limit") Integer limit);
+
+    /**
+     * Same as {@link ShelfRepository#findChangedAfter(Long, Integer)}, also picking up the writes of the shards.
+     * A menu item is reported with its total quantity and the latest transaction id of its shards.
+     */
+    @Query("""
+            WITH changed AS (SELECT menu_item_name, menu_item_id, quantity, version, change_xid
+                               FROM shelf_total
+                              WHERE menu_item_id IN (SELECT menu_item_id FROM shelf WHERE change_xid > CAST(CAST(:changeXid AS TEXT) AS XID8)
+                                                     UNION
+                                                     SELECT menu_item_id FROM shelf_shard WHERE change_xid > CAST(CAST(:changeXid AS TEXT) AS XID8))
+                                AND change_xid < PG_SNAPSHOT_XMIN(PG_CURRENT_SNAPSHOT())),
+                 page AS (SELECT change_xid FROM changed ORDER BY change_xid LIMIT :limit)
+            SELECT menu_item_name, menu_item_id, quantity, version, CAST(CAST(change_xid AS TEXT) AS BIGINT) AS change_xid
+              FROM changed
+             WHERE change_xid <= (SELECT MAX(change_xid) FROM page)
+             ORDER BY changed.change_xid, menu_item_id
+            """)
+    Flux<ShelfChangeEntity> findTotalsChangedAfter(@Param("changeXid") Long changeXid, @Param("limit") Integer limit);
+
+    /**
+     * Same as {@link ShelfRepository#updateQuantityIfAvailable(Integer, Integer, LocalDateTime)}, returning the quantity
+     * and version summed up over all shards of the menu item. Only its shelf row is updated.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity + :delta, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved + :delta >= 0
+            RETURNING id, menu_item_name, menu_item_id,
+                      quantity + COALESCE((SELECT SUM(h.quantity) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::int AS quantity,
+                      reserved,
+                      version + COALESCE((SELECT SUM(h.version) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::bigint AS version,
+                      updated_at
+            """)
+    Mono<ShelfEntity> updateTotalQuantityIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                                     @Param("delta") Integer delta,
+                                                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link ShelfRepository#updateNetQuantityIfAvailable(Integer, Integer, Integer, Integer, LocalDateTime)}, returning
+     * the quantity and version summed up over all shards of the menu item.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity + :delta, version = version + :updates, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved + :lowestDelta >= 0
+            RETURNING id, menu_item_name, menu_item_id,
+                      quantity + COALESCE((SELECT SUM(h.quantity) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::int AS quantity,
+                      reserved,
+                      version + COALESCE((SELECT SUM(h.version) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::bigint AS version,
+                      updated_at
+            """)
+    Mono<ShelfEntity> updateTotalNetQuantityIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                                        @Param("delta") Integer delta,
+                                                        @Param("lowestDelta") Integer lowestDelta,
+                                                        @Param("updates") Integer updates,
+                                                        @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link ShelfRepository#reserveIfAvailable(Integer, Integer, LocalDateTime)}, returning the quantity
+     * and version summed up over all shards of the menu item.
+     */
+    @Query("""
+            UPDATE shelf
+               SET reserved = reserved + :quantity, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND quantity - reserved >= :quantity
+            RETURNING id, menu_item_name, menu_item_id,
+                      quantity + COALESCE((SELECT SUM(h.quantity) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::int AS quantity,
+                      reserved,
+                      version + COALESCE((SELECT SUM(h.version) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::bigint AS version,
+                      updated_at
+            """)
+    Mono<ShelfEntity> reserveTotalIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                              @Param("quantity") Integer quantity,
+                                              @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link ShelfRepository#settleReservation(Integer, Integer, Integer, LocalDateTime)}, returning the quantity
+     * and version summed up over all shards of the menu item.
+     */
+    @Query("""
+            UPDATE shelf
+               SET quantity = quantity - :taken, reserved = reserved - :reserved, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId
+            RETURNING id, menu_item_name, menu_item_id,
+                      quantity + COALESCE((SELECT SUM(h.quantity) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::int AS quantity,
+                      reserved,
+                      version + COALESCE((SELECT SUM(h.version) FROM shelf_shard h WHERE h.menu_item_id = shelf.menu_item_id), 0)::bigint AS version,
+                      updated_at
+            """)
+    Mono<ShelfEntity> settleTotalReservation(@Param("menuItemId") Integer menuItemId,
+                                             @Param("reserved") Integer reserved,
+                                             @Param("taken") Integer taken,
+                                             @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link ShelfRepository#updateQuantitiesIfAvailable(Integer[], Integer[], Integer[], LocalDateTime)}, returning
+     * the quantities and versions summed up over all shards of the menu items.
+     */
+    @Query("""
+            UPDATE shelf s
+               SET quantity = s.quantity + d.delta, version = s.version + 1, updated_at = :updatedAt
+              FROM UNNEST(:menuItemIds::int[], :deltas::int[], :lowestDeltas::int[]) AS d(menu_item_id, delta, lowest_delta)
+             WHERE s.menu_item_id = d.menu_item_id AND s.quantity - s.reserved + d.lowest_delta >= 0
+            RETURNING s.id, s.menu_item_name, s.menu_item_id,
+                      s.quantity + COALESCE((SELECT SUM(h.quantity) FROM shelf_shard h WHERE h.menu_item_id = s.menu_item_id), 0)::int AS quantity,
+                      s.reserved,
+                      s.version + COALESCE((SELECT SUM(h.version) FROM shelf_shard h WHERE h.menu_item_id = s.menu_item_id), 0)::bigint AS version,
+                      s.updated_at
+            """)
+    Flux<ShelfEntity> updateTotalQuantitiesIfAvailable(@Param("menuItemIds") Integer[] menuItemIds,
+                                                       @Param("deltas") Integer[] deltas,
+                                                       @Param("lowestDeltas") Integer[] lowestDeltas,
+                                                       @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Applies a signed quantity delta to one shard of the menu item, unless its quantity would drop below zero.
+     * Reserved items are kept on the shelf row, so a shard needs no further availability check.
+     *
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Query("""
+            UPDATE shelf_shard
+               SET quantity = quantity + :delta, version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId AND shard = :shard AND quantity + :delta >= 0
+            """)
+    Mono<Integer> updateShardIfAvailable(@Param("menuItemId") Integer menuItemId,
+                                         @Param("shard") Integer shard,
+                                         @Param("delta") Integer delta,
+                                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Splits the menu item into the given number of shards in a single statement. The quantity of the shelf row
+     * not held by reservations is spread evenly over the new shards, the remainder and the reserved items stay on the shelf row.
+     *
+     * @return number of updated shelf rows, zero when the menu item is missing.
+     */
+    @Modifying
+    @Query("""
+            WITH item AS (
+                SELECT menu_item_id, GREATEST(quantity - reserved, 0) / :shards AS share
+                  FROM shelf
+                 WHERE menu_item_id = :menuItemId
+                   FOR UPDATE
+            ), created AS (
+                INSERT INTO shelf_shard (menu_item_id, shard, quantity, version, updated_at)
+                SELECT i.menu_item_id, g.shard, i.share, 0, :updatedAt
+                  FROM item i, GENERATE_SERIES(1, :shards - 1) AS g(shard)
+                ON CONFLICT (menu_item_id, shard) DO NOTHING
+                RETURNING quantity
+            )
+            UPDATE shelf
+               SET quantity = quantity - (SELECT COALESCE(SUM(quantity), 0) FROM created), version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId
+            """)
+    Mono<Integer> createShards(@Param("menuItemId") Integer menuItemId,
+                               @Param("shards") Integer shards,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Moves the quantity of all shards of the menu item back to its shelf row in a single statement.
+     * Used when no single shard holds enough items for a TAKE, or before actions working on the shelf row only.
+     *
+     * @return number of updated shelf rows.
+     */
+    @Modifying
+    @Query("""
+            WITH drained AS (
+                UPDATE shelf_shard h
+                   SET quantity = 0, version = h.version + 1, updated_at = :updatedAt
+                  FROM (SELECT shard, quantity FROM shelf_shard WHERE menu_item_id = :menuItemId AND quantity > 0 ORDER BY shard FOR UPDATE) d
+                 WHERE h.menu_item_id = :menuItemId AND h.shard = d.shard
+                RETURNING d.quantity
+            )
+            UPDATE shelf
+               SET quantity = quantity + (SELECT COALESCE(SUM(quantity), 0) FROM drained), version = version + 1, updated_at = :updatedAt
+             WHERE menu_item_id = :menuItemId
+            """)
+    Mono<Integer> drainShards(@Param("menuItemId") Integer menuItemId, @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,245 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Routes quantity updates of hot menu items to their shards. A menu item whose writes on this node cross the hot threshold
+ * within one window is split into several rows, its shelf row being the first shard. ADDs go to a random shard, TAKEs start
+ * at a random shard and move on to the next one when it runs dry, so concurrent writes rarely wait on the same row lock.
+ * Only when no single shard holds enough items, the shards are drained back into the shelf row before taking from it.
+ * Reads and conditional updates of the shelf go through the router as well: while sharding is enabled they report
+ * the quantity and version of a menu item summed up over its shards, otherwise the plain shelf statements are used.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ShelfShardRouter implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ShelfShardRouter.class);
+
+    private final Clock clock;
+    private final ShelfRepository repository;
+    private final ShelfShardRepository shardRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ShelfShardProperties properties;
+
+    private final Map<Integer, Integer> shardsByMenuItemId = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> writesByMenuItemId = new ConcurrentHashMap<>();
+    private final Set<Integer> splitting = ConcurrentHashMap.newKeySet();
+
+    private final ShelfPeriodicTask refresher;
+
+    ShelfShardRouter(Clock clock,
+                     ShelfRepository repository,
+                     ShelfShardRepository shardRepository,
+                     TransactionalOperator transactionalOperator,
+                     ShelfShardProperties properties) {
+        this.clock = clock;
+        this.repository = repository;
+        this.shardRepository = shardRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+        this.refresher = new ShelfPeriodicTask(Duration.ZERO, properties.window(), this::refresh);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        refresher.start();
+    }
+
+    @Override
+    public void stop() {
+        refresher.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher.isRunning();
+    }
+
+    boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    boolean isSharded(int menuItemId) {
+        return shardsByMenuItemId.containsKey(menuItemId);
+    }
+
+    /**
+     * Counts a write of the menu item in the current window and splits it into shards once it gets hot.
+     * The split runs in its own transaction, the write which crossed the threshold is not delayed by it.
+     */
+    void recordWrite(int menuItemId) {
+        if (!properties.enabled() || isSharded(menuItemId)) {
+            return;
+        }
+        LongAdder writes = writesByMenuItemId.computeIfAbsent(menuItemId, key -> new LongAdder());
+        writes.increment();
+        if (writes.sum() >= properties.hotThreshold() && splitting.add(menuItemId)) {
+            split(menuItemId)
+                    .doFinally(signal -> splitting.remove(menuItemId))
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Applies a signed quantity delta to one of the shards of the menu item.
+     *
+     * @return the menu item with its quantity summed up over all shards, or empty when there is not enough quantity on the shelf.
+     */
+    Mono<ShelfEntity> apply(int menuItemId, int delta, LocalDateTime updatedAt) {
+        int shards = shardsByMenuItemId.getOrDefault(menuItemId, 1);
+        int first = ThreadLocalRandom.current().nextInt(shards);
+        Mono<Boolean> applied = delta >= 0
+                ? applyOnShard(menuItemId, first, delta, updatedAt)
+                : Flux.range(0, shards)
+                        .concatMap(offset -> applyOnShard(menuItemId, (first + offset) % shards, delta, updatedAt))
+                        .filter(Boolean::booleanValue)
+                        .next()
+                        .switchIfEmpty(Mono.defer(() -> shardRepository.drainShards(menuItemId, updatedAt)
+                                .then(applyOnShard(menuItemId, 0, delta, updatedAt))));
+        return applied
+                .filter(Boolean::booleanValue)
+                .flatMap(done -> shardRepository.findTotalByMenuItemId(menuItemId));
+    }
+
+    /**
+     * Moves the quantity of all shards of the menu item back to its shelf row, for actions working on the shelf row only.
+     */
+    Mono<Void> consolidate(int menuItemId, LocalDateTime updatedAt) {
+        return shardRepository.drainShards(menuItemId, updatedAt).then();
+    }
+
+    /**
+     * Picks up the shards of a menu item split by another node since the last refresh and moves their quantity back
+     * to its shelf row. Used on the failure path of actions working on the shelf row only, like the retry of a rejected TAKE.
+     *
+     * @return whether the menu item is sharded and has been consolidated.
+     */
+    Mono<Boolean> consolidateIfSplit(int menuItemId, LocalDateTime updatedAt) {
+        if (!properties.enabled()) {
+            return Mono.just(false);
+        }
+        return refresh(menuItemId)
+                .filter(Boolean::booleanValue)
+                .flatMap(sharded -> consolidate(menuItemId, updatedAt).thenReturn(true))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Picks up the shards of a menu item split by another node since the last refresh.
+     *
+     * @return whether the menu item is sharded.
+     */
+    Mono<Boolean> refresh(int menuItemId) {
+        return shardRepository.findShardCount(menuItemId)
+                .filter(count -> count.shards() > 1)
+                .doOnNext(count -> shardsByMenuItemId.put(count.menuItemId(), count.shards()))
+                .hasElement();
+    }
+
+    /**
+     * Starts a new window of counted writes and picks up menu items split by other nodes.
+     */
+    Mono<Integer> refresh() {
+        writesByMenuItemId.clear();
+        return shardRepository.findShardCounts()
+                .doOnNext(count -> shardsByMenuItemId.put(count.menuItemId(), count.shards()))
+                .count()
+                .map(Long::intValue)
+                .onErrorResume(error -> {
+                    log.error("Error thrown while refreshing the shards of hot menu items. Error Message: {}", error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
+
+    Mono<ShelfEntity> findByMenuItemId(int menuItemId) {
+        return properties.enabled() ? shardRepository.findTotalByMenuItemId(menuItemId) : repository.findByMenuItemId(menuItemId);
+    }
+
+    Flux<ShelfEntity> findByQuantityAbove(int quantity) {
+        return properties.enabled() ? shardRepository.findTotalsByQuantityAbove(quantity) : repository.findByQuantityAbove(quantity);
+    }
+
+    Flux<ShelfEntity> findAvailableAfter(int after, int limit) {
+        return properties.enabled() ? shardRepository.findAvailableTotalsAfter(after, limit) : repository.findAvailableAfter(after, limit);
+    }
+
+    Flux<ShelfChangeEntity> findChangedAfter(long changeXid, int limit) {
+        return properties.enabled() ? shardRepository.findTotalsChangedAfter(changeXid, limit) : repository.findChangedAfter(changeXid, limit);
+    }
+
+    Mono<ShelfEntity> updateQuantityIfAvailable(int menuItemId, int delta, LocalDateTime updatedAt) {
+        return properties.enabled()
+                ? shardRepository.updateTotalQuantityIfAvailable(menuItemId, delta, updatedAt)
+                : repository.updateQuantityIfAvailable(menuItemId, delta, updatedAt);
+    }
+
+    Mono<ShelfEntity> updateNetQuantityIfAvailable(int menuItemId, int delta, int lowestDelta, int updates, LocalDateTime updatedAt) {
+        return properties.enabled()
+                ? shardRepository.updateTotalNetQuantityIfAvailable(menuItemId, delta, lowestDelta, updates, updatedAt)
+                : repository.updateNetQuantityIfAvailable(menuItemId, delta, lowestDelta, updates, updatedAt);
+    }
+
+    Mono<ShelfEntity> reserveIfAvailable(int menuItemId, int quantity, LocalDateTime updatedAt) {
+        return properties.enabled()
+                ? shardRepository.reserveTotalIfAvailable(menuItemId, quantity, updatedAt)
+                : repository.reserveIfAvailable(menuItemId, quantity, updatedAt);
+    }
+
+    Mono<ShelfEntity> settleReservation(int menuItemId, int reserved, int taken, LocalDateTime updatedAt) {
+        return properties.enabled()
+                ? shardRepository.settleTotalReservation(menuItemId, reserved, taken, updatedAt)
+                : repository.settleReservation(menuItemId, reserved, taken, updatedAt);
+    }
+
+    Flux<ShelfEntity> updateQuantitiesIfAvailable(Integer[] menuItemIds, Integer[] deltas, Integer[] lowestDeltas, LocalDateTime updatedAt) {
+        return properties.enabled()
+                ? shardRepository.updateTotalQuantitiesIfAvailable(menuItemIds, deltas, lowestDeltas, updatedAt)
+                : repository.updateQuantitiesIfAvailable(menuItemIds, deltas, lowestDeltas, updatedAt);
+    }
+
+    /**
+     * The batch statements write the shelf rows only, also when sharding is enabled, so their locks are the ones taken.
+     */
+    Flux<Integer> lockMenuItems(Integer[] menuItemIds) {
+        return repository.lockMenuItems(menuItemIds);
+    }
+
+    Mono<Integer> split(int menuItemId) {
+        return shardRepository.createShards(menuItemId, properties.count(), LocalDateTime.now(clock))
+                .as(transactionalOperator::transactional)
+                .doOnNext(updated -> {
+                    if (updated > 0) {
+                        shardsByMenuItemId.put(menuItemId, properties.count());
+                        log.info("Split hot menu item {} into {} shards", menuItemId, properties.count());
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("Error thrown while splitting menu item {} into shards. Error Message: {}", menuItemId, error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
+
+    private Mono<Boolean> applyOnShard(int menuItemId, int shard, int delta, LocalDateTime updatedAt) {
+        return shard == 0
+                ? repository.updateQuantityIfAvailable(menuItemId, delta, updatedAt).hasElement()
+                : shardRepository.updateShardIfAvailable(menuItemId, shard, delta, updatedAt).map(updated -> updated > 0);
+    }
+}
@@ -0,0 +1,18 @@
+package pl.codehouse.restaurant.shelf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the live stream of shelf changes.
+ *
+ * <p>The properties are typically loaded from the application's configuration
+ * file using the prefix "app.shelf.stream".</p>
+ *
+ * @param bufferSize number of changes buffered per subscriber, the oldest changes are dropped for subscribers falling behind.
+ */
+@ConfigurationProperties("app.shelf.stream")
+public record ShelfStreamProperties(
+        @DefaultValue("256") int bufferSize
+) {
+}
@@ -0,0 +1,277 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces concurrent quantity updates of one menu item into a single write. Updates arriving within the window
+ * after the first one are collected into a batch, which is written in the lane of the menu item as one conditional
+ * update of the net quantity delta. The update is conditional on the lowest running total of the deltas in their arrival
+ * order, so a TAKE is never covered by an ADD arriving after it. Only when the batch cannot be applied as a whole, the row
+ * is locked and the updates are replayed in their arrival order, rejecting the TAKEs which would overdraw the shelf. Each caller is completed once
+ * the batch is committed, with the state of the menu item right after its own update.
+ */
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class ShelfWriteCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(ShelfWriteCoalescer.class);
+    static final String BATCH_SIZE_METRIC = "shelf.coalescer.batch.size";
+
+    private final Clock clock;
+    private final ShelfRepository repository;
+    private final ShelfCache shelfCache;
+    private final ShelfEventOutbox eventOutbox;
+    private final ShelfShardRouter shardRouter;
+    private final ShelfCommandLanes commandLanes;
+    private final TransactionalOperator transactionalOperator;
+    private final ShelfCoalescerProperties properties;
+    private final DistributionSummary batchSizes;
+
+    private final Map<Integer, Batch> openBatches = new ConcurrentHashMap<>();
+
+    ShelfWriteCoalescer(Clock clock,
+                        ShelfRepository repository,
+                        ShelfCache shelfCache,
+                        ShelfEventOutbox eventOutbox,
+                        ShelfShardRouter shardRouter,
+                        ShelfCommandLanes commandLanes,
+                        TransactionalOperator transactionalOperator,
+                        ShelfCoalescerProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.clock = clock;
+        this.repository = repository;
+        this.shelfCache = shelfCache;
+        this.eventOutbox = eventOutbox;
+        this.shardRouter = shardRouter;
+        this.commandLanes = commandLanes;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC).register(meterRegistry);
+    }
+
+    /**
+     * Sharded menu items spread their writes over several rows already, their updates are not coalesced.
+     */
+    boolean isApplicable(UpdateItemOnShelfAction action) {
+        return properties.enabled() && action.updateType() != null && !shardRouter.isSharded(action.menuItemId());
+    }
+
+    /**
+     * Coalesced updates count as writes of the menu item as well, so a hot menu item is still split into shards.
+     */
+    Mono<ShelfDto> submit(UpdateItemOnShelfAction action) {
+        return Mono.create(sink -> {
+            shardRouter.recordWrite(action.menuItemId());
+            enqueue(new PendingUpdate(action, sink));
+        });
+    }
+
+    private void enqueue(PendingUpdate update) {
+        int menuItemId = update.action.menuItemId();
+        while (true) {
+            Batch batch = openBatches.computeIfAbsent(menuItemId, Batch::new);
+            int size = batch.add(update);
+            if (size == 0) {
+                // closed in the meantime, the update goes to the next batch
+                continue;
+            }
+            if (size == 1) {
+                Schedulers.parallel().schedule(() -> close(batch), properties.window().toNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (size >= properties.maxBatchSize()) {
+                close(batch);
+            }
+            return;
+        }
+    }
+
+    private void close(Batch batch) {
+        openBatches.remove(batch.menuItemId, batch);
+        List<PendingUpdate> updates = batch.close();
+        if (updates.isEmpty()) {
+            return;
+        }
+        batchSizes.record(updates.size());
+        commandLanes.submit(batch.menuItemId, Mono.defer(() -> write(batch.menuItemId, updates)).as(transactionalOperator::transactional))
+                .subscribe(outcomes -> complete(updates, outcomes), error -> {
+                    log.error("Error thrown while writing {} coalesced update(s) of {}. Error Message: {}",
+                              updates.size(), batch.menuItemId, error.getMessage(), error);
+                    updates.forEach(update -> update.sink.error(new RuntimeException(error)));
+                });
+    }
+
+    Mono<List<Outcome>> write(int menuItemId, List<PendingUpdate> updates) {
+        var now = LocalDateTime.now(clock);
+        int netDelta = 0;
+        int lowestDelta = Integer.MAX_VALUE;
+        for (PendingUpdate update : updates) {
+            netDelta += update.delta();
+            lowestDelta = Math.min(lowestDelta, netDelta);
+        }
+        Throwable[] rejections = new Throwable[updates.size()];
+        return shardRouter.updateNetQuantityIfAvailable(menuItemId, netDelta, lowestDelta, updates.size(), now)
+                .map(entity -> outcomes(entity, updates, rejections))
+                .switchIfEmpty(Mono.defer(() -> writeAvailable(menuItemId, updates, now)))
+                .flatMap(outcomes -> eventOutbox.appendAll(toEvents(updates, outcomes)).thenReturn(outcomes));
+    }
+
+    /**
+     * Replays the updates against the locked row in their arrival order and writes the net delta of the accepted ones.
+     * The lock covers the shelf row only, so the shards of a sharded menu item are moved back to it first, otherwise
+     * the updates would be replayed against a part of the quantity written as the total.
+     */
+    private Mono<List<Outcome>> writeAvailable(int menuItemId, List<PendingUpdate> updates, LocalDateTime now) {
+        return shardRouter.consolidateIfSplit(menuItemId, now)
+                .then(Mono.defer(() -> repository.lockAvailableQuantity(menuItemId)))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Missing Menu item by id %s on shelf".formatted(menuItemId))))
+                .flatMap(available -> {
+                    Throwable[] rejections = new Throwable[updates.size()];
+                    int remaining = available;
+                    int acceptedDelta = 0;
+                    int lowestAcceptedDelta = Integer.MAX_VALUE;
+                    int accepted = 0;
+                    for (int i = 0; i < updates.size(); i++) {
+                        PendingUpdate update = updates.get(i);
+                        if (remaining + update.delta() < 0) {
+                            rejections[i] = new InsufficientStockException("Missing %d item(s) of %s from shelf".formatted(
+                                    update.action.quantity() - remaining, menuItemId));
+                            continue;
+                        }
+                        remaining += update.delta();
+                        acceptedDelta += update.delta();
+                        lowestAcceptedDelta = Math.min(lowestAcceptedDelta, acceptedDelta);
+                        accepted++;
+                    }
+                    log.info("Rejected {} of {} coalesced update(s) of {}", updates.size() - accepted, updates.size(), menuItemId);
+                    if (accepted == 0) {
+                        return Mono.just(outcomes(null, updates, rejections));
+                    }
+                    return shardRouter.updateNetQuantityIfAvailable(menuItemId, acceptedDelta, lowestAcceptedDelta, accepted, now)
+                            .switchIfEmpty(Mono.error(() -> new IllegalStateException("Locked menu item %s changed during coalesced write".formatted(menuItemId))))
+                            .map(entity -> outcomes(entity, updates, rejections));
+                });
+    }
+
+    /**
+     * Derives the state after each applied update from the state after the whole batch, walking back its net delta and versions.
+     */
+    private static List<Outcome> outcomes(ShelfEntity entity, List<PendingUpdate> updates, Throwable[] rejections) {
+        int quantity = entity == null ? 0 : entity.quantity();
+        long version = entity == null ? 0 : entity.version();
+        for (int i = 0; i < updates.size(); i++) {
+            if (rejections[i] == null) {
+                quantity -= updates.get(i).delta();
+                version--;
+            }
+        }
+        List<Outcome> outcomes = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            if (rejections[i] != null) {
+                outcomes.add(new Outcome(null, rejections[i]));
+                continue;
+            }
+            quantity += updates.get(i).delta();
+            version++;
+            outcomes.add(new Outcome(new ShelfDto(entity.menuItemName(), entity.menuItemId(), quantity, version), null));
+        }
+        return outcomes;
+    }
+
+    private static List<ShelfEventDto> toEvents(List<PendingUpdate> updates, List<Outcome> outcomes) {
+        List<ShelfEventDto> events = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            if (outcomes.get(i).item() != null) {
+                UpdateItemOnShelfAction action = updates.get(i).action;
+                events.add(new ShelfEventDto(EventType.of(action.updateType()), action.menuItemId(), action.quantity()));
+            }
+        }
+        return events;
+    }
+
+    private void complete(List<PendingUpdate> updates, List<Outcome> outcomes) {
+        ShelfDto latest = null;
+        for (int i = 0; i < updates.size(); i++) {
+            Outcome outcome = outcomes.get(i);
+            if (outcome.item() != null) {
+                latest = outcome.item();
+                updates.get(i).sink.success(outcome.item());
+            } else {
+                updates.get(i).sink.error(new RuntimeException(outcome.rejection()));
+            }
+        }
+        if (latest != null) {
+            shelfCache.put(latest);
+        }
+    }
+
+    record Outcome(ShelfDto item, Throwable rejection) {
+    }
+
+    static final class PendingUpdate {
+        private final UpdateItemOnShelfAction action;
+        private final MonoSink<ShelfDto> sink;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        PendingUpdate(UpdateItemOnShelfAction action, MonoSink<ShelfDto> sink) {
+            this.action = action;
+            this.sink = sink;
+            sink.onCancel(() -> cancelled.set(true));
+        }
+
+        int delta() {
+            return action.updateType() == UpdateType.TAKE ? -action.quantity() : action.quantity();
+        }
+    }
+
+    /**
+     * Updates of one menu item collected within the current window. Closing the batch hands its updates over to the writer,
+     * an update added afterwards opens the next batch.
+     */
+    private static final class Batch {
+        private final int menuItemId;
+        private final List<PendingUpdate> updates = new ArrayList<>();
+        private boolean closed;
+
+        private Batch(int menuItemId) {
+            this.menuItemId = menuItemId;
+        }
+
+        /**
+         * @return the size of the batch including the update, or zero when the batch is already closed.
+         */
+        private synchronized int add(PendingUpdate update) {
+            if (closed) {
+                return 0;
+            }
+            updates.add(update);
+            return updates.size();
+        }
+
+        /**
+         * @return the updates not cancelled by their callers, empty when the batch was closed before.
+         */
+        private synchronized List<PendingUpdate> close() {
+            if (closed) {
+                return List.of();
+            }
+            closed = true;
+            return updates.stream().filter(update -> !update.cancelled.get()).toList();
+        }
+    }
+}
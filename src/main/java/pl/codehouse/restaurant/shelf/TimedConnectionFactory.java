@@ -0,0 +1,82 @@
+package pl.codehouse.restaurant.shelf;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import java.util.concurrent.TimeUnit;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records the time from requesting a connection until the pool hands it over as the {@code r2dbc.pool.acquire} timer.
+ * The decorated factory stays reachable through {@link Wrapped#unwrap()}, which is how Spring Boot finds the pool
+ * behind it to publish its gauges, and it is disposed together with this factory.
+ */
+final class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+    static final String ACQUIRE_METRIC = "r2dbc.pool.acquire";
+
+    private final ConnectionFactory delegate;
+    private final String name;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    // resolved on the first acquire, the registry may not exist yet when the connection factory is created
+    private volatile Timer acquireTimer;
+
+    TimedConnectionFactory(ConnectionFactory delegate, String name, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.delegate = delegate;
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.<Connection>from(delegate.create())
+                    .doOnSuccess(connection -> record(System.nanoTime() - start));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable disposable && disposable.isDisposed();
+    }
+
+    private void record(long nanos) {
+        Timer timer = acquireTimer;
+        if (timer == null) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return;
+            }
+            timer = Timer.builder(ACQUIRE_METRIC)
+                    .description("Time spent waiting for a database connection")
+                    .tag("name", name)
+                    .register(registry);
+            acquireTimer = timer;
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
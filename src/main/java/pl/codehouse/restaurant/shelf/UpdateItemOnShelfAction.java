@@ -1,6 +1,8 @@
 package pl.codehouse.restaurant.shelf;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import pl.codehouse.commons.ActionEvent;
 
 /**
@@ -9,8 +11,8 @@ import pl.codehouse.commons.ActionEvent;
  * to modify the quantity of a menu item on the shelf.
  */
 public record UpdateItemOnShelfAction(
-        @JsonProperty("menuItemId") int menuItemId,
-        @JsonProperty("updateType") UpdateType updateType,
-        @JsonProperty("quantity") int quantity) implements ActionEvent {
+        @JsonProperty("menuItemId") @Min(1) int menuItemId,
+        @JsonProperty("updateType") @NotNull UpdateType updateType,
+        @JsonProperty("quantity") @Min(1) int quantity) implements ActionEvent {
 
 }
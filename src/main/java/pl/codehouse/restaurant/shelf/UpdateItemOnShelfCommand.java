@@ -2,12 +2,9 @@ package pl.codehouse.restaurant.shelf;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.function.Consumer;
-import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import pl.codehouse.commons.ActionEvent;
 import pl.codehouse.commons.ApplicableCommand;
@@ -15,18 +12,20 @@ import pl.codehouse.commons.ExecutionResult;
 import reactor.core.publisher.Mono;
 
 @Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
 class UpdateItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDto> {
     private static final Logger log = LoggerFactory.getLogger(UpdateItemOnShelfCommand.class);
-    private static final String ITEMS_BY_MENU_ITEM_ID = "itemsByMenuItemId";
 
     private final Clock clock;
-    private final ShelfRepository repository;
-    private final CacheManager cacheManager;
+    private final ShelfEventOutbox eventOutbox;
+    private final ShelfShardRouter shardRouter;
 
-    UpdateItemOnShelfCommand(Clock clock, ShelfRepository repository, CacheManager cacheManager) {
+    UpdateItemOnShelfCommand(Clock clock,
+                             ShelfEventOutbox eventOutbox,
+                             ShelfShardRouter shardRouter) {
         this.clock = clock;
-        this.repository = repository;
-        this.cacheManager = cacheManager;
+        this.eventOutbox = eventOutbox;
+        this.shardRouter = shardRouter;
     }
 
     @Override
@@ -37,13 +36,13 @@ class UpdateItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDt
     @Override
     public Mono<ExecutionResult<ShelfDto>> execute(ActionEvent context) {
         var input = (UpdateItemOnShelfAction) context;
-        return repository.findByMenuItemId(input.menuItemId())
-                .switchIfEmpty(Mono.error(new IllegalStateException("Missing Menu item by id %s on shelf".formatted(input.menuItemId()))))
-                .flatMap(validateMenuItemExists(input))
-                .map(entity -> performAction(entity, input))
-                .doOnNext(entity -> log.info("Storing entity after Action >>> {}", entity))
-                .flatMap(repository::save)
-                .doOnNext(handleCacheUpdate())
+        return Mono.fromCallable(() -> quantityDelta(input))
+                .doOnNext(delta -> shardRouter.recordWrite(input.menuItemId()))
+                .flatMap(delta -> updateQuantity(input.menuItemId(), delta))
+                .switchIfEmpty(Mono.defer(() -> rejectUpdate(input)))
+                .doOnNext(entity -> log.info("Stored entity after Action >>> {}", entity))
+                .flatMap(entity -> eventOutbox.append(new ShelfEventDto(EventType.of(input.updateType()), input.menuItemId(), input.quantity()))
+                        .thenReturn(entity))
                 .map(ShelfDto::from)
                 .map(ExecutionResult::success)
                 .onErrorResume((error) -> {
@@ -53,55 +52,46 @@ class UpdateItemOnShelfCommand implements ApplicableCommand<ActionEvent, ShelfDt
                 });
     }
 
-    private Consumer<ShelfEntity> handleCacheUpdate() {
-        return entity -> {
-            Cache cache = cacheManager.getCache(ITEMS_BY_MENU_ITEM_ID);
-            if (cache == null) {
-                return;
-            }
-            cache.put(entity.menuItemId(), entity);
-        };
+    private Mono<ShelfEntity> updateQuantity(int menuItemId, int delta) {
+        var now = LocalDateTime.now(clock);
+        return shardRouter.isSharded(menuItemId)
+                ? shardRouter.apply(menuItemId, delta, now)
+                : shardRouter.updateQuantityIfAvailable(menuItemId, delta, now);
     }
 
-    private Function<ShelfEntity, Mono<? extends ShelfEntity>> validateMenuItemExists(UpdateItemOnShelfAction input) {
-        return entity -> {
-            boolean actionApplicable = isActionApplicable(entity, input.updateType(), input.quantity());
-            if (!actionApplicable) {
-                int remainingItems = input.quantity() - entity.quantity();
-                return Mono.error(new IllegalStateException("Missing %d item(s) of %s from shelf".formatted(remainingItems, input.menuItemId())));
-            }
-            return Mono.just(entity);
-        };
+    /**
+     * Resolves why the conditional update did not touch any row. Only executed on the failure path,
+     * so a successful update stays a single round trip to the database.
+     * When the shelf holds enough items in total, the menu item may have been split into shards by another node
+     * since the last refresh, in which case the TAKE is retried on its shards.
+     */
+    private Mono<ShelfEntity> rejectUpdate(UpdateItemOnShelfAction input) {
+        return shardRouter.findByMenuItemId(input.menuItemId())
+                .switchIfEmpty(Mono.error(new IllegalStateException("Missing Menu item by id %s on shelf".formatted(input.menuItemId()))))
+                .flatMap(entity -> shardRouter.isEnabled() && entity.quantity() - entity.reserved() >= input.quantity()
+                        ? shardRouter.refresh(input.menuItemId())
+                                .filter(Boolean::booleanValue)
+                                .flatMap(sharded -> shardRouter.apply(input.menuItemId(), -input.quantity(), LocalDateTime.now(clock)))
+                                .switchIfEmpty(Mono.defer(() -> insufficientStock(input, entity)))
+                        : insufficientStock(input, entity));
     }
 
-    private ShelfEntity performAction(ShelfEntity entity, UpdateItemOnShelfAction input) {
+    private static Mono<ShelfEntity> insufficientStock(UpdateItemOnShelfAction input, ShelfEntity entity) {
+        int remainingItems = input.quantity() - (entity.quantity() - entity.reserved());
+        return Mono.error(new InsufficientStockException("Missing %d item(s) of %s from shelf".formatted(remainingItems, input.menuItemId())));
+    }
+
+    private int quantityDelta(UpdateItemOnShelfAction input) {
         return switch (input.updateType()) {
             case ADD -> {
-                var newQuantity = entity.quantity() + input.quantity();
-                var newVersion = entity.version() + 1;
-                var updateAt = LocalDateTime.now(clock);
-
-                log.info("Performing `Add` Action on entity: {} >>> Adding {} items", entity.menuItemId(), newQuantity);
-                yield new ShelfEntity(entity.id(), entity.menuItemName(), entity.menuItemId(), newQuantity, newVersion, updateAt);
+                log.info("Performing `Add` Action on entity: {} >>> Adding {} items", input.menuItemId(), input.quantity());
+                yield input.quantity();
             }
             case TAKE -> {
-                var newQuantity = entity.quantity() - input.quantity();
-                var newVersion = entity.version() + 1;
-                var updateAt = LocalDateTime.now(clock);
-
-                log.info("Performing `Take` Action on entity: {} >>> Adding {} items", entity.menuItemId(), newQuantity);
-                yield new ShelfEntity(entity.id(), entity.menuItemName(), entity.menuItemId(), newQuantity, newVersion, updateAt);
+                log.info("Performing `Take` Action on entity: {} >>> Taking {} items", input.menuItemId(), input.quantity());
+                yield -input.quantity();
             }
-            case null -> entity;
+            case null -> throw new IllegalStateException("Missing update type for menu item %s".formatted(input.menuItemId()));
         };
     }
-
-    private boolean isActionApplicable(ShelfEntity entity, UpdateType updateType, int quantity) {
-        log.info("Checking if {} action is applicable on shelf entity: {}", updateType, entity);
-        if (updateType == UpdateType.ADD) {
-            return true;
-        }
-
-        return entity.quantity() >= quantity;
-    }
 }
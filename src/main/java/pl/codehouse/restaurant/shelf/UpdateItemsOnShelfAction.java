@@ -0,0 +1,15 @@
+package pl.codehouse.restaurant.shelf;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+import pl.codehouse.commons.ActionEvent;
+
+/**
+ * Represents an action to update several existing items on the shelf at once.
+ * All updates are applied together, either every item is updated or none of them is.
+ */
+public record UpdateItemsOnShelfAction(
+        @JsonProperty("items") @NotEmpty List<@Valid UpdateItemOnShelfAction> items) implements ActionEvent {
+}
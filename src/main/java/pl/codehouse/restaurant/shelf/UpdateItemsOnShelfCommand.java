@@ -0,0 +1,124 @@
+package pl.codehouse.restaurant.shelf;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = ShelfEngineProperties.MODE_PROPERTY, havingValue = ShelfEngineProperties.DATABASE_MODE, matchIfMissing = true)
+class UpdateItemsOnShelfCommand implements ApplicableCommand<ActionEvent, List<ShelfDto>> {
+    private static final Logger log = LoggerFactory.getLogger(UpdateItemsOnShelfCommand.class);
+
+    private final Clock clock;
+    private final ShelfEventOutbox eventOutbox;
+    private final ShelfShardRouter shardRouter;
+
+    UpdateItemsOnShelfCommand(Clock clock, ShelfEventOutbox eventOutbox, ShelfShardRouter shardRouter) {
+        this.clock = clock;
+        this.eventOutbox = eventOutbox;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public boolean isApplicable(ActionEvent t) {
+        return t instanceof UpdateItemsOnShelfAction;
+    }
+
+    @Override
+    public Mono<ExecutionResult<List<ShelfDto>>> execute(ActionEvent context) {
+        var input = (UpdateItemsOnShelfAction) context;
+        return Mono.fromCallable(() -> ShelfBatchDeltas.of(input))
+                .doOnNext(deltas -> log.info("Performing batch Action on {} menu item(s) >>> {}", deltas.size(), deltas))
+                .flatMap(deltas -> shardRouter.lockMenuItems(deltas.menuItemIdArray())
+                        .then(Mono.defer(() -> consolidateShards(deltas.menuItemIds())))
+                        .thenMany(Flux.defer(() -> updateQuantities(deltas)))
+                        .collectList()
+                        .flatMap(entities -> retryOnSplitItems(deltas, entities))
+                        .flatMap(validateAllItemsUpdated(deltas.menuItemIds())))
+                .doOnNext(entities -> log.info("Stored {} entities after batch Action", entities.size()))
+                .flatMap(entities -> eventOutbox.appendAll(toEvents(input)).thenReturn(entities))
+                .map(entities -> entities.stream().map(ShelfDto::from).toList())
+                .map(ExecutionResult::success)
+                .onErrorResume((error) -> {
+                    log.error("Error thrown during execution of batch Update action on {} item(s). Error Message: {}",
+                              input.items().size(), error.getMessage(), error);
+                    return Mono.just(ExecutionResult.failure(new RuntimeException(error)));
+                });
+    }
+
+    /**
+     * The batch statement works on shelf rows only, so the quantity of sharded menu items is moved back to their shelf rows first.
+     */
+    private Mono<Void> consolidateShards(Set<Integer> menuItemIds) {
+        return Flux.fromIterable(menuItemIds)
+                .filter(shardRouter::isSharded)
+                .concatMap(menuItemId -> shardRouter.consolidate(menuItemId, LocalDateTime.now(clock)))
+                .then();
+    }
+
+    /**
+     * The rows are locked beforehand in the order of their menu item ids, as the statement itself locks them in the order
+     * of its join, which is not guaranteed across concurrent batches.
+     */
+    private Flux<ShelfEntity> updateQuantities(ShelfBatchDeltas deltas) {
+        return shardRouter.updateQuantitiesIfAvailable(deltas.menuItemIdArray(), deltas.deltaArray(), deltas.lowestDeltaArray(),
+                                                       LocalDateTime.now(clock));
+    }
+
+    /**
+     * Menu items split into shards by another node since the last refresh may be rejected by the statement, as it sees
+     * their shelf rows only. Their shards are moved back to their shelf rows and the statement is repeated for them alone,
+     * the menu items already updated are not touched again.
+     */
+    private Mono<List<ShelfEntity>> retryOnSplitItems(ShelfBatchDeltas deltas, List<ShelfEntity> entities) {
+        if (entities.size() == deltas.size() || !shardRouter.isEnabled()) {
+            return Mono.just(entities);
+        }
+        Set<Integer> updatedMenuItemIds = entities.stream()
+                .map(ShelfEntity::menuItemId)
+                .collect(Collectors.toSet());
+        var now = LocalDateTime.now(clock);
+        return Flux.fromIterable(deltas.menuItemIds())
+                .filter(menuItemId -> !updatedMenuItemIds.contains(menuItemId))
+                .filterWhen(menuItemId -> shardRouter.consolidateIfSplit(menuItemId, now))
+                .collectList()
+                .map(deltas::only)
+                .flatMapMany(splitDeltas -> splitDeltas.isEmpty() ? Flux.empty() : updateQuantities(splitDeltas))
+                .collectList()
+                .map(retried -> Stream.concat(entities.stream(), retried.stream()).toList());
+    }
+
+    private static List<ShelfEventDto> toEvents(UpdateItemsOnShelfAction input) {
+        return input.items().stream()
+                .map(item -> new ShelfEventDto(EventType.of(item.updateType()), item.menuItemId(), item.quantity()))
+                .toList();
+    }
+
+    private static Function<List<ShelfEntity>, Mono<List<ShelfEntity>>> validateAllItemsUpdated(Set<Integer> menuItemIds) {
+        return entities -> {
+            if (entities.size() == menuItemIds.size()) {
+                return Mono.just(entities);
+            }
+            Set<Integer> updatedMenuItemIds = entities.stream()
+                    .map(ShelfEntity::menuItemId)
+                    .collect(Collectors.toSet());
+            List<Integer> rejectedMenuItemIds = menuItemIds.stream()
+                    .filter(menuItemId -> !updatedMenuItemIds.contains(menuItemId))
+                    .toList();
+            return Mono.error(new InsufficientStockException("Missing menu item(s) %s on shelf or not enough quantity available".formatted(rejectedMenuItemIds)));
+        };
+    }
+}
@@ -0,0 +1,13 @@
+-- Migration script for creating the transactional outbox of shelf events
+CREATE TABLE "shelf_outbox"
+(
+    id           BIGSERIAL PRIMARY KEY,
+    event_type   TEXT      NOT NULL,
+    menu_item_id INT       NOT NULL,
+    quantity     INT       NOT NULL,
+    created_at   TIMESTAMP NOT NULL,
+    published_at TIMESTAMP
+);
+
+CREATE INDEX shelf_outbox_unpublished_idx ON "shelf_outbox" (id) WHERE published_at IS NULL;
+CREATE INDEX shelf_outbox_published_at_idx ON "shelf_outbox" (published_at) WHERE published_at IS NOT NULL;
@@ -0,0 +1,19 @@
+-- Migration script for stamping every write of a shelf row with a global, monotonically increasing change sequence
+CREATE SEQUENCE shelf_change_seq;
+
+ALTER TABLE "shelf" ADD COLUMN change_seq BIGINT NOT NULL DEFAULT NEXTVAL('shelf_change_seq');
+
+CREATE INDEX shelf_change_seq_idx ON "shelf" (change_seq);
+
+CREATE FUNCTION shelf_stamp_change_seq() RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.change_seq := NEXTVAL('shelf_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER shelf_stamp_change_seq_trg
+    BEFORE INSERT OR UPDATE ON "shelf"
+    FOR EACH ROW
+EXECUTE FUNCTION shelf_stamp_change_seq();
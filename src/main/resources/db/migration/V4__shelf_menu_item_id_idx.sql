@@ -0,0 +1,4 @@
+-- Migration script for indexing lookups of shelf rows by menu item id
+CREATE UNIQUE INDEX shelf_menu_item_id_uidx ON "shelf" (menu_item_id);
+
+CREATE INDEX shelf_available_menu_item_id_idx ON "shelf" (menu_item_id) WHERE quantity > 0;
@@ -0,0 +1,13 @@
+-- Migration script for time-limited reservations of shelf items
+ALTER TABLE "shelf" ADD COLUMN reserved INT NOT NULL DEFAULT 0;
+
+CREATE TABLE "shelf_reservation"
+(
+    id           UUID PRIMARY KEY,
+    menu_item_id INT       NOT NULL,
+    quantity     INT       NOT NULL,
+    expires_at   TIMESTAMP NOT NULL,
+    created_at   TIMESTAMP NOT NULL
+);
+
+CREATE INDEX shelf_reservation_expires_at_idx ON "shelf_reservation" (expires_at);
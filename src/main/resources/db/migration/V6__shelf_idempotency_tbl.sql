@@ -0,0 +1,14 @@
+-- Migration script for the responses of shelf requests sent with an Idempotency-Key header
+CREATE TABLE "shelf_idempotency"
+(
+    idempotency_key     VARCHAR(255) PRIMARY KEY,
+    request_fingerprint VARCHAR(64)  NOT NULL,
+    menu_item_name      VARCHAR(255),
+    menu_item_id        INT,
+    quantity            INT,
+    version             BIGINT,
+    created_at          TIMESTAMP    NOT NULL,
+    expires_at          TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX shelf_idempotency_expires_at_idx ON "shelf_idempotency" (expires_at);
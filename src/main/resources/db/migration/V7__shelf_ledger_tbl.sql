@@ -0,0 +1,27 @@
+-- Migration script for the append-only ledger of signed quantity deltas applied on top of the shelf snapshot
+CREATE TABLE "shelf_ledger"
+(
+    id           BIGSERIAL PRIMARY KEY,
+    menu_item_id INT       NOT NULL,
+    delta        INT       NOT NULL,
+    created_at   TIMESTAMP NOT NULL,
+    folded       BOOLEAN   NOT NULL DEFAULT FALSE
+);
+
+-- entries not folded into the snapshot yet form the tail of a menu item
+CREATE INDEX shelf_ledger_tail_idx ON "shelf_ledger" (menu_item_id) WHERE NOT folded;
+CREATE INDEX shelf_ledger_unfolded_idx ON "shelf_ledger" (id) WHERE NOT folded;
+
+-- current state of the shelf: the snapshot kept in the shelf table plus the tail of its ledger
+CREATE VIEW shelf_current AS
+SELECT s.id,
+       s.menu_item_name,
+       s.menu_item_id,
+       s.quantity + COALESCE(t.delta, 0)::INT AS quantity,
+       s.reserved,
+       s.version + COALESCE(t.entries, 0)     AS version,
+       COALESCE(t.created_at, s.updated_at)   AS updated_at
+  FROM shelf s
+  LEFT JOIN LATERAL (SELECT SUM(l.delta) AS delta, COUNT(*) AS entries, MAX(l.created_at) AS created_at
+                       FROM shelf_ledger l
+                      WHERE l.menu_item_id = s.menu_item_id AND NOT l.folded) t ON TRUE;
@@ -0,0 +1,36 @@
+-- Migration script for splitting the quantity of hot menu items across several rows
+-- The shelf row stays the first shard of its menu item and keeps the reserved quantity, further shards live in shelf_shard
+CREATE TABLE "shelf_shard"
+(
+    id           BIGSERIAL PRIMARY KEY,
+    menu_item_id INT       NOT NULL,
+    shard        INT       NOT NULL,
+    quantity     INT       NOT NULL,
+    version      BIGINT    NOT NULL,
+    updated_at   TIMESTAMP NOT NULL,
+    change_seq   BIGINT    NOT NULL DEFAULT NEXTVAL('shelf_change_seq'),
+    CONSTRAINT shelf_shard_menu_item_id_shard_key UNIQUE (menu_item_id, shard)
+);
+
+CREATE INDEX shelf_shard_change_seq_idx ON "shelf_shard" (change_seq);
+
+CREATE TRIGGER shelf_shard_stamp_change_seq_trg
+    BEFORE INSERT OR UPDATE ON "shelf_shard"
+    FOR EACH ROW
+EXECUTE FUNCTION shelf_stamp_change_seq();
+
+-- total state of the shelf: the shelf row summed up with the further shards of its menu item
+CREATE VIEW shelf_total AS
+SELECT s.id,
+       s.menu_item_name,
+       s.menu_item_id,
+       s.quantity + COALESCE(t.quantity, 0)::INT         AS quantity,
+       s.reserved,
+       s.version + COALESCE(t.version, 0)::BIGINT        AS version,
+       GREATEST(s.updated_at, t.updated_at)              AS updated_at,
+       GREATEST(s.change_seq, t.change_seq)              AS change_seq
+  FROM shelf s
+  LEFT JOIN LATERAL (SELECT SUM(h.quantity) AS quantity, SUM(h.version) AS version,
+                            MAX(h.updated_at) AS updated_at, MAX(h.change_seq) AS change_seq
+                       FROM shelf_shard h
+                      WHERE h.menu_item_id = s.menu_item_id) t ON TRUE;
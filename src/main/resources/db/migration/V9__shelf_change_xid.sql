@@ -0,0 +1,54 @@
+-- Migration script for stamping every write of a shelf row with the id of its writing transaction instead of a sequence
+-- A sequence value is drawn when the row is written, not when its transaction commits, so a transaction committing late
+-- makes rows visible below a high-water mark already handed out. Transaction ids older than the xmin of a snapshot
+-- belong to finished transactions only, so the change feed reads up to that xmin and never misses a late commit.
+DROP VIEW shelf_total;
+
+DROP TRIGGER shelf_stamp_change_seq_trg ON "shelf";
+DROP TRIGGER shelf_shard_stamp_change_seq_trg ON "shelf_shard";
+DROP FUNCTION shelf_stamp_change_seq();
+
+ALTER TABLE "shelf" DROP COLUMN change_seq;
+ALTER TABLE "shelf_shard" DROP COLUMN change_seq;
+DROP SEQUENCE shelf_change_seq;
+
+-- rows written before this migration share the transaction id of the migration
+ALTER TABLE "shelf" ADD COLUMN change_xid XID8 NOT NULL DEFAULT PG_CURRENT_XACT_ID();
+ALTER TABLE "shelf_shard" ADD COLUMN change_xid XID8 NOT NULL DEFAULT PG_CURRENT_XACT_ID();
+
+CREATE INDEX shelf_change_xid_idx ON "shelf" (change_xid);
+CREATE INDEX shelf_shard_change_xid_idx ON "shelf_shard" (change_xid);
+
+CREATE FUNCTION shelf_stamp_change_xid() RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.change_xid := PG_CURRENT_XACT_ID();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER shelf_stamp_change_xid_trg
+    BEFORE INSERT OR UPDATE ON "shelf"
+    FOR EACH ROW
+EXECUTE FUNCTION shelf_stamp_change_xid();
+
+CREATE TRIGGER shelf_shard_stamp_change_xid_trg
+    BEFORE INSERT OR UPDATE ON "shelf_shard"
+    FOR EACH ROW
+EXECUTE FUNCTION shelf_stamp_change_xid();
+
+-- total state of the shelf: the shelf row summed up with the further shards of its menu item
+CREATE VIEW shelf_total AS
+SELECT s.id,
+       s.menu_item_name,
+       s.menu_item_id,
+       s.quantity + COALESCE(t.quantity, 0)::INT         AS quantity,
+       s.reserved,
+       s.version + COALESCE(t.version, 0)::BIGINT        AS version,
+       GREATEST(s.updated_at, t.updated_at)              AS updated_at,
+       GREATEST(s.change_xid, t.change_xid)              AS change_xid
+  FROM shelf s
+  LEFT JOIN LATERAL (SELECT SUM(h.quantity) AS quantity, SUM(h.version) AS version,
+                            MAX(h.updated_at) AS updated_at, MAX(h.change_xid) AS change_xid
+                       FROM shelf_shard h
+                      WHERE h.menu_item_id = s.menu_item_id) t ON TRUE;
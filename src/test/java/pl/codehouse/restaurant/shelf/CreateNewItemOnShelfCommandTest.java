@@ -1,11 +1,8 @@
 package pl.codehouse.restaurant.shelf;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 
 import java.time.Clock;
 import java.time.Instant;
@@ -14,8 +11,6 @@ import java.time.ZoneOffset;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -38,8 +33,8 @@ class CreateNewItemOnShelfCommandTest {
     @Mock
     private ShelfRepository repository;
 
-    @Captor
-    private ArgumentCaptor<ShelfEntity> entityArgumentCaptor;
+    @Mock
+    private ShelfEventOutbox eventOutbox;
 
     @Spy
     private Clock clock = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
@@ -49,8 +44,9 @@ class CreateNewItemOnShelfCommandTest {
     void should_CreateNewItemOnShelf_When_CreateActionIsPassedAndItemDoesntExist() {
         // given
         ActionEvent action = new CreateNewItemOnShelfAction(MENU_ITEM_ID_ONE, MENU_ITEM_NAME_ONE, 5);
-        given(repository.existsByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(false));
-        given(repository.save(any())).willAnswer(invocation -> Mono.just(invocation.getArguments()[0]));
+        given(repository.insertIfAbsent(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, LocalDateTime.now(clock)))
+                .willReturn(Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 0, EXPECTED_NEW_VERSION, LocalDateTime.now(clock))));
+        given(eventOutbox.append(new ShelfEventDto(EventType.NEW, MENU_ITEM_ID_ONE, 5))).willReturn(Mono.empty());
 
         // when
         Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
@@ -66,17 +62,6 @@ class CreateNewItemOnShelfCommandTest {
                             .hasFieldOrPropertyWithValue("version", EXPECTED_NEW_VERSION);
                 })
                 .verifyComplete();
-
-        // and
-        then(repository).should(times(1)).save(entityArgumentCaptor.capture());
-
-        assertThat(entityArgumentCaptor.getValue())
-                .hasFieldOrPropertyWithValue("id", 0)
-                .hasFieldOrPropertyWithValue("menuItemId", MENU_ITEM_ID_ONE)
-                .hasFieldOrPropertyWithValue("menuItemName", MENU_ITEM_NAME_ONE)
-                .hasFieldOrPropertyWithValue("quantity", 5)
-                .hasFieldOrPropertyWithValue("version", EXPECTED_NEW_VERSION)
-                .hasFieldOrPropertyWithValue("updatedAt", LocalDateTime.now(clock));
     }
 
     @Test
@@ -84,7 +69,7 @@ class CreateNewItemOnShelfCommandTest {
     void should_FailToCreateNewItemOnShelf_When_CreateActionIsPassedAndItemAlreadyExists() {
         // given
         ActionEvent action = new CreateNewItemOnShelfAction(MENU_ITEM_ID_ONE, MENU_ITEM_NAME_ONE, 5);
-        given(repository.existsByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(true));
+        given(repository.insertIfAbsent(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, LocalDateTime.now(clock))).willReturn(Mono.empty());
 
         // when
         Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
@@ -101,6 +86,6 @@ class CreateNewItemOnShelfCommandTest {
                 .verifyComplete();
 
         // and
-        then(repository).should(never()).save(any());
+        then(eventOutbox).shouldHaveNoInteractions();
     }
 }
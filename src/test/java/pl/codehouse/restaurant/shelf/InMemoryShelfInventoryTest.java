@@ -0,0 +1,162 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryShelfInventoryTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+    private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
+    private static final String MENU_ITEM_NAME_TWO = "Menu Item Two";
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.parse("2025-01-03T10:15:30");
+
+    @Mock
+    private ShelfRepository repository;
+
+    @TempDir
+    private Path journalDirectory;
+
+    private InMemoryShelfInventory sut;
+
+    @BeforeEach
+    void setUp() {
+        given(repository.findAll()).willReturn(Flux.just(
+                new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 0, 1, UPDATED_AT),
+                new ShelfEntity(101, MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 1, 0, 1, UPDATED_AT)));
+        sut = newInventory();
+        sut.recover();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sut.destroy();
+    }
+
+    @Test
+    @DisplayName("should take items and record the change for the next flush when enough quantity is available")
+    void should_TakeItemsAndRecordChangeForNextFlush_When_EnoughQuantityIsAvailable() {
+        // when & then
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_ONE, -2, EventType.TAKE, 2))
+                .expectNext(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 3, 2))
+                .verifyComplete();
+
+        // and
+        InMemoryShelfInventory.FlushBatch batch = sut.drain();
+        assertThat(batch.items()).containsExactly(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 3, 2));
+        assertThat(batch.events()).containsExactly(new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2));
+    }
+
+    @Test
+    @DisplayName("should reject take and keep quantity when not enough items are available")
+    void should_RejectTakeAndKeepQuantity_When_NotEnoughItemsAreAvailable() {
+        // when & then
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_ONE, -6, EventType.TAKE, 6))
+                .expectErrorMessage("Missing 1 item(s) of 1000 from shelf")
+                .verify();
+
+        // and
+        StepVerifier.create(sut.find(MENU_ITEM_ID_ONE))
+                .expectNext(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 1))
+                .verifyComplete();
+        assertThat(sut.drain().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should change none of the items when one item of the batch is not available")
+    void should_ChangeNoneOfTheItems_When_OneItemOfBatchIsNotAvailable() {
+        // given
+        var deltas = ShelfBatchDeltas.of(new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.TAKE, 2))));
+
+        // when & then
+        StepVerifier.create(sut.applyAll(deltas))
+                .expectErrorMessage("Missing menu item(s) [1001] on shelf or not enough quantity available")
+                .verify();
+
+        // and
+        StepVerifier.create(sut.find(MENU_ITEM_ID_ONE))
+                .assertNext(item -> assertThat(item).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 1)))
+                .verifyComplete();
+        assertThat(sut.drain().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should reject the batch when a later ADD would cover an earlier TAKE of the same item")
+    void should_RejectBatch_When_LaterAddWouldCoverEarlierTakeOfTheSameItem() {
+        // given
+        var deltas = ShelfBatchDeltas.of(new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 2))));
+
+        // when & then
+        StepVerifier.create(sut.applyAll(deltas))
+                .expectErrorMessage("Missing menu item(s) [1001] on shelf or not enough quantity available")
+                .verify();
+
+        // and
+        assertThat(sut.drain().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should fill the page of available items by their in-memory quantity")
+    void should_FillPageOfAvailableItemsByInMemoryQuantity() {
+        // given
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_ONE, -5, EventType.TAKE, 5))
+                .expectNextCount(1)
+                .verifyComplete();
+        given(repository.findAfter(0, 2)).willReturn(Flux.just(
+                new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 0, 1, UPDATED_AT),
+                new ShelfEntity(101, MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 1, 0, 1, UPDATED_AT)));
+        given(repository.findAfter(MENU_ITEM_ID_TWO, 2)).willReturn(Flux.empty());
+
+        // when & then
+        StepVerifier.create(sut.findAvailableAfter(0, 2))
+                .expectNext(new ShelfDto(MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 1, 1))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should replay journaled changes not persisted before the restart")
+    void should_ReplayJournaledChangesNotPersistedBeforeRestart() throws Exception {
+        // given
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_TWO, 4, EventType.ADD, 4))
+                .expectNextCount(1)
+                .verifyComplete();
+        sut.destroy();
+
+        // when
+        sut = newInventory();
+        sut.recover();
+
+        // then
+        StepVerifier.create(sut.find(MENU_ITEM_ID_TWO))
+                .expectNext(new ShelfDto(MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 5, 2))
+                .verifyComplete();
+        InMemoryShelfInventory.FlushBatch batch = sut.drain();
+        assertThat(batch.events()).containsExactly(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_TWO, 4));
+        assertThat(batch.segments()).isNotEmpty();
+    }
+
+    private InMemoryShelfInventory newInventory() {
+        return new InMemoryShelfInventory(repository, new ShelfEngineProperties(
+                ShelfEngineProperties.IN_MEMORY_MODE, journalDirectory, false, Duration.ofMillis(100)));
+    }
+}
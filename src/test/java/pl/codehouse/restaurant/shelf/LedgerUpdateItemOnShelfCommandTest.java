@@ -0,0 +1,97 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.inOrder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerUpdateItemOnShelfCommandTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
+
+    @InjectMocks
+    private LedgerUpdateItemOnShelfCommand sut;
+
+    @Mock
+    private ShelfLedgerRepository ledgerRepository;
+
+    @Mock
+    private ShelfEventOutbox eventOutbox;
+
+    @Spy
+    private Clock clock = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("should take the lock of the menu item before appending ADD to the ledger")
+    void should_TakeLockOfMenuItemBeforeAppendingAddToLedger() {
+        // given
+        var current = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 0, 3, LocalDateTime.now(clock));
+        given(ledgerRepository.lockMenuItem(MENU_ITEM_ID_ONE)).willReturn(Mono.just(true));
+        given(ledgerRepository.appendIfAvailable(MENU_ITEM_ID_ONE, 2, LocalDateTime.now(clock))).willReturn(Mono.just(current));
+        given(eventOutbox.append(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 2))).willReturn(Mono.empty());
+
+        // when & then
+        StepVerifier.create(sut.execute(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 2)))
+                .assertNext(result -> assertThat(result.handle()).isEqualTo(ShelfDto.from(current)))
+                .verifyComplete();
+
+        // and
+        var order = inOrder(ledgerRepository);
+        order.verify(ledgerRepository).lockMenuItem(MENU_ITEM_ID_ONE);
+        order.verify(ledgerRepository).appendIfAvailable(MENU_ITEM_ID_ONE, 2, LocalDateTime.now(clock));
+    }
+
+    @Test
+    @DisplayName("should take the lock of the menu item before appending TAKE to the ledger")
+    void should_TakeLockOfMenuItemBeforeAppendingTakeToLedger() {
+        // given
+        var current = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 1, 0, 4, LocalDateTime.now(clock));
+        given(ledgerRepository.lockMenuItem(MENU_ITEM_ID_ONE)).willReturn(Mono.just(true));
+        given(ledgerRepository.appendIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock))).willReturn(Mono.just(current));
+        given(eventOutbox.append(new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2))).willReturn(Mono.empty());
+
+        // when & then
+        StepVerifier.create(sut.execute(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2)))
+                .assertNext(result -> assertThat(result.handle().quantity()).isEqualTo(1))
+                .verifyComplete();
+
+        // and
+        var order = inOrder(ledgerRepository);
+        order.verify(ledgerRepository).lockMenuItem(MENU_ITEM_ID_ONE);
+        order.verify(ledgerRepository).appendIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock));
+    }
+
+    @Test
+    @DisplayName("should fail without event when TAKE exceeds the current quantity of the ledger")
+    void should_FailWithoutEvent_When_TakeExceedsCurrentQuantityOfLedger() {
+        // given
+        given(ledgerRepository.lockMenuItem(MENU_ITEM_ID_ONE)).willReturn(Mono.just(true));
+        given(ledgerRepository.appendIfAvailable(MENU_ITEM_ID_ONE, -3, LocalDateTime.now(clock))).willReturn(Mono.empty());
+        given(ledgerRepository.findCurrentByMenuItemId(MENU_ITEM_ID_ONE))
+                .willReturn(Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 1, 0, 4, LocalDateTime.now(clock))));
+
+        // when & then
+        StepVerifier.create(sut.execute(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 3)))
+                .assertNext(result -> assertThat(result.isFailure()).isTrue())
+                .verifyComplete();
+
+        // and
+        then(eventOutbox).shouldHaveNoInteractions();
+    }
+}
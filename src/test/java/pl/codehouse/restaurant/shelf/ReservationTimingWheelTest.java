@@ -0,0 +1,83 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationTimingWheelTest {
+
+    private static final long START_MILLIS = 1_735_899_330_000L;
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 8;
+
+    @Mock
+    private Clock clock;
+
+    private ReservationTimingWheel sut;
+
+    @BeforeEach
+    void setUp() {
+        given(clock.millis()).willReturn(START_MILLIS);
+        sut = new ReservationTimingWheel(clock, new ShelfReservationProperties(
+                Duration.ofMinutes(5), Duration.ofMillis(TICK_MILLIS), WHEEL_SIZE, Duration.ofSeconds(30), 500));
+    }
+
+    @Test
+    @DisplayName("should expire reservation only once its deadline has passed")
+    void should_ExpireReservationOnlyOnceItsDeadlineHasPassed() {
+        // given
+        UUID reservationId = UUID.randomUUID();
+        sut.schedule(reservationId, START_MILLIS + 350);
+
+        // when & then
+        assertThat(advanceTo(START_MILLIS + 300)).isEmpty();
+        assertThat(advanceTo(START_MILLIS + 400)).containsExactly(reservationId);
+        assertThat(advanceTo(START_MILLIS + 500)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should expire reservations beyond the range of the first level after cascading them down")
+    void should_ExpireReservationsBeyondRangeOfFirstLevelAfterCascadingThemDown() {
+        // given
+        UUID secondLevel = UUID.randomUUID();
+        UUID thirdLevel = UUID.randomUUID();
+        sut.schedule(secondLevel, START_MILLIS + 2_050);
+        sut.schedule(thirdLevel, START_MILLIS + 12_850);
+
+        // when
+        List<UUID> expiredEarly = new ArrayList<>();
+        for (long now = START_MILLIS; now < START_MILLIS + 2_000; now += TICK_MILLIS) {
+            expiredEarly.addAll(advanceTo(now));
+        }
+
+        // then
+        assertThat(expiredEarly).isEmpty();
+        assertThat(advanceTo(START_MILLIS + 2_100)).containsExactly(secondLevel);
+        assertThat(advanceTo(START_MILLIS + 12_800)).isEmpty();
+        assertThat(advanceTo(START_MILLIS + 12_900)).containsExactly(thirdLevel);
+    }
+
+    @Test
+    @DisplayName("should refuse reservation whose deadline has already passed")
+    void should_RefuseReservationWhoseDeadlineHasAlreadyPassed() {
+        // when & then
+        assertThat(sut.schedule(UUID.randomUUID(), START_MILLIS - 1)).isFalse();
+    }
+
+    private List<UUID> advanceTo(long nowMillis) {
+        given(clock.millis()).willReturn(nowMillis);
+        return sut.advance();
+    }
+}
@@ -0,0 +1,76 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.restaurant.shelf.ShelfActionCoalescer.Write;
+
+class ShelfActionCoalescerTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+
+    @Test
+    @DisplayName("should merge consecutive updates of the same type and menu item into their total quantity")
+    void should_MergeConsecutiveUpdatesOfTheSameTypeAndMenuItemIntoTheirTotalQuantity() {
+        // given
+        List<ActionEvent> actions = List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 5),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 1),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 3),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2)
+        );
+
+        // when
+        var result = ShelfActionCoalescer.coalesce(actions);
+
+        // then
+        assertThat(result).containsExactly(
+                List.of(new Write(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 8),
+                                  List.of(actions.get(0), actions.get(2))),
+                        Write.of(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2))),
+                List.of(Write.of(new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 1)))
+        );
+    }
+
+    @Test
+    @DisplayName("should keep create action between updates of the same menu item")
+    void should_KeepCreateActionBetweenUpdatesOfTheSameMenuItem() {
+        // given
+        List<ActionEvent> actions = List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1),
+                new CreateNewItemOnShelfAction(MENU_ITEM_ID_ONE, "Menu Item One", 5),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2)
+        );
+
+        // when
+        var result = ShelfActionCoalescer.coalesce(actions);
+
+        // then
+        assertThat(result).singleElement().satisfies(writes -> assertThat(writes).extracting(Write::action).containsExactly(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1),
+                new CreateNewItemOnShelfAction(MENU_ITEM_ID_ONE, "Menu Item One", 5),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 4)
+        ));
+    }
+
+    @Test
+    @DisplayName("should keep updates of a menu item that cancel each other out as separate writes")
+    void should_KeepUpdatesOfMenuItemThatCancelEachOtherOutAsSeparateWrites() {
+        // given
+        List<ActionEvent> actions = List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2)
+        );
+
+        // when
+        var result = ShelfActionCoalescer.coalesce(actions);
+
+        // then
+        assertThat(result).containsExactly(List.of(Write.of(actions.get(0)), Write.of(actions.get(1))));
+    }
+}
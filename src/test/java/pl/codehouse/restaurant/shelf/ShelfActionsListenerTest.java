@@ -0,0 +1,91 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+import jakarta.validation.Validation;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import pl.codehouse.commons.ActionEvent;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfActionsListenerTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final String TOPIC_NAME = "shelf-commands";
+
+    @Mock
+    private ShelfService shelfService;
+
+    private final AtomicLong offsets = new AtomicLong();
+
+    private ShelfActionsListener sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ShelfActionsListener(shelfService, Validation.buildDefaultValidatorFactory().getValidator(),
+                                       new ShelfCommandsKafkaProperties(TOPIC_NAME, 5, 1, 4));
+    }
+
+    @Test
+    @DisplayName("should apply the merged actions one by one when their merged write is rejected")
+    void should_ApplyMergedActionsOneByOne_When_TheirMergedWriteIsRejected() {
+        // given
+        var takeTwo = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2);
+        var takeThree = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 3);
+        given(shelfService.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 5)))
+                .willReturn(Mono.error(new RuntimeException(new InsufficientStockException("Missing 1 item(s) of 1000 from shelf"))));
+        given(shelfService.action(takeTwo)).willReturn(Mono.just(new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 2, 7)));
+        given(shelfService.action(takeThree))
+                .willReturn(Mono.error(new RuntimeException(new InsufficientStockException("Missing 1 item(s) of 1000 from shelf"))));
+
+        // when
+        sut.onActions(List.of(record(takeTwo), record(takeThree)));
+
+        // then
+        InOrder inOrder = Mockito.inOrder(shelfService);
+        inOrder.verify(shelfService).action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 5));
+        inOrder.verify(shelfService).action(takeTwo);
+        inOrder.verify(shelfService).action(takeThree);
+    }
+
+    @Test
+    @DisplayName("should fail the batch when an action fails for another reason than a rejection")
+    void should_FailBatch_When_ActionFailsForAnotherReasonThanRejection() {
+        // given
+        var add = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 2);
+        given(shelfService.action(add)).willReturn(Mono.error(new DataAccessResourceFailureException("connection refused")));
+
+        // when & then
+        assertThatThrownBy(() -> sut.onActions(List.of(record(add))))
+                .hasMessageContaining("connection refused");
+    }
+
+    @Test
+    @DisplayName("should skip an invalid action instead of merging it")
+    void should_SkipInvalidActionInsteadOfMergingIt() {
+        // when
+        sut.onActions(List.of(record(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, -2))));
+
+        // then
+        then(shelfService).should(never()).action(any());
+    }
+
+    private ConsumerRecord<String, ActionEvent> record(ActionEvent action) {
+        return new ConsumerRecord<>(TOPIC_NAME, 0, offsets.getAndIncrement(), String.valueOf(MENU_ITEM_ID_ONE), action);
+    }
+}
@@ -0,0 +1,81 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ShelfCacheTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final ShelfDto SHELF_ITEM_ONE = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 5, 1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShelfCache sut = new ShelfCache(new ShelfCacheProperties(100, Duration.ofMinutes(1)), meterRegistry);
+
+    @Test
+    @DisplayName("should load menu item only once when it is requested repeatedly")
+    void should_LoadMenuItemOnlyOnce_When_ItIsRequestedRepeatedly() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(sut.getByMenuItemId(MENU_ITEM_ID_ONE, id -> Mono.fromSupplier(() -> {
+                        loads.incrementAndGet();
+                        return SHELF_ITEM_ONE;
+                    })))
+                    .expectNext(SHELF_ITEM_ONE)
+                    .verifyComplete();
+        }
+
+        // then
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemsByMenuItemId", "result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemsByMenuItemId", "result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not cache missing menu item")
+    void should_NotCacheMissingMenuItem() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(sut.getByMenuItemId(MENU_ITEM_ID_ONE, id -> Mono.<ShelfDto>empty().doOnSubscribe(s -> loads.incrementAndGet())))
+                    .verifyComplete();
+        }
+
+        // then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("should serve written item and reload available items when item is put into the cache")
+    void should_ServeWrittenItemAndReloadAvailableItems_When_ItemIsPutIntoTheCache() {
+        // given
+        ShelfDto updatedItem = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 3, 2);
+        StepVerifier.create(sut.getAvailableItems(() -> Mono.just(List.of(SHELF_ITEM_ONE))))
+                .expectNext(List.of(SHELF_ITEM_ONE))
+                .verifyComplete();
+
+        // when
+        sut.put(updatedItem);
+
+        // then
+        StepVerifier.create(sut.getByMenuItemId(MENU_ITEM_ID_ONE, id -> Mono.error(new IllegalStateException("should not be loaded"))))
+                .expectNext(updatedItem)
+                .verifyComplete();
+
+        StepVerifier.create(sut.getAvailableItems(() -> Mono.just(List.of(updatedItem))))
+                .expectNext(List.of(updatedItem))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,91 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class ShelfCommandLanesTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    private ShelfCommandLanes sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ShelfCommandLanes(new ShelfLaneProperties(2), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.destroy();
+    }
+
+    @Test
+    @DisplayName("should start command on the same menu item only once the previous one is completed")
+    void should_StartCommandOnSameMenuItemOnlyOnceThePreviousOneIsCompleted() {
+        // given
+        Sinks.One<String> firstCompletion = Sinks.one();
+        Mono<String> first = sut.submit(MENU_ITEM_ID_ONE, Mono.defer(() -> {
+            executed.add("first");
+            return firstCompletion.asMono();
+        }));
+        Mono<String> second = sut.submit(MENU_ITEM_ID_ONE, Mono.fromCallable(() -> {
+            executed.add("second");
+            return "second";
+        }));
+
+        // when
+        first.subscribe();
+        StepVerifier.create(second)
+                .then(() -> assertThat(executed).doesNotContain("second"))
+                .then(() -> firstCompletion.tryEmitValue("first"))
+                .expectNext("second")
+                .verifyComplete();
+
+        // then
+        assertThat(executed).containsExactly("first", "second");
+        assertThat(meterRegistry.find(ShelfCommandLanes.QUEUE_DEPTH_METRIC).gauges()).hasSize(2);
+        assertThat(meterRegistry.get(ShelfCommandLanes.WAIT_METRIC).tag("lane", "0").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should run commands on menu items of different lanes in parallel")
+    void should_RunCommandsOnMenuItemsOfDifferentLanesInParallel() {
+        // given
+        Sinks.One<String> blockedCompletion = Sinks.one();
+        sut.submit(MENU_ITEM_ID_ONE, blockedCompletion.asMono()).subscribe();
+
+        // when & then
+        StepVerifier.create(sut.submit(MENU_ITEM_ID_TWO, Mono.just("unrelated")))
+                .expectNext("unrelated")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("should pass the failure of a command and continue with the next one")
+    void should_PassFailureOfCommandAndContinueWithTheNextOne() {
+        // when & then
+        StepVerifier.create(sut.submit(MENU_ITEM_ID_ONE, Mono.error(new IllegalStateException("Missing 1 item(s) of 1000 from shelf"))))
+                .expectErrorMessage("Missing 1 item(s) of 1000 from shelf")
+                .verify();
+        StepVerifier.create(sut.submit(MENU_ITEM_ID_ONE, Mono.just("next")))
+                .expectNext("next")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,69 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ShelfCommandMetricsInterceptorTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+    private static final ShelfDto UPDATED_ITEM = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 3, 2);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShelfCommandMetricsInterceptor sut = new ShelfCommandMetricsInterceptor(meterRegistry);
+
+    @Test
+    @DisplayName("should time successful command and count its updates by update type")
+    void should_TimeSuccessfulCommandAndCountItsUpdatesByUpdateType() {
+        // given
+        var action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 1)));
+
+        // when & then
+        StepVerifier.create(sut.intercept(action, Mono.just(List.of(UPDATED_ITEM))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // and
+        assertThat(commandCount("UpdateItemsOnShelfAction", ShelfCommandMetricsInterceptor.SUCCESS)).isEqualTo(1);
+        assertThat(meterRegistry.get(ShelfCommandMetricsInterceptor.UPDATES_METRIC).tag("updateType", "TAKE").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(ShelfCommandMetricsInterceptor.UPDATES_METRIC).tag("updateType", "ADD").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should time failed commands by the reason found in the cause chain")
+    void should_TimeFailedCommandsByReasonFoundInCauseChain() {
+        // given
+        var action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 6);
+
+        // when
+        intercept(action, new RuntimeException(new InsufficientStockException("Missing 1 item(s) of 1000 from shelf")));
+        intercept(action, new RuntimeException(new OptimisticLockingFailureException("version changed")));
+        intercept(action, new IllegalStateException("Missing Menu item by id 1000 on shelf"));
+
+        // then
+        assertThat(commandCount("UpdateItemOnShelfAction", ShelfCommandMetricsInterceptor.INSUFFICIENT_STOCK)).isEqualTo(1);
+        assertThat(commandCount("UpdateItemOnShelfAction", ShelfCommandMetricsInterceptor.CONFLICT)).isEqualTo(1);
+        assertThat(commandCount("UpdateItemOnShelfAction", ShelfCommandMetricsInterceptor.FAILURE)).isEqualTo(1);
+        assertThat(meterRegistry.find(ShelfCommandMetricsInterceptor.UPDATES_METRIC).counters()).isEmpty();
+    }
+
+    private void intercept(UpdateItemOnShelfAction action, Throwable error) {
+        StepVerifier.create(sut.intercept(action, Mono.error(error)))
+                .expectError()
+                .verify();
+    }
+
+    private long commandCount(String command, String outcome) {
+        return meterRegistry.get(ShelfCommandMetricsInterceptor.COMMANDS_METRIC).tags("command", command, "outcome", outcome).timer().count();
+    }
+}
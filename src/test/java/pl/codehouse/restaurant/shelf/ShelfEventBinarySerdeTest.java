@@ -0,0 +1,54 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ShelfEventBinarySerdeTest {
+
+    private static final String TOPIC_NAME = "shelf-events";
+
+    private final ShelfEventBinarySerde sut = new ShelfEventBinarySerde();
+
+    @Test
+    @DisplayName("should read back the event written as a versioned binary payload")
+    void should_ReadBackEventWrittenAsVersionedBinaryPayload() {
+        // given
+        ShelfEventDto event = new ShelfEventDto(EventType.TAKE, 1000, 2);
+
+        // when
+        byte[] payload = sut.serialize(TOPIC_NAME, event);
+
+        // then
+        assertThat(payload).hasSize(ShelfEventBinarySerde.PAYLOAD_SIZE).startsWith(ShelfEventBinarySerde.VERSION);
+        assertThat(sut.deserialize(TOPIC_NAME, payload)).isEqualTo(event);
+    }
+
+    @Test
+    @DisplayName("should read the event written as JSON by the previous producers")
+    void should_ReadEventWrittenAsJsonByPreviousProducers() {
+        // given
+        byte[] payload = """
+                {"eventType":"ADD","menuItemId":1000,"quantity":5}""".getBytes(StandardCharsets.UTF_8);
+
+        // when & then
+        assertThat(sut.deserialize(TOPIC_NAME, payload)).isEqualTo(new ShelfEventDto(EventType.ADD, 1000, 5));
+    }
+
+    @Test
+    @DisplayName("should refuse a payload of an unknown version")
+    void should_RefusePayloadOfUnknownVersion() {
+        // given
+        byte[] payload = sut.serialize(TOPIC_NAME, new ShelfEventDto(EventType.NEW, 1000, 5));
+        payload[0] = 2;
+
+        // when & then
+        assertThatThrownBy(() -> sut.deserialize(TOPIC_NAME, payload))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("version 2");
+    }
+}
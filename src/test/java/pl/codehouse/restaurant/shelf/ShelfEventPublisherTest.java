@@ -0,0 +1,95 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfEventPublisherTest {
+
+    private static final String TOPIC_NAME = "shelf-events";
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+
+    @Mock
+    private KafkaSender<String, ShelfEventDto> kafkaSender;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SenderRecord<String, ShelfEventDto, Long>> sentRecords = new ArrayList<>();
+
+    private ShelfEventPublisher sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ShelfEventPublisher(kafkaSender, new ShelfKafkaProperties(TOPIC_NAME, 5, 1, 16, ShelfKafkaProperties.Serialization.JSON), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("should send events keyed by menu item id when publishing events")
+    void should_SendEventsKeyedByMenuItemId_When_PublishingEvents() {
+        // given
+        given(kafkaSender.<Long>send(any())).willAnswer(invocation -> acknowledge(invocation.getArgument(0), null));
+        List<ShelfEventDto> events = List.of(
+                new ShelfEventDto(EventType.NEW, MENU_ITEM_ID_ONE, 5),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_TWO, 2)
+        );
+
+        // when & then
+        StepVerifier.create(sut.publishAll(events))
+                .verifyComplete();
+
+        // and
+        assertThat(sentRecords)
+                .extracting(SenderRecord::topic, SenderRecord::key, SenderRecord::value)
+                .containsExactly(
+                        tuple(TOPIC_NAME, String.valueOf(MENU_ITEM_ID_ONE), events.get(0)),
+                        tuple(TOPIC_NAME, String.valueOf(MENU_ITEM_ID_TWO), events.get(1)));
+        assertThat(meterRegistry.timer(ShelfEventPublisher.PUBLISH_METRIC, "outcome", "success").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should fail when the broker did not acknowledge one of the events")
+    void should_Fail_When_BrokerDidNotAcknowledgeOneOfTheEvents() {
+        // given
+        given(kafkaSender.<Long>send(any())).willAnswer(invocation -> acknowledge(invocation.getArgument(0), new TimeoutException("broker not available")));
+
+        // when & then
+        StepVerifier.create(sut.publishAll(List.of(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 5))))
+                .verifyError(TimeoutException.class);
+
+        // and
+        assertThat(meterRegistry.timer(ShelfEventPublisher.PUBLISH_METRIC, "outcome", "failure").count()).isEqualTo(1);
+    }
+
+    private Flux<SenderResult<Long>> acknowledge(Publisher<SenderRecord<String, ShelfEventDto, Long>> records, Exception exception) {
+        return Flux.from(records)
+                .doOnNext(sentRecords::add)
+                .map(record -> {
+                    @SuppressWarnings("unchecked")
+                    SenderResult<Long> result = mock(SenderResult.class);
+                    given(result.correlationMetadata()).willReturn(record.correlationMetadata());
+                    given(result.exception()).willReturn(exception);
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,188 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfIdempotencyStoreTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-03T10:15:30Z"), ZoneOffset.UTC);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+    private static final String IDEMPOTENCY_KEY = "order-42-take";
+    private static final int MENU_ITEM_ID = 1000;
+    private static final UpdateItemOnShelfAction TAKE_ACTION = new UpdateItemOnShelfAction(MENU_ITEM_ID, UpdateType.TAKE, 2);
+    private static final ShelfDto UPDATED_ITEM = new ShelfDto("Menu Item One", MENU_ITEM_ID, 3, 2);
+
+    @Mock
+    private ShelfIdempotencyRepository repository;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private ShelfIdempotencyStore sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ShelfIdempotencyStore(CLOCK, repository, new ShelfIdempotencyProperties(Duration.ofHours(24), 100, Duration.ofMinutes(5)));
+    }
+
+    @Test
+    @DisplayName("should execute action once and replay its response to the repeated request")
+    void should_ExecuteActionOnceAndReplayItsResponseToRepeatedRequest() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), eq(NOW), eq(NOW.plusHours(24)))).willReturn(Mono.just(claim("fingerprint")));
+        given(repository.complete(IDEMPOTENCY_KEY, "Menu Item One", MENU_ITEM_ID, 3, 2L)).willReturn(Mono.just(1));
+
+        // when & then
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                    .expectNext(UPDATED_ITEM)
+                    .verifyComplete();
+        }
+
+        // and
+        assertThat(executions).hasValue(1);
+        then(repository).should(times(1)).claim(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should replay the stored response when the key is already claimed by a completed request")
+    void should_ReplayStoredResponse_When_KeyIsAlreadyClaimedByCompletedRequest() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.just(claim("fingerprint")));
+        given(repository.complete(any(), any(), any(), any(), any())).willReturn(Mono.just(1));
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+        String fingerprint = capturedFingerprint();
+
+        var otherInstance = new ShelfIdempotencyStore(CLOCK, repository, new ShelfIdempotencyProperties(Duration.ofHours(24), 100, Duration.ofMinutes(5)));
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.empty());
+        given(repository.findById(IDEMPOTENCY_KEY)).willReturn(Mono.just(new ShelfIdempotencyEntity(
+                IDEMPOTENCY_KEY, fingerprint, "Menu Item One", MENU_ITEM_ID, 3, 2L, NOW, NOW.plusHours(24))));
+
+        // when & then
+        StepVerifier.create(otherInstance.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // and
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("should reject request when the key is claimed by a request still in progress")
+    void should_RejectRequest_When_KeyIsClaimedByRequestStillInProgress() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.empty());
+        given(repository.findById(IDEMPOTENCY_KEY)).willReturn(Mono.just(claim("fingerprint")));
+
+        // when & then
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(ResponseStatusException.class)
+                        .hasFieldOrPropertyWithValue("statusCode", HttpStatus.CONFLICT))
+                .verify();
+
+        // and
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("should release the key when the action fails, so the request can be retried")
+    void should_ReleaseKey_When_ActionFails() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.just(claim("fingerprint")));
+        given(repository.deleteById(IDEMPOTENCY_KEY)).willReturn(Mono.empty());
+
+        // when & then
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION,
+                                        transactionScope -> transactionScope.apply(
+                                                Mono.error(new InsufficientStockException("Missing 1 item(s) of 1000 from shelf")))))
+                .expectError(InsufficientStockException.class)
+                .verify();
+
+        // and
+        then(repository).should(times(1)).deleteById(IDEMPOTENCY_KEY);
+        then(repository).should(never()).complete(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should keep the claim when completing the key fails after the action")
+    void should_KeepClaim_When_CompletingKeyFailsAfterAction() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.just(claim("fingerprint")));
+        given(repository.complete(any(), any(), any(), any(), any())).willReturn(Mono.error(new IllegalStateException("Connection lost")));
+
+        // when & then
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                .expectErrorMessage("Connection lost")
+                .verify();
+
+        // and
+        assertThat(executions).hasValue(1);
+        then(repository).should(never()).deleteById(any(String.class));
+    }
+
+    @Test
+    @DisplayName("should reject key used for a different request")
+    void should_RejectKeyUsedForDifferentRequest() {
+        // given
+        given(repository.claim(eq(IDEMPOTENCY_KEY), anyString(), any(), any())).willReturn(Mono.just(claim("fingerprint")));
+        given(repository.complete(any(), any(), any(), any(), any())).willReturn(Mono.just(1));
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, TAKE_ACTION, this::takeItems))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // when & then
+        StepVerifier.create(sut.execute(IDEMPOTENCY_KEY, new UpdateItemOnShelfAction(MENU_ITEM_ID, UpdateType.TAKE, 5), this::takeItems))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(ResponseStatusException.class)
+                        .hasFieldOrPropertyWithValue("statusCode", HttpStatus.UNPROCESSABLE_ENTITY))
+                .verify();
+
+        // and
+        assertThat(executions).hasValue(1);
+    }
+
+    private Mono<ShelfDto> takeItems(UnaryOperator<Mono<ShelfDto>> transactionScope) {
+        return transactionScope.apply(Mono.fromSupplier(() -> {
+            executions.incrementAndGet();
+            return UPDATED_ITEM;
+        }));
+    }
+
+    private String capturedFingerprint() {
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        then(repository).should().claim(eq(IDEMPOTENCY_KEY), fingerprint.capture(), any(), any());
+        return fingerprint.getValue();
+    }
+
+    private static ShelfIdempotencyEntity claim(String fingerprint) {
+        return new ShelfIdempotencyEntity(IDEMPOTENCY_KEY, fingerprint, null, null, null, null, NOW, NOW.plusHours(24));
+    }
+}
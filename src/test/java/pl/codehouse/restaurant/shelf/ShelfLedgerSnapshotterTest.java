@@ -0,0 +1,56 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfLedgerSnapshotterTest {
+
+    @InjectMocks
+    private ShelfLedgerSnapshotter sut;
+
+    @Mock
+    private ShelfLedgerRepository ledgerRepository;
+
+    @Spy
+    private ShelfLedgerProperties properties = new ShelfLedgerProperties(Duration.ofMillis(100), 10);
+
+    @Test
+    @DisplayName("should fold batches until the ledger holds less than a full batch of unfolded entries")
+    void should_FoldBatchesUntilLedgerHoldsLessThanFullBatchOfUnfoldedEntries() {
+        // given
+        given(ledgerRepository.foldIntoSnapshot(10)).willReturn(Mono.just(10), Mono.just(10), Mono.just(3));
+
+        // when & then
+        StepVerifier.create(sut.snapshot())
+                .expectNext(23)
+                .verifyComplete();
+
+        // and
+        then(ledgerRepository).should(times(3)).foldIntoSnapshot(10);
+    }
+
+    @Test
+    @DisplayName("should keep running when folding the ledger fails")
+    void should_KeepRunning_When_FoldingLedgerFails() {
+        // given
+        given(ledgerRepository.foldIntoSnapshot(10)).willReturn(Mono.error(new IllegalStateException("Connection refused")));
+
+        // when & then
+        StepVerifier.create(sut.snapshot())
+                .expectNext(0)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,119 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfOutboxRelayTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+
+    @InjectMocks
+    private ShelfOutboxRelay sut;
+
+    @Mock
+    private ShelfOutboxRepository outboxRepository;
+
+    @Mock
+    private ShelfEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private ShelfOutboxProperties properties = new ShelfOutboxProperties(Duration.ofMillis(100), 10, Duration.ofHours(1));
+
+    @Spy
+    private Clock clock = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("should publish pending events in order and mark them as published")
+    void should_PublishPendingEventsInOrderAndMarkThemAsPublished() {
+        // given
+        var now = LocalDateTime.now(clock);
+        given(outboxRepository.tryLockRelay(anyLong())).willReturn(Mono.just(true));
+        given(outboxRepository.findUnpublished(10)).willReturn(Flux.just(
+                new ShelfOutboxEntity(1, EventType.NEW, MENU_ITEM_ID_ONE, 5, now, null),
+                new ShelfOutboxEntity(2, EventType.TAKE, MENU_ITEM_ID_ONE, 2, now, null)
+        ));
+        given(eventPublisher.publishAll(any())).willReturn(Mono.empty());
+        given(outboxRepository.markPublished(List.of(1L, 2L), now)).willReturn(Mono.just(2));
+        given(outboxRepository.deletePublishedBefore(now.minusHours(1))).willReturn(Mono.just(0));
+
+        // when & then
+        StepVerifier.create(sut.drain())
+                .expectNext(2)
+                .verifyComplete();
+
+        // and
+        then(eventPublisher).should(times(1)).publishAll(List.of(
+                new ShelfEventDto(EventType.NEW, MENU_ITEM_ID_ONE, 5),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2)
+        ));
+    }
+
+    @Test
+    @DisplayName("should skip relaying when another relay holds the lock")
+    void should_SkipRelaying_When_AnotherRelayHoldsTheLock() {
+        // given
+        given(outboxRepository.tryLockRelay(anyLong())).willReturn(Mono.just(false));
+
+        // when & then
+        StepVerifier.create(sut.drain())
+                .expectNext(0)
+                .verifyComplete();
+
+        // and
+        then(outboxRepository).should(never()).findUnpublished(anyInt());
+        then(eventPublisher).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("should leave events unpublished when sending them fails")
+    void should_LeaveEventsUnpublished_When_SendingThemFails() {
+        // given
+        var now = LocalDateTime.now(clock);
+        given(outboxRepository.tryLockRelay(anyLong())).willReturn(Mono.just(true));
+        given(outboxRepository.findUnpublished(10)).willReturn(Flux.just(
+                new ShelfOutboxEntity(1, EventType.NEW, MENU_ITEM_ID_ONE, 5, now, null)
+        ));
+        given(eventPublisher.publishAll(any())).willReturn(Mono.error(new IllegalStateException("broker not available")));
+
+        // when & then
+        StepVerifier.create(sut.drain())
+                .expectNext(0)
+                .verifyComplete();
+
+        // and
+        then(outboxRepository).should(never()).markPublished(any(), any());
+    }
+}
@@ -0,0 +1,73 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class ShelfPeriodicTaskTest {
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private VirtualTimeScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    @DisplayName("should run the task once per period until it is stopped")
+    void should_RunTaskOncePerPeriodUntilItIsStopped() {
+        // given
+        var sut = new ShelfPeriodicTask(Duration.ofSeconds(1), () -> run(Duration.ZERO));
+
+        // when
+        sut.start();
+        scheduler.advanceTimeBy(Duration.ofSeconds(3));
+        sut.stop();
+        scheduler.advanceTimeBy(Duration.ofSeconds(3));
+
+        // then
+        assertThat(started).hasValue(3);
+        assertThat(sut.isRunning()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should never start a run while the previous run is still in progress")
+    void should_NeverStartRunWhilePreviousRunIsStillInProgress() {
+        // given
+        var sut = new ShelfPeriodicTask(Duration.ofSeconds(1), () -> run(Duration.ofMillis(3500)));
+
+        // when
+        sut.start();
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+
+        // then
+        assertThat(sut.isRunning()).isTrue();
+        assertThat(maxRunning).hasValue(1);
+        assertThat(started).hasValueLessThan(10);
+        sut.stop();
+    }
+
+    private Mono<Void> run(Duration duration) {
+        return Mono.defer(() -> {
+            started.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return Mono.delay(duration).then();
+        }).doFinally(signal -> running.decrementAndGet());
+    }
+}
@@ -3,18 +3,29 @@ package pl.codehouse.restaurant.shelf;
 import static io.restassured.module.webtestclient.RestAssuredWebTestClient.given;
 import static io.restassured.module.webtestclient.RestAssuredWebTestClient.webTestClient;
 import static java.util.Locale.ENGLISH;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,14 +33,22 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 @WebFluxTest(ShelfResource.class)
+@Import(ShelfResponseCache.class)
+@EnableConfigurationProperties({ShelfCacheProperties.class, ShelfEngineProperties.class})
 @AutoConfigureWebTestClient(timeout = "500000000000")
 class ShelfResourceTest {
 
@@ -42,6 +61,15 @@ class ShelfResourceTest {
     @MockitoBean
     private ShelfQueryService shelfQueryService;
 
+    @MockitoBean
+    private ShelfChangeStream changeStream;
+
+    @MockitoBean
+    private ShelfIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
     @BeforeEach
     void setUp(@Autowired WebTestClient webTestClient) {
         Locale.setDefault(ENGLISH);
@@ -77,6 +105,43 @@ class ShelfResourceTest {
                     .body("$.quantity", notNullValue())
                     .body("$.version", notNullValue());
         }
+
+        @Test
+        @DisplayName("should gzip a large list of available shelf items when the client accepts gzip")
+        void shouldGzipLargeListOfAvailableShelfItemsWhenClientAcceptsGzip() {
+            // given
+            given(shelfQueryService.findAllAvailableItems()).willReturn(Mono.just(manyShelfItems()));
+
+            // when & then
+            webTestClient.get()
+                    .uri("/shelf")
+                    .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.5")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        @Test
+        @DisplayName("should not gzip available shelf items when the client refuses gzip with a zero quality")
+        void shouldNotGzipAvailableShelfItemsWhenClientRefusesGzipWithZeroQuality() {
+            // given
+            given(shelfQueryService.findAllAvailableItems()).willReturn(Mono.just(manyShelfItems()));
+
+            // when & then
+            webTestClient.get()
+                    .uri("/shelf")
+                    .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                    .expectBody().jsonPath("$.length()").isEqualTo(100);
+        }
+
+        private static List<ShelfDto> manyShelfItems() {
+            return IntStream.range(0, 100)
+                    .mapToObj(offset -> new ShelfDto("menuItemName " + offset, MENU_ITEM_ID + offset, 4, 1))
+                    .toList();
+        }
     }
 
     @Nested
@@ -104,7 +169,52 @@ class ShelfResourceTest {
                     .body("quantity", notNullValue())
                     .body("version", notNullValue());
         }
-        
+
+        @Test
+        @DisplayName("should return 304 without body when the ETag matches the version of the item")
+        void shouldReturn304WithoutBodyWhenETagMatchesVersionOfItem() {
+            // given
+            ShelfDto shelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 4, 7);
+            given(shelfQueryService.findByMenuItemId(MENU_ITEM_ID)).willReturn(Mono.just(shelfDto));
+
+            given()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"" + MENU_ITEM_ID + "-7\"")
+                    .log().ifValidationFails()
+
+                    .when()
+                    .get("/shelf/{menuItemId}", Integer.toString(MENU_ITEM_ID))
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(NOT_MODIFIED)
+                    .header(HttpHeaders.ETAG, equalTo("\"" + MENU_ITEM_ID + "-7\""))
+                    .body(Matchers.emptyOrNullString());
+        }
+
+        @Test
+        @DisplayName("should return the item with a new ETag when the version of the item has changed")
+        void shouldReturnItemWithNewETagWhenVersionOfItemHasChanged() {
+            // given
+            ShelfDto shelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 3, 8);
+            given(shelfQueryService.findByMenuItemId(MENU_ITEM_ID)).willReturn(Mono.just(shelfDto));
+
+            given()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"" + MENU_ITEM_ID + "-7\"")
+                    .log().ifValidationFails()
+
+                    .when()
+                    .get("/shelf/{menuItemId}", Integer.toString(MENU_ITEM_ID))
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(OK)
+                    .header(HttpHeaders.ETAG, equalTo("\"" + MENU_ITEM_ID + "-8\""))
+                    .body("quantity", equalTo(3))
+                    .body("version", equalTo(8));
+        }
+
         @Test
         @DisplayName("should return 400 when requesting with invalid menu item value")
         void shouldReturn400WhenRequestingWithInvalidMenuItemValue() {
@@ -185,6 +295,36 @@ class ShelfResourceTest {
                     .body("version", equalTo(2));
         }
 
+        @Test
+        @DisplayName("should update a menu item through the idempotency store when the request has an Idempotency-Key")
+        void Should_UpdateMenuItemThroughIdempotencyStore_When_RequestHasIdempotencyKey() {
+            // given
+            Map<String, Object> requestBody = Map.of(
+                    "updateType", UpdateType.TAKE.name(),
+                    "quantity", 2
+            );
+            UpdateItemOnShelfAction action = new UpdateItemOnShelfAction(MENU_ITEM_ID, UpdateType.TAKE, 2);
+            ShelfDto storedShelfDto = new ShelfDto("Updated Item", MENU_ITEM_ID, 3, 2);
+            given(idempotencyStore.execute(eq("order-42-take"), eq(action), any())).willReturn(Mono.just(storedShelfDto));
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(ShelfResource.IDEMPOTENCY_KEY_HEADER, "order-42-take")
+                    .body(requestBody)
+
+                    .when()
+                    .put("/shelf/{menuItemId}", Integer.toString(MENU_ITEM_ID))
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(OK)
+                    .body("quantity", equalTo(3))
+                    .body("version", equalTo(2));
+
+            then(shelfService).shouldHaveNoInteractions();
+        }
+
         @Test
         @DisplayName("should return 400 when calling updateByMenuItem with invalid updateType in the payload")
         void Should_Return400_When_CallingUpdateByMenuItemWithInvalidUpdateTypeInThePayload() {
@@ -302,6 +442,93 @@ class ShelfResourceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Exchange shelf items encoded as CBOR")
+    class ExchangeShelfItemsAsCbor {
+        private final CBORMapper cborMapper = new CBORMapper();
+
+        @Test
+        @DisplayName("should return shelf details encoded as CBOR when the client accepts CBOR")
+        void shouldReturnShelfDetailsEncodedAsCborWhenClientAcceptsCbor() throws IOException {
+            // given
+            ShelfDto shelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 4, 7);
+            given(shelfQueryService.findByMenuItemId(MENU_ITEM_ID)).willReturn(Mono.just(shelfDto));
+
+            // when
+            byte[] body = webTestClient.get()
+                    .uri("/shelf/{menuItemId}", MENU_ITEM_ID)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_CBOR)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + MENU_ITEM_ID + "-7-cbor\"")
+                    .expectBody(byte[].class)
+                    .returnResult()
+                    .getResponseBody();
+
+            // then
+            assertThat(cborMapper.readValue(body, ShelfDto.class)).isEqualTo(shelfDto);
+        }
+
+        @Test
+        @DisplayName("should return shelf details encoded as CBOR when the client prefers CBOR by quality, not by order")
+        void shouldReturnShelfDetailsEncodedAsCborWhenClientPrefersCborByQuality() {
+            // given
+            ShelfDto shelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 4, 7);
+            given(shelfQueryService.findByMenuItemId(MENU_ITEM_ID)).willReturn(Mono.just(shelfDto));
+
+            // when & then
+            webTestClient.get()
+                    .uri("/shelf/{menuItemId}", MENU_ITEM_ID)
+                    .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_CBOR);
+        }
+
+        @Test
+        @DisplayName("should return shelf details encoded as JSON when CBOR is listed first with a lower quality")
+        void shouldReturnShelfDetailsEncodedAsJsonWhenCborIsListedFirstWithLowerQuality() {
+            // given
+            ShelfDto shelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 4, 7);
+            given(shelfQueryService.findByMenuItemId(MENU_ITEM_ID)).willReturn(Mono.just(shelfDto));
+
+            // when & then
+            webTestClient.get()
+                    .uri("/shelf/{menuItemId}", MENU_ITEM_ID)
+                    .header(HttpHeaders.ACCEPT, "application/cbor;q=0.1, application/json")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_JSON);
+        }
+
+        @Test
+        @DisplayName("should update a menu item from a request encoded as CBOR")
+        void shouldUpdateMenuItemFromRequestEncodedAsCbor() throws IOException {
+            // given
+            UpdateItemOnShelfAction action = new UpdateItemOnShelfAction(MENU_ITEM_ID, UpdateType.ADD, 5);
+            ShelfDto expectedShelfDto = new ShelfDto("Updated Item", MENU_ITEM_ID, 10, 2);
+            given(shelfService.action(action)).willReturn(Mono.just(expectedShelfDto));
+
+            // when
+            byte[] body = webTestClient.put()
+                    .uri("/shelf/{menuItemId}", MENU_ITEM_ID)
+                    .contentType(MediaType.APPLICATION_CBOR)
+                    .accept(MediaType.APPLICATION_CBOR)
+                    .bodyValue(cborMapper.writeValueAsBytes(new UpdateMenuItemOnShelfRequest(UpdateType.ADD, 5)))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                    .expectBody(byte[].class)
+                    .returnResult()
+                    .getResponseBody();
+
+            // then
+            assertThat(cborMapper.readValue(body, ShelfDto.class)).isEqualTo(expectedShelfDto);
+        }
+    }
+
     @Nested
     @DisplayName("Add given MenuItem on shelf")
     class AddNewItemToShelf {
@@ -427,4 +654,307 @@ class ShelfResourceTest {
                     .body("errors[0].codes", hasItems("Min.quantity", "Min"));
         }
     }
+
+    @Nested
+    @DisplayName("Update batch of MenuItems on shelf")
+    class UpdateBatchOfMenuItemsOnShelf {
+        @Test
+        @DisplayName("should successfully update all menu items of the batch on the shelf")
+        void Should_SuccessfullyUpdateAllMenuItemsOfTheBatchOnShelf() {
+            // given
+            Map<String, Object> requestBody = Map.of(
+                    "items", List.of(
+                            Map.of("menuItemId", MENU_ITEM_ID, "updateType", UpdateType.TAKE.name(), "quantity", 2),
+                            Map.of("menuItemId", MENU_ITEM_ID_TWO, "updateType", UpdateType.ADD.name(), "quantity", 3)
+                    )
+            );
+            UpdateItemsOnShelfAction action = new UpdateItemsOnShelfAction(List.of(
+                    new UpdateItemOnShelfAction(MENU_ITEM_ID, UpdateType.TAKE, 2),
+                    new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 3)
+            ));
+            List<ShelfDto> expectedShelfDtos = List.of(
+                    new ShelfDto("menuItemName One", MENU_ITEM_ID, 2, 2),
+                    new ShelfDto("menuItemName Two", MENU_ITEM_ID_TWO, 8, 3)
+            );
+            given(shelfService.batchAction(action)).willReturn(Mono.just(expectedShelfDtos));
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/batch")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(OK)
+                    .body("$", hasSize(2))
+                    .body("[0].menuItemId", equalTo(MENU_ITEM_ID))
+                    .body("[0].quantity", equalTo(2))
+                    .body("[1].menuItemId", equalTo(MENU_ITEM_ID_TWO))
+                    .body("[1].quantity", equalTo(8));
+        }
+
+        @Test
+        @DisplayName("should return 400 when updating a batch without any items")
+        void Should_Return400_When_UpdatingBatchWithoutAnyItems() {
+            // given
+            Map<String, Object> requestBody = Map.of(
+                    "items", List.of()
+            );
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/batch")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(BAD_REQUEST)
+                    .body("title", equalTo("Bad Request"))
+                    .body("status", equalTo(BAD_REQUEST.value()))
+                    .body("errors", hasSize(1))
+                    .body("errors[0].field", equalTo("items"))
+                    .body("errors[0].defaultMessage", equalTo("must not be empty"))
+                    .body("errors[0].codes", hasItems("NotEmpty"));
+        }
+
+        @Test
+        @DisplayName("should return 400 when updating a batch with invalid quantity of an item")
+        void Should_Return400_When_UpdatingBatchWithInvalidQuantityOfAnItem() {
+            // given
+            Map<String, Object> requestBody = Map.of(
+                    "items", List.of(
+                            Map.of("menuItemId", MENU_ITEM_ID, "updateType", UpdateType.TAKE.name(), "quantity", 0)
+                    )
+            );
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/batch")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(BAD_REQUEST)
+                    .body("status", equalTo(BAD_REQUEST.value()))
+                    .body("errors", hasSize(1))
+                    .body("errors[0].field", equalTo("items[0].quantity"))
+                    .body("errors[0].defaultMessage", equalTo("must be greater than or equal to 1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Reserve MenuItem on shelf")
+    class ReserveMenuItemOnShelf {
+        @Test
+        @DisplayName("should reserve menu item on shelf for the given reservation")
+        void Should_ReserveMenuItemOnShelfForGivenReservation() {
+            // given
+            UUID reservationId = UUID.fromString("4f1c5e0a-3c1d-4f3e-9a57-2a9e0b3c6d11");
+            Map<String, Object> requestBody = Map.of("reservationId", reservationId.toString(), "quantity", 2);
+            ShelfDto expectedShelfDto = new ShelfDto("menuItemName One", MENU_ITEM_ID, 5, 2);
+            given(shelfService.action(new ReserveItemOnShelfAction(reservationId, MENU_ITEM_ID, 2))).willReturn(Mono.just(expectedShelfDto));
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/{menuItemId}/reservations", MENU_ITEM_ID)
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(CREATED)
+                    .body("menuItemId", equalTo(MENU_ITEM_ID))
+                    .body("version", equalTo(2));
+        }
+
+        @Test
+        @DisplayName("should return 400 when reserving without reservation id")
+        void Should_Return400_When_ReservingWithoutReservationId() {
+            // given
+            Map<String, Object> requestBody = Map.of("quantity", 2);
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/{menuItemId}/reservations", MENU_ITEM_ID)
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(BAD_REQUEST);
+        }
+    }
+
+    @Nested
+    @DisplayName("Reserve MenuItem on shelf in an engine mode without reservations")
+    @TestPropertySource(properties = ShelfEngineProperties.MODE_PROPERTY + "=" + ShelfEngineProperties.LEDGER_MODE)
+    class ReserveMenuItemOnShelfWithoutReservations {
+        @Test
+        @DisplayName("should return 404 when reserving in the ledger engine mode")
+        void Should_Return404_When_ReservingInLedgerEngineMode() {
+            // given
+            Map<String, Object> requestBody = Map.of("reservationId", "4f1c5e0a-3c1d-4f3e-9a57-2a9e0b3c6d11", "quantity", 2);
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(requestBody)
+
+                    .when()
+                    .post("/shelf/{menuItemId}/reservations", MENU_ITEM_ID)
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(NOT_FOUND)
+                    .body("detail", equalTo("Reservations are not available in the ledger engine mode"));
+
+            // and
+            then(shelfService).shouldHaveNoInteractions();
+        }
+    }
+
+    @Nested
+    @DisplayName("Stream or page shelf items that are available")
+    class StreamAndPageShelf {
+        @Test
+        @DisplayName("should stream available shelf items as newline delimited JSON")
+        void Should_StreamAvailableShelfItemsAsNewlineDelimitedJson() {
+            // given
+            ShelfDto itemOne = new ShelfDto("menuItemName One", MENU_ITEM_ID, 4, 1);
+            ShelfDto itemTwo = new ShelfDto("menuItemName Two", MENU_ITEM_ID_TWO, 5, 2);
+            given(shelfQueryService.streamAvailableItems()).willReturn(Flux.just(itemOne, itemTwo));
+
+            // when & then
+            StepVerifier.create(webTestClient.get()
+                                        .uri("/shelf")
+                                        .accept(MediaType.APPLICATION_NDJSON)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                                        .returnResult(ShelfDto.class)
+                                        .getResponseBody())
+                    .expectNext(itemOne, itemTwo)
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("should return page of available shelf items after the given menu item")
+        void Should_ReturnPageOfAvailableShelfItemsAfterGivenMenuItem() {
+            // given
+            given(shelfQueryService.findAvailableItemsPage(MENU_ITEM_ID, 1))
+                    .willReturn(Mono.just(List.of(new ShelfDto("menuItemName Two", MENU_ITEM_ID_TWO, 5, 2))));
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+
+                    .when()
+                    .get("/shelf?after=" + MENU_ITEM_ID + "&limit=1")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(OK)
+                    .body("$", hasSize(1))
+                    .body("[0].menuItemId", equalTo(MENU_ITEM_ID_TWO));
+        }
+    }
+
+    @Nested
+    @DisplayName("Fetch shelf items changed since a high-water mark")
+    class GetChangesOfShelf {
+        @Test
+        @DisplayName("should return changed items with the new high-water mark")
+        void Should_ReturnChangedItemsWithNewHighWaterMark() {
+            // given
+            ShelfChangesDto changes = new ShelfChangesDto(List.of(new ShelfDto("menuItemName One", MENU_ITEM_ID, 3, 2)), 42);
+            given(shelfQueryService.findChangesSince(40, 500)).willReturn(Mono.just(changes));
+
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+
+                    .when()
+                    .get("/shelf/changes?sinceVersion=40")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(OK)
+                    .body("items", hasSize(1))
+                    .body("items[0].menuItemId", equalTo(MENU_ITEM_ID))
+                    .body("items[0].quantity", equalTo(3))
+                    .body("highWaterMark", equalTo(42));
+        }
+
+        @Test
+        @DisplayName("should return 400 when the high-water mark is negative")
+        void Should_Return400_When_ChangeSequenceIsNegative() {
+            given()
+                    .log().ifValidationFails()
+                    .contentType(MediaType.APPLICATION_JSON)
+
+                    .when()
+                    .get("/shelf/changes?sinceVersion=-1")
+
+                    .then()
+                    .log().ifValidationFails()
+                    .status(BAD_REQUEST);
+        }
+    }
+
+    @Nested
+    @DisplayName("Stream changes of shelf items")
+    class StreamChangesOfShelf {
+        @Test
+        @DisplayName("should stream live changes as server-sent events")
+        void Should_StreamLiveChangesAsServerSentEvents() {
+            // given
+            ShelfDto change = new ShelfDto("menuItemName One", MENU_ITEM_ID, 3, 2);
+            given(changeStream.changes()).willReturn(Flux.just(change));
+
+            // when & then
+            StepVerifier.create(webTestClient.get()
+                                        .uri("/shelf/stream")
+                                        .accept(MediaType.TEXT_EVENT_STREAM)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .returnResult(ShelfDto.class)
+                                        .getResponseBody())
+                    .expectNext(change)
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("should start the stream with available items when snapshot is requested")
+        void Should_StartStreamWithAvailableItems_When_SnapshotIsRequested() {
+            // given
+            ShelfDto available = new ShelfDto("menuItemName Two", MENU_ITEM_ID_TWO, 5, 1);
+            ShelfDto change = new ShelfDto("menuItemName One", MENU_ITEM_ID, 3, 2);
+            given(shelfQueryService.findAllAvailableItems()).willReturn(Mono.just(List.of(available)));
+            given(changeStream.changes()).willReturn(Flux.just(change).delaySubscription(Duration.ofMillis(100)));
+
+            // when & then
+            StepVerifier.create(webTestClient.get()
+                                        .uri("/shelf/stream?snapshot=true")
+                                        .accept(MediaType.TEXT_EVENT_STREAM)
+                                        .exchange()
+                                        .expectStatus().isOk()
+                                        .returnResult(ShelfDto.class)
+                                        .getResponseBody())
+                    .expectNext(available, change)
+                    .verifyComplete();
+        }
+    }
 }
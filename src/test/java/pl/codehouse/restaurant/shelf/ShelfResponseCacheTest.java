@@ -0,0 +1,56 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+class ShelfResponseCacheTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+
+    private final ShelfResponseCache sut = new ShelfResponseCache(new ObjectMapper(), new Jackson2ObjectMapperBuilder(),
+                                                                  new ShelfCacheProperties(100, Duration.ofMinutes(5)));
+
+    @Test
+    @DisplayName("should give distinct ETags to lists of available items with the same size and sum of versions")
+    void should_GiveDistinctETagsToListsOfAvailableItems_When_SizeAndSumOfVersionsAreTheSame() {
+        // given
+        List<ShelfDto> items = List.of(new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 4, 1),
+                                       new ShelfDto("Menu Item Two", MENU_ITEM_ID_TWO, 5, 2));
+        List<ShelfDto> changedItems = List.of(new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 3, 2),
+                                              new ShelfDto("Menu Item Two", MENU_ITEM_ID_TWO, 6, 1));
+
+        // when
+        ShelfResponseCache.ShelfResponse response = sut.availableItems(items, MediaType.APPLICATION_JSON);
+        ShelfResponseCache.ShelfResponse changedResponse = sut.availableItems(changedItems, MediaType.APPLICATION_JSON);
+
+        // then
+        assertThat(changedResponse.etag()).isNotEqualTo(response.etag());
+        assertThat(new String(changedResponse.body(), StandardCharsets.UTF_8)).contains("\"quantity\":3");
+    }
+
+    @Test
+    @DisplayName("should serialize an item again when its content changed without a new version")
+    void should_SerializeItemAgain_When_ContentChangedWithoutNewVersion() {
+        // given
+        ShelfDto item = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 4, 7);
+        ShelfDto changedItem = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 5, 7);
+
+        // when
+        ShelfResponseCache.ShelfResponse response = sut.item(item, MediaType.APPLICATION_JSON);
+        ShelfResponseCache.ShelfResponse cachedResponse = sut.item(item, MediaType.APPLICATION_JSON);
+        ShelfResponseCache.ShelfResponse changedResponse = sut.item(changedItem, MediaType.APPLICATION_JSON);
+
+        // then
+        assertThat(cachedResponse).isSameAs(response);
+        assertThat(new String(changedResponse.body(), StandardCharsets.UTF_8)).contains("\"quantity\":5");
+    }
+}
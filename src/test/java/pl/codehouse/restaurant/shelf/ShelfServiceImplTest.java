@@ -0,0 +1,193 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.times;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ApplicableCommand;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfServiceImplTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final ShelfDto UPDATED_ITEM = new ShelfDto("Menu Item One", MENU_ITEM_ID_ONE, 3, 2);
+
+    @Mock
+    private ApplicableCommand<ActionEvent, ShelfDto> createCommand;
+
+    @Mock
+    private ApplicableCommand<ActionEvent, ShelfDto> updateCommand;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private ShelfCache shelfCache;
+
+    @Mock
+    private ObjectProvider<ShelfCommandInterceptor> interceptorProvider;
+
+    @Mock
+    private ObjectProvider<ShelfWriteCoalescer> coalescerProvider;
+
+    private final List<String> interceptedBy = new CopyOnWriteArrayList<>();
+    private final ShelfCommandLanes commandLanes = new ShelfCommandLanes(new ShelfLaneProperties(1), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        commandLanes.destroy();
+    }
+
+    @Test
+    @DisplayName("should resolve the command of an action type only once")
+    void should_ResolveCommandOfActionTypeOnlyOnce() {
+        // given
+        given(interceptorProvider.orderedStream()).willReturn(Stream.empty());
+        given(createCommand.isApplicable(any())).willReturn(false);
+        given(updateCommand.isApplicable(any())).willReturn(true);
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(updateCommand.execute(any())).willReturn(Mono.just(ExecutionResult.success(UPDATED_ITEM)));
+        var sut = newService();
+
+        // when & then
+        StepVerifier.create(sut.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+        StepVerifier.create(sut.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // and
+        then(createCommand).should(times(1)).isApplicable(any());
+        then(updateCommand).should(times(1)).isApplicable(any());
+        then(updateCommand).should(times(2)).execute(any());
+    }
+
+    @Test
+    @DisplayName("should apply interceptors around the command execution in their order")
+    void should_ApplyInterceptorsAroundCommandExecutionInTheirOrder() {
+        // given
+        given(interceptorProvider.orderedStream()).willReturn(Stream.of(recordingInterceptor("outer"), recordingInterceptor("inner")));
+        given(createCommand.isApplicable(any())).willReturn(false);
+        given(updateCommand.isApplicable(any())).willReturn(true);
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(updateCommand.execute(any())).willReturn(Mono.fromSupplier(() -> {
+            interceptedBy.add("command");
+            return ExecutionResult.success(UPDATED_ITEM);
+        }));
+        var sut = newService();
+
+        // when & then
+        StepVerifier.create(sut.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 1)))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // and
+        assertThat(interceptedBy).containsExactly("outer", "inner", "command");
+    }
+
+    @Test
+    @DisplayName("should cache the result of a command only once its transaction is committed")
+    void should_CacheResultOfCommandOnlyOnceItsTransactionIsCommitted() {
+        // given
+        given(interceptorProvider.orderedStream()).willReturn(Stream.empty());
+        given(createCommand.isApplicable(any())).willReturn(false);
+        given(updateCommand.isApplicable(any())).willReturn(true);
+        given(transactionalOperator.transactional(any(Mono.class)))
+                .willAnswer(invocation -> invocation.<Mono<?>>getArgument(0).doOnSuccess(result -> interceptedBy.add("commit")));
+        given(updateCommand.execute(any())).willReturn(Mono.fromSupplier(() -> {
+            interceptedBy.add("command");
+            return ExecutionResult.success(UPDATED_ITEM);
+        }));
+        willAnswer(invocation -> interceptedBy.add("cache")).given(shelfCache).put(UPDATED_ITEM);
+        var sut = newService();
+
+        // when & then
+        StepVerifier.create(sut.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // and
+        assertThat(interceptedBy).containsExactly("command", "commit", "cache");
+    }
+
+    @Test
+    @DisplayName("should apply the transaction scope to the command within its transaction")
+    void should_ApplyTransactionScopeToCommandWithinItsTransaction() {
+        // given
+        given(interceptorProvider.orderedStream()).willReturn(Stream.empty());
+        given(createCommand.isApplicable(any())).willReturn(false);
+        given(updateCommand.isApplicable(any())).willReturn(true);
+        given(transactionalOperator.transactional(any(Mono.class)))
+                .willAnswer(invocation -> invocation.<Mono<?>>getArgument(0).doOnSuccess(result -> interceptedBy.add("commit")));
+        given(updateCommand.execute(any())).willReturn(Mono.fromSupplier(() -> {
+            interceptedBy.add("command");
+            return ExecutionResult.success(UPDATED_ITEM);
+        }));
+        var sut = newService();
+
+        // when & then
+        StepVerifier.create(sut.action(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1),
+                                       command -> Mono.fromRunnable(() -> interceptedBy.add("claim"))
+                                               .then(command)
+                                               .doOnNext(item -> interceptedBy.add("complete"))))
+                .expectNext(UPDATED_ITEM)
+                .verifyComplete();
+
+        // and
+        assertThat(interceptedBy).containsExactly("claim", "command", "complete", "commit");
+    }
+
+    @Test
+    @DisplayName("should fail when no command is applicable for the action")
+    void should_Fail_When_NoCommandIsApplicableForAction() {
+        // given
+        given(interceptorProvider.orderedStream()).willReturn(Stream.empty());
+        given(createCommand.isApplicable(any())).willReturn(false);
+        given(updateCommand.isApplicable(any())).willReturn(false);
+        var sut = newService();
+
+        // when & then
+        assertThatThrownBy(() -> sut.action(new ReleaseReservationOnShelfAction(UUID.randomUUID())))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Missing configuration for the following action: ");
+    }
+
+    private ShelfServiceImpl newService() {
+        return new ShelfServiceImpl(List.of(createCommand, updateCommand), List.of(), transactionalOperator, commandLanes,
+                                    new ShelfChangeStream(new ShelfStreamProperties(16)), shelfCache, interceptorProvider, coalescerProvider);
+    }
+
+    private ShelfCommandInterceptor recordingInterceptor(String name) {
+        return new ShelfCommandInterceptor() {
+            @Override
+            public <R> Mono<R> intercept(ActionEvent action, Mono<R> execution) {
+                return Mono.defer(() -> {
+                    interceptedBy.add(name);
+                    return execution;
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfShardRouterTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+    private static final ShelfEntity TOTAL = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 7, 0, 12, NOW);
+
+    @Mock
+    private ShelfRepository repository;
+
+    @Mock
+    private ShelfShardRepository shardRepository;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private ShelfShardRouter sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ShelfShardRouter(CLOCK, repository, shardRepository, transactionalOperator,
+                                   new ShelfShardProperties(true, 2, 3, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("should take items from another shard when the first one runs dry")
+    void should_TakeItemsFromAnotherShard_When_FirstOneRunsDry() {
+        // given
+        givenShards(2);
+        lenient().when(repository.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, NOW)).thenReturn(Mono.empty());
+        lenient().when(shardRepository.updateShardIfAvailable(MENU_ITEM_ID_ONE, 1, -2, NOW)).thenReturn(Mono.just(1));
+        given(shardRepository.findTotalByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(TOTAL));
+
+        // when & then
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_ONE, -2, NOW))
+                .expectNext(TOTAL)
+                .verifyComplete();
+
+        // and
+        then(shardRepository).should(times(1)).updateShardIfAvailable(MENU_ITEM_ID_ONE, 1, -2, NOW);
+        then(shardRepository).should(never()).drainShards(anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("should drain the shards into the shelf row when no single shard holds enough items")
+    void should_DrainShardsIntoShelfRow_When_NoSingleShardHoldsEnoughItems() {
+        // given
+        givenShards(2);
+        given(repository.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -5, NOW)).willReturn(Mono.empty(), Mono.just(TOTAL));
+        given(shardRepository.updateShardIfAvailable(MENU_ITEM_ID_ONE, 1, -5, NOW)).willReturn(Mono.just(0));
+        given(shardRepository.drainShards(MENU_ITEM_ID_ONE, NOW)).willReturn(Mono.just(1));
+        given(shardRepository.findTotalByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(TOTAL));
+
+        // when & then
+        StepVerifier.create(sut.apply(MENU_ITEM_ID_ONE, -5, NOW))
+                .expectNext(TOTAL)
+                .verifyComplete();
+
+        // and
+        then(repository).should(times(2)).updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -5, NOW);
+    }
+
+    @Test
+    @DisplayName("should split menu item into shards once its writes cross the hot threshold")
+    void should_SplitMenuItemIntoShards_When_ItsWritesCrossHotThreshold() {
+        // given
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(shardRepository.createShards(MENU_ITEM_ID_ONE, 2, NOW)).willReturn(Mono.just(1));
+
+        // when
+        sut.recordWrite(MENU_ITEM_ID_ONE);
+        sut.recordWrite(MENU_ITEM_ID_ONE);
+        assertThat(sut.isSharded(MENU_ITEM_ID_ONE)).isFalse();
+        sut.recordWrite(MENU_ITEM_ID_ONE);
+        sut.recordWrite(MENU_ITEM_ID_ONE);
+
+        // then
+        assertThat(sut.isSharded(MENU_ITEM_ID_ONE)).isTrue();
+        then(shardRepository).should(times(1)).createShards(MENU_ITEM_ID_ONE, 2, NOW);
+    }
+
+    @Test
+    @DisplayName("should read and update plain shelf rows without looking at the shards when sharding is disabled")
+    void should_ReadAndUpdatePlainShelfRowsWithoutLookingAtShards_When_ShardingIsDisabled() {
+        // given
+        var disabled = new ShelfShardRouter(CLOCK, repository, shardRepository, transactionalOperator,
+                                            new ShelfShardProperties(false, 2, 3, Duration.ofSeconds(1)));
+        given(repository.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(TOTAL));
+        given(repository.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, NOW)).willReturn(Mono.just(TOTAL));
+
+        // when & then
+        StepVerifier.create(disabled.findByMenuItemId(MENU_ITEM_ID_ONE))
+                .expectNext(TOTAL)
+                .verifyComplete();
+        StepVerifier.create(disabled.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, NOW))
+                .expectNext(TOTAL)
+                .verifyComplete();
+        StepVerifier.create(disabled.consolidateIfSplit(MENU_ITEM_ID_ONE, NOW))
+                .expectNext(false)
+                .verifyComplete();
+
+        // and
+        then(shardRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("should consolidate a menu item split by another node since the last refresh")
+    void should_ConsolidateMenuItem_When_SplitByAnotherNodeSinceLastRefresh() {
+        // given
+        given(shardRepository.findShardCount(MENU_ITEM_ID_ONE)).willReturn(Mono.just(new ShelfShardCount(MENU_ITEM_ID_ONE, 2)));
+        given(shardRepository.drainShards(MENU_ITEM_ID_ONE, NOW)).willReturn(Mono.just(1));
+
+        // when & then
+        StepVerifier.create(sut.consolidateIfSplit(MENU_ITEM_ID_ONE, NOW))
+                .expectNext(true)
+                .verifyComplete();
+
+        // and
+        assertThat(sut.isSharded(MENU_ITEM_ID_ONE)).isTrue();
+        then(shardRepository).should(times(1)).drainShards(MENU_ITEM_ID_ONE, NOW);
+    }
+
+    private void givenShards(int shards) {
+        given(shardRepository.findShardCounts()).willReturn(Flux.just(new ShelfShardCount(MENU_ITEM_ID_ONE, shards)));
+        StepVerifier.create(sut.refresh())
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
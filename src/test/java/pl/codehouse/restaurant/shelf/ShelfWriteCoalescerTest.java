@@ -0,0 +1,175 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ShelfWriteCoalescerTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private ShelfRepository repository;
+
+    @Mock
+    private ShelfCache shelfCache;
+
+    @Mock
+    private ShelfEventOutbox eventOutbox;
+
+    @Mock
+    private ShelfShardRouter shardRouter;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShelfCommandLanes commandLanes = new ShelfCommandLanes(new ShelfLaneProperties(1), meterRegistry);
+
+    private ShelfWriteCoalescer sut;
+
+    @BeforeEach
+    void setUp() {
+        given(transactionalOperator.transactional(any(Mono.class))).willAnswer(invocation -> invocation.getArgument(0));
+        sut = new ShelfWriteCoalescer(CLOCK, repository, shelfCache, eventOutbox, shardRouter, commandLanes, transactionalOperator,
+                                      new ShelfCoalescerProperties(true, Duration.ofSeconds(1), 3), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        commandLanes.destroy();
+    }
+
+    @Test
+    @DisplayName("should write concurrent updates of one menu item as one net delta and complete each caller with its own state")
+    void should_WriteConcurrentUpdatesOfOneMenuItemAsOneNetDeltaAndCompleteEachCallerWithItsOwnState() {
+        // given
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, 2, 2, 3, NOW))
+                .willReturn(Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 12, 0, 13, NOW)));
+        given(eventOutbox.appendAll(List.of(
+                new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 5),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 1)))).willReturn(Mono.empty());
+
+        // when
+        CompletableFuture<ShelfDto> first = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 5)).toFuture();
+        CompletableFuture<ShelfDto> second = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2)).toFuture();
+        CompletableFuture<ShelfDto> third = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)).toFuture();
+
+        // then
+        assertThat(first).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 15, 11));
+        assertThat(second).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 13, 12));
+        assertThat(third).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 12, 13));
+
+        // and
+        then(shelfCache).should().put(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 12, 13));
+        then(shardRouter).should(times(3)).recordWrite(MENU_ITEM_ID_ONE);
+        assertThat(meterRegistry.get(ShelfWriteCoalescer.BATCH_SIZE_METRIC).summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should reject only the TAKE which would overdraw the shelf when the net delta cannot be applied")
+    void should_RejectOnlyTakeWhichWouldOverdrawShelf_When_NetDeltaCannotBeApplied() {
+        // given
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, -6, -7, 3, NOW)).willReturn(Mono.empty());
+        given(shardRouter.consolidateIfSplit(MENU_ITEM_ID_ONE, NOW)).willReturn(Mono.just(false));
+        given(repository.lockAvailableQuantity(MENU_ITEM_ID_ONE)).willReturn(Mono.just(5));
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, -3, 2, NOW))
+                .willReturn(Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 3, 0, 9, NOW)));
+        given(eventOutbox.appendAll(List.of(
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 3),
+                new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 1)))).willReturn(Mono.empty());
+
+        // when
+        CompletableFuture<ShelfDto> first = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 3)).toFuture();
+        CompletableFuture<ShelfDto> second = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 4)).toFuture();
+        CompletableFuture<ShelfDto> third = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 1)).toFuture();
+
+        // then
+        assertThat(first).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 2, 8));
+        assertThat(second).failsWithin(TIMEOUT)
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(InsufficientStockException.class)
+                .withMessage("Missing 2 item(s) of 1000 from shelf");
+        assertThat(third).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 3, 9));
+    }
+
+    @Test
+    @DisplayName("should move the shards of a sharded menu item back to its shelf row before replaying the updates against it")
+    void should_ConsolidateShardsBeforeLockingShelfRow_When_NetDeltaCannotBeApplied() {
+        // given
+        sut = new ShelfWriteCoalescer(CLOCK, repository, shelfCache, eventOutbox, shardRouter, commandLanes, transactionalOperator,
+                                      new ShelfCoalescerProperties(true, Duration.ofSeconds(1), 1), meterRegistry);
+        given(shardRouter.consolidateIfSplit(MENU_ITEM_ID_ONE, NOW)).willReturn(Mono.just(true));
+        given(repository.lockAvailableQuantity(MENU_ITEM_ID_ONE)).willReturn(Mono.just(6));
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, -4, -4, 1, NOW))
+                .willReturn(Mono.empty(), Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 2, 0, 7, NOW)));
+        given(eventOutbox.appendAll(List.of(new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 4)))).willReturn(Mono.empty());
+
+        // when
+        CompletableFuture<ShelfDto> result = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 4)).toFuture();
+
+        // then
+        assertThat(result).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 2, 7));
+
+        // and
+        InOrder inOrder = inOrder(shardRouter, repository);
+        inOrder.verify(shardRouter).consolidateIfSplit(MENU_ITEM_ID_ONE, NOW);
+        inOrder.verify(repository).lockAvailableQuantity(MENU_ITEM_ID_ONE);
+    }
+
+    @Test
+    @DisplayName("should reject a TAKE which would overdraw the shelf even when a later ADD of the batch makes up for it")
+    void should_RejectTakeWhichWouldOverdrawShelf_When_LaterAddOfBatchMakesUpForIt() {
+        // given
+        sut = new ShelfWriteCoalescer(CLOCK, repository, shelfCache, eventOutbox, shardRouter, commandLanes, transactionalOperator,
+                                      new ShelfCoalescerProperties(true, Duration.ofSeconds(1), 2), meterRegistry);
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, 0, -5, 2, NOW)).willReturn(Mono.empty());
+        given(shardRouter.consolidateIfSplit(MENU_ITEM_ID_ONE, NOW)).willReturn(Mono.just(false));
+        given(repository.lockAvailableQuantity(MENU_ITEM_ID_ONE)).willReturn(Mono.just(0));
+        given(shardRouter.updateNetQuantityIfAvailable(MENU_ITEM_ID_ONE, 5, 5, 1, NOW))
+                .willReturn(Mono.just(new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 0, 4, NOW)));
+        given(eventOutbox.appendAll(List.of(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 5)))).willReturn(Mono.empty());
+
+        // when
+        CompletableFuture<ShelfDto> first = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 5)).toFuture();
+        CompletableFuture<ShelfDto> second = sut.submit(new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 5)).toFuture();
+
+        // then
+        assertThat(first).failsWithin(TIMEOUT)
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(InsufficientStockException.class)
+                .withMessage("Missing 5 item(s) of 1000 from shelf");
+        assertThat(second).succeedsWithin(TIMEOUT).isEqualTo(new ShelfDto(MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 5, 4));
+    }
+}
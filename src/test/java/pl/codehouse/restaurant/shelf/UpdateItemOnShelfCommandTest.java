@@ -1,7 +1,7 @@
 package pl.codehouse.restaurant.shelf;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.never;
@@ -14,14 +14,11 @@ import java.time.ZoneOffset;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import pl.codehouse.commons.ActionEvent;
 import pl.codehouse.commons.ExecutionResult;
 import reactor.core.publisher.Mono;
@@ -32,22 +29,15 @@ class UpdateItemOnShelfCommandTest {
 
     private static final int MENU_ITEM_ID_ONE = 1000;
     private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
-    private static final String ITEMS_BY_MENU_ITEM_ID = "itemsByMenuItemId";
 
     @InjectMocks
     private UpdateItemOnShelfCommand sut;
 
     @Mock
-    private ShelfRepository repository;
+    private ShelfEventOutbox eventOutbox;
 
     @Mock
-    private CacheManager cacheManager;
-
-    @Mock
-    private Cache cache;
-
-    @Captor
-    private ArgumentCaptor<ShelfEntity> entityArgumentCaptor;
+    private ShelfShardRouter shardRouter;
 
     @Spy
     private Clock clock = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
@@ -57,11 +47,9 @@ class UpdateItemOnShelfCommandTest {
     void should_AddTwoOfAMenuItemToShelf_When_UpdateActionWithAddTypeIsPassed() {
         // given
         ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 2);
-        ShelfEntity entity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 0, 1, LocalDateTime.now(clock).minusDays(1));
-        ShelfEntity expectedUpdatedEntity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 2, 2, LocalDateTime.now(clock));
-        given(repository.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(entity));
-        given(repository.save(any())).willAnswer(invocation -> Mono.just(invocation.getArguments()[0]));
-        given(cacheManager.getCache(ITEMS_BY_MENU_ITEM_ID)).willReturn(cache);
+        ShelfEntity expectedUpdatedEntity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 2, 0, 2, LocalDateTime.now(clock));
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, 2, LocalDateTime.now(clock))).willReturn(Mono.just(expectedUpdatedEntity));
+        given(eventOutbox.append(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 2))).willReturn(Mono.empty());
 
         // when
         Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
@@ -77,18 +65,8 @@ class UpdateItemOnShelfCommandTest {
                 .verifyComplete();
 
         // and
-        then(cache).should(times(1)).put(MENU_ITEM_ID_ONE, expectedUpdatedEntity);
-
-        // and
-        then(repository).should(times(1)).save(entityArgumentCaptor.capture());
-
-        assertThat(entityArgumentCaptor.getValue())
-                .hasFieldOrPropertyWithValue("id", 100)
-                .hasFieldOrPropertyWithValue("menuItemId", MENU_ITEM_ID_ONE)
-                .hasFieldOrPropertyWithValue("menuItemName", MENU_ITEM_NAME_ONE)
-                .hasFieldOrPropertyWithValue("quantity", 2)
-                .hasFieldOrPropertyWithValue("version", 2L)
-                .hasFieldOrPropertyWithValue("updatedAt", LocalDateTime.now(clock));
+        then(shardRouter).should(never()).findByMenuItemId(anyInt());
+        then(eventOutbox).should().append(new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_ONE, 2));
     }
 
     @Test
@@ -96,11 +74,9 @@ class UpdateItemOnShelfCommandTest {
     void should_subtractTwoItemsFromShelf_When_UpdateActionWithTAKETypeAndOnShelfAreEnoughItems() {
         // given
         ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2);
-        ShelfEntity entity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 10, 1, LocalDateTime.now(clock).minusDays(1));
-        ShelfEntity expectedUpdatedEntity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 8, 2, LocalDateTime.now(clock));
-        given(repository.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(entity));
-        given(repository.save(any())).willAnswer(invocation -> Mono.just(invocation.getArguments()[0]));
-        given(cacheManager.getCache(ITEMS_BY_MENU_ITEM_ID)).willReturn(cache);
+        ShelfEntity expectedUpdatedEntity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 8, 0, 2, LocalDateTime.now(clock));
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock))).willReturn(Mono.just(expectedUpdatedEntity));
+        given(eventOutbox.append(new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2))).willReturn(Mono.empty());
 
         // when
         Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
@@ -116,18 +92,8 @@ class UpdateItemOnShelfCommandTest {
                 .verifyComplete();
 
         // and
-        then(cache).should(times(1)).put(MENU_ITEM_ID_ONE, expectedUpdatedEntity);
-
-        // and
-        then(repository).should(times(1)).save(entityArgumentCaptor.capture());
-
-        assertThat(entityArgumentCaptor.getValue())
-                .hasFieldOrPropertyWithValue("id", 100)
-                .hasFieldOrPropertyWithValue("menuItemId", MENU_ITEM_ID_ONE)
-                .hasFieldOrPropertyWithValue("menuItemName", MENU_ITEM_NAME_ONE)
-                .hasFieldOrPropertyWithValue("quantity", 8)
-                .hasFieldOrPropertyWithValue("version", 2L)
-                .hasFieldOrPropertyWithValue("updatedAt", LocalDateTime.now(clock));
+        then(shardRouter).should(never()).findByMenuItemId(anyInt());
+        then(eventOutbox).should().append(new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2));
     }
 
     @Test
@@ -135,8 +101,9 @@ class UpdateItemOnShelfCommandTest {
     void should_failToSubtractTwoItemsFromShelf_When_UpdateActionWithTAKETypeAndThereAreNotThatManyItems() {
         // given
         ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2);
-        ShelfEntity entity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 1, 1, LocalDateTime.now(clock).minusDays(1));
-        given(repository.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(entity));
+        ShelfEntity entity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 1, 0, 1, LocalDateTime.now(clock).minusDays(1));
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock))).willReturn(Mono.empty());
+        given(shardRouter.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(entity));
 
         // when
         Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
@@ -153,6 +120,78 @@ class UpdateItemOnShelfCommandTest {
                 .verifyComplete();
 
         // and
-        then(repository).should(never()).save(any());
+        then(eventOutbox).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("should count reserved items as missing when Update Action with TAKE Type takes more items than are not reserved")
+    void should_countReservedItemsAsMissing_When_UpdateActionWithTAKETypeTakesMoreItemsThanAreNotReserved() {
+        // given
+        ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2);
+        ShelfEntity entity = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 3, 2, 1, LocalDateTime.now(clock).minusDays(1));
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock))).willReturn(Mono.empty());
+        given(shardRouter.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.just(entity));
+
+        // when
+        Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isFailure()).isTrue();
+                    assertThat(result.exception())
+                            .hasRootCauseInstanceOf(InsufficientStockException.class)
+                            .hasRootCauseMessage("Missing %d item(s) of %s from shelf".formatted(1, MENU_ITEM_ID_ONE));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should fail to update menu item when Update Action is passed and item is missing on the shelf")
+    void should_failToUpdateMenuItem_When_UpdateActionIsPassedAndItemIsMissingOnTheShelf() {
+        // given
+        ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 2);
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, 2, LocalDateTime.now(clock))).willReturn(Mono.empty());
+        given(shardRouter.findByMenuItemId(MENU_ITEM_ID_ONE)).willReturn(Mono.empty());
+
+        // when
+        Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isFailure()).isTrue();
+                    assertThat(result.exception())
+                            .isInstanceOf(RuntimeException.class)
+                            .hasCauseInstanceOf(IllegalStateException.class)
+                            .hasRootCauseMessage("Missing Menu item by id %s on shelf".formatted(MENU_ITEM_ID_ONE));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should fail update without retrying it when Update Action hits a concurrent modification")
+    void should_failUpdateWithoutRetryingIt_When_UpdateActionHitsConcurrentModification() {
+        // given
+        ActionEvent action = new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2);
+        given(shardRouter.updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock)))
+                .willReturn(Mono.error(new OptimisticLockingFailureException("version changed")));
+
+        // when
+        Mono<ExecutionResult<ShelfDto>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isFailure()).isTrue();
+                    assertThat(result.exception())
+                            .isInstanceOf(RuntimeException.class)
+                            .hasCauseInstanceOf(OptimisticLockingFailureException.class);
+                })
+                .verifyComplete();
+
+        // and
+        then(shardRouter).should(times(1)).updateQuantityIfAvailable(MENU_ITEM_ID_ONE, -2, LocalDateTime.now(clock));
+        then(shardRouter).should(never()).findByMenuItemId(anyInt());
     }
-}
\ No newline at end of file
+}
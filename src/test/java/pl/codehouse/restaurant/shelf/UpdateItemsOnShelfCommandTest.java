@@ -0,0 +1,236 @@
+package pl.codehouse.restaurant.shelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.codehouse.commons.ActionEvent;
+import pl.codehouse.commons.ExecutionResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class UpdateItemsOnShelfCommandTest {
+
+    private static final int MENU_ITEM_ID_ONE = 1000;
+    private static final int MENU_ITEM_ID_TWO = 1001;
+    private static final String MENU_ITEM_NAME_ONE = "Menu Item One";
+    private static final String MENU_ITEM_NAME_TWO = "Menu Item Two";
+
+    @InjectMocks
+    private UpdateItemsOnShelfCommand sut;
+
+    @Mock
+    private ShelfEventOutbox eventOutbox;
+
+    @Mock
+    private ShelfShardRouter shardRouter;
+
+    @Captor
+    private ArgumentCaptor<Integer[]> menuItemIdsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Integer[]> deltasCaptor;
+
+    @Captor
+    private ArgumentCaptor<Integer[]> lowestDeltasCaptor;
+
+    @Spy
+    private Clock clock = Clock.fixed(Instant.parse("2025-01-03T10:15:30.00Z"), ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("should update all menu items with one statement when Batch Update Action is passed")
+    void should_UpdateAllMenuItemsWithOneStatement_When_BatchUpdateActionIsPassed() {
+        // given
+        ActionEvent action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.ADD, 3),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)
+        ));
+        ShelfEntity updatedEntityOne = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 7, 0, 2, LocalDateTime.now(clock));
+        ShelfEntity updatedEntityTwo = new ShelfEntity(101, MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 8, 0, 4, LocalDateTime.now(clock));
+        given(shardRouter.lockMenuItems(any())).willReturn(Flux.empty());
+        given(shardRouter.updateQuantitiesIfAvailable(any(), any(), any(), eq(LocalDateTime.now(clock))))
+                .willReturn(Flux.just(updatedEntityOne, updatedEntityTwo));
+        given(eventOutbox.appendAll(List.of(
+                new ShelfEventDto(EventType.ADD, MENU_ITEM_ID_TWO, 3),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 1)
+        ))).willReturn(Mono.empty());
+
+        // when
+        Mono<ExecutionResult<List<ShelfDto>>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isSuccess()).isTrue();
+                    assertThat(result.handle())
+                            .extracting(ShelfDto::menuItemId, ShelfDto::quantity)
+                            .containsExactly(
+                                    tuple(MENU_ITEM_ID_ONE, 7),
+                                    tuple(MENU_ITEM_ID_TWO, 8));
+                })
+                .verifyComplete();
+
+        // and
+        then(shardRouter).should(times(1)).updateQuantitiesIfAvailable(menuItemIdsCaptor.capture(), deltasCaptor.capture(),
+                                                                           lowestDeltasCaptor.capture(), any());
+        assertThat(menuItemIdsCaptor.getValue()).containsExactly(MENU_ITEM_ID_ONE, MENU_ITEM_ID_TWO);
+        assertThat(deltasCaptor.getValue()).containsExactly(-3, 3);
+        assertThat(lowestDeltasCaptor.getValue()).containsExactly(-3, 3);
+    }
+
+    @Test
+    @DisplayName("should lock the menu items in the order of their ids before updating them")
+    void should_LockMenuItemsInOrderOfTheirIds_When_BatchUpdateActionIsPassed() {
+        // given
+        ActionEvent action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.TAKE, 1),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 1)
+        ));
+        ShelfEntity updatedEntityOne = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 7, 0, 2, LocalDateTime.now(clock));
+        ShelfEntity updatedEntityTwo = new ShelfEntity(101, MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 8, 0, 4, LocalDateTime.now(clock));
+        given(shardRouter.lockMenuItems(any())).willReturn(Flux.just(MENU_ITEM_ID_ONE, MENU_ITEM_ID_TWO));
+        given(shardRouter.updateQuantitiesIfAvailable(any(), any(), any(), eq(LocalDateTime.now(clock))))
+                .willReturn(Flux.just(updatedEntityOne, updatedEntityTwo));
+        given(eventOutbox.appendAll(any())).willReturn(Mono.empty());
+
+        // when
+        Mono<ExecutionResult<List<ShelfDto>>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> assertThat(result.isSuccess()).isTrue())
+                .verifyComplete();
+
+        // and
+        InOrder inOrder = inOrder(shardRouter);
+        inOrder.verify(shardRouter).lockMenuItems(menuItemIdsCaptor.capture());
+        inOrder.verify(shardRouter).updateQuantitiesIfAvailable(any(), any(), any(), any());
+        assertThat(menuItemIdsCaptor.getValue()).containsExactly(MENU_ITEM_ID_ONE, MENU_ITEM_ID_TWO);
+    }
+
+    @Test
+    @DisplayName("should not let a later ADD cover an earlier TAKE of the same menu item")
+    void should_NotLetLaterAddCoverEarlierTake_When_BatchTakesAndAddsTheSameMenuItem() {
+        // given
+        ActionEvent action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 5),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.ADD, 5)
+        ));
+        given(shardRouter.lockMenuItems(any())).willReturn(Flux.just(MENU_ITEM_ID_ONE));
+        given(shardRouter.updateQuantitiesIfAvailable(any(), any(), any(), eq(LocalDateTime.now(clock))))
+                .willReturn(Flux.empty());
+
+        // when
+        Mono<ExecutionResult<List<ShelfDto>>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> assertThat(result.isFailure()).isTrue())
+                .verifyComplete();
+
+        // and
+        then(shardRouter).should().updateQuantitiesIfAvailable(menuItemIdsCaptor.capture(), deltasCaptor.capture(),
+                                                               lowestDeltasCaptor.capture(), any());
+        assertThat(deltasCaptor.getValue()).containsExactly(0);
+        assertThat(lowestDeltasCaptor.getValue()).containsExactly(-5);
+        then(eventOutbox).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("should fail the whole batch when one of the menu items could not be updated")
+    void should_FailTheWholeBatch_When_OneOfTheMenuItemsCouldNotBeUpdated() {
+        // given
+        ActionEvent action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.TAKE, 30)
+        ));
+        ShelfEntity updatedEntityOne = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 7, 0, 2, LocalDateTime.now(clock));
+        given(shardRouter.lockMenuItems(any())).willReturn(Flux.empty());
+        given(shardRouter.updateQuantitiesIfAvailable(any(), any(), any(), eq(LocalDateTime.now(clock))))
+                .willReturn(Flux.just(updatedEntityOne));
+
+        // when
+        Mono<ExecutionResult<List<ShelfDto>>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isFailure()).isTrue();
+                    assertThat(result.exception())
+                            .isInstanceOf(RuntimeException.class)
+                            .hasCauseInstanceOf(IllegalStateException.class)
+                            .hasRootCauseMessage("Missing menu item(s) [%s] on shelf or not enough quantity available".formatted(MENU_ITEM_ID_TWO));
+                })
+                .verifyComplete();
+
+        // and
+        then(eventOutbox).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("should retry only the rejected menu item when it has been split into shards by another node")
+    void should_RetryOnlyTheRejectedMenuItem_When_ItHasBeenSplitIntoShardsByAnotherNode() {
+        // given
+        ActionEvent action = new UpdateItemsOnShelfAction(List.of(
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_ONE, UpdateType.TAKE, 2),
+                new UpdateItemOnShelfAction(MENU_ITEM_ID_TWO, UpdateType.TAKE, 30)
+        ));
+        ShelfEntity updatedEntityOne = new ShelfEntity(100, MENU_ITEM_NAME_ONE, MENU_ITEM_ID_ONE, 7, 0, 2, LocalDateTime.now(clock));
+        ShelfEntity updatedEntityTwo = new ShelfEntity(101, MENU_ITEM_NAME_TWO, MENU_ITEM_ID_TWO, 10, 0, 9, LocalDateTime.now(clock));
+        given(shardRouter.isEnabled()).willReturn(true);
+        given(shardRouter.lockMenuItems(any())).willReturn(Flux.empty());
+        given(shardRouter.updateQuantitiesIfAvailable(any(), any(), any(), eq(LocalDateTime.now(clock))))
+                .willReturn(Flux.just(updatedEntityOne), Flux.just(updatedEntityTwo));
+        given(shardRouter.consolidateIfSplit(MENU_ITEM_ID_TWO, LocalDateTime.now(clock))).willReturn(Mono.just(true));
+        given(eventOutbox.appendAll(List.of(
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_ONE, 2),
+                new ShelfEventDto(EventType.TAKE, MENU_ITEM_ID_TWO, 30)
+        ))).willReturn(Mono.empty());
+
+        // when
+        Mono<ExecutionResult<List<ShelfDto>>> resultMono = sut.execute(action);
+
+        // then
+        StepVerifier.create(resultMono)
+                .assertNext(result -> {
+                    assertThat(result.isSuccess()).isTrue();
+                    assertThat(result.handle())
+                            .extracting(ShelfDto::menuItemId, ShelfDto::quantity)
+                            .containsExactly(
+                                    tuple(MENU_ITEM_ID_ONE, 7),
+                                    tuple(MENU_ITEM_ID_TWO, 10));
+                })
+                .verifyComplete();
+
+        // and
+        then(shardRouter).should(times(2)).updateQuantitiesIfAvailable(menuItemIdsCaptor.capture(), deltasCaptor.capture(),
+                                                                           lowestDeltasCaptor.capture(), any());
+        assertThat(menuItemIdsCaptor.getAllValues().get(1)).containsExactly(MENU_ITEM_ID_TWO);
+        assertThat(deltasCaptor.getAllValues().get(1)).containsExactly(-30);
+        assertThat(lowestDeltasCaptor.getAllValues().get(1)).containsExactly(-30);
+    }
+}